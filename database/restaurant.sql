@@ -60,6 +60,7 @@ CREATE TABLE ligne_commande (
 );
 
 -- Index pour améliorer les performances
+-- (les index et tables ajoutés ensuite sont créés au démarrage par utils/MigrationRunner.java)
 CREATE INDEX idx_produit_categorie ON produit(categorie_id);
 CREATE INDEX idx_mouvement_produit ON mouvement_stock(produit_id);
 CREATE INDEX idx_mouvement_date ON mouvement_stock(date_mouvement);
@@ -25,7 +25,7 @@ if not exist "bin" (
 
 REM Compiler tous les fichiers Java
 echo Compilation en cours...
-javac -cp "lib/*;src" -d bin src\Main.java src\models\*.java src\dao\*.java src\ui\frames\*.java src\ui\panels\*.java src\utils\*.java 2>error.log
+javac -cp "lib/*;src" -d bin src\Main.java src\models\*.java src\dao\*.java src\dao\memory\*.java src\dao\cache\*.java src\ui\frames\*.java src\ui\panels\*.java src\utils\*.java 2>error.log
 
 if errorlevel 1 (
     echo.
@@ -51,4 +51,4 @@ REM Executer l'application
 echo.
 echo Demarrage de RestaurantApp...
 echo.
-java -cp "bin;lib/*" Main
+java -cp "bin;lib/*" Main %*
@@ -22,7 +22,7 @@ fi
 
 # Compiler tous les fichiers Java
 echo "Compilation en cours..."
-javac -cp "lib/*:src" -d bin src/Main.java src/models/*.java src/dao/*.java src/ui/frames/*.java src/ui/panels/*.java src/utils/*.java 2>error.log
+javac -cp "lib/*:src" -d bin src/Main.java src/models/*.java src/dao/*.java src/dao/memory/*.java src/dao/cache/*.java src/ui/frames/*.java src/ui/panels/*.java src/utils/*.java 2>error.log
 
 if [ $? -ne 0 ]; then
     echo ""
@@ -46,4 +46,4 @@ fi
 echo ""
 echo "Demarrage de RestaurantApp..."
 echo ""
-java -cp "bin:lib/*" Main
+java -cp "bin:lib/*" Main "$@"
@@ -1,30 +1,63 @@
+import dao.ChangePoller;
+import dao.DAOFactory;
 import ui.frames.LoginFrame;
 import utils.DatabaseConnection;
+import utils.HistoriquePartitions;
+import utils.MigrationRunner;
+
+import java.nio.file.Paths;
 
 /**
  * Classe principale - Point d'entrée de l'application RestaurantApp
- * 
+ *
  * Responsabilités:
+ * - Choisir le stockage (MySQL par défaut, ou "--memoire [dossier]" pour
+ *   le stockage embarqué en mémoire, dossier "data" par défaut)
  * - Tester la connexion à la base de données
+ * - Appliquer les migrations du schéma (utils.MigrationRunner)
  * - Lancer l'interface graphique
  */
 public class Main {
-    
+
     public static void main(String[] args) {
         System.out.println("=== Démarrage de RestaurantApp ===");
-        System.out.println("Vérification de la connexion à la base de données...");
-        
-        // Tester la connexion à la base de données
-        if (!DatabaseConnection.testConnection()) {
-            System.err.println("Erreur: Impossible de se connecter à la base de données!");
-            System.err.println("Vérifiez:");
-            System.err.println("- MySQL est-il en cours d'exécution?");
-            System.err.println("- La base de données 'restaurant' existe-t-elle?");
-            System.err.println("- Les identifiants dans DatabaseConnection.java sont-ils corrects?");
-            System.exit(1);
-        }
 
-        System.out.println("Connexion établie avec succès");
+        if (args.length > 0 && args[0].equals("--memoire")) {
+            String dossier = args.length > 1 ? args[1] : "data";
+            try {
+                DAOFactory.useMemoryBackend(Paths.get(dossier));
+                System.out.println("Stockage en mémoire activé (dossier: " + dossier + ")");
+            } catch (Exception e) {
+                System.err.println("Erreur: Impossible d'ouvrir le stockage en mémoire: " + e.getMessage());
+                System.exit(1);
+            }
+        } else {
+            System.out.println("Vérification de la connexion à la base de données...");
+
+            // Tester la connexion à la base de données
+            if (!DatabaseConnection.testConnection()) {
+                System.err.println("Erreur: Impossible de se connecter à la base de données!");
+                System.err.println("Vérifiez:");
+                System.err.println("- MySQL est-il en cours d'exécution?");
+                System.err.println("- La base de données 'restaurant' existe-t-elle?");
+                System.err.println("- Les identifiants dans DatabaseConnection.java sont-ils corrects?");
+                System.exit(1);
+            }
+
+            System.out.println("Connexion établie avec succès");
+
+            // Mettre le schéma à jour (migrations non encore appliquées, index attendus)
+            try {
+                MigrationRunner.migrate();
+            } catch (Exception e) {
+                System.err.println("Erreur: Mise à jour du schéma impossible: " + e.getMessage());
+                System.exit(1);
+            }
+            // Partitions à venir et archivage de l'historique expiré, en arrière-plan
+            HistoriquePartitions.startMaintenance();
+            // Modifications des autres postes: caches invalidés, écrans rafraîchis
+            ChangePoller.start();
+        }
         System.out.println("Lancement de l'interface graphique...");
 
         // Lancer l'écran de connexion dans le thread Swing
@@ -5,21 +5,25 @@ import utils.DatabaseConnection;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 /**
  * DAO pour la gestion des catégories
  */
 public class CategorieDAO implements IGenericDAO<Categorie> {
 
+    private static final TableMapping<Categorie> MAPPING = Mappings.CATEGORIE;
+    private static final TableMapping.Projection<Categorie> COLONNES = MAPPING.all();
+
     @Override
     public void create(Categorie categorie) throws Exception {
-        String sql = "INSERT INTO categorie (libelle) VALUES (?)";
         try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-            pstmt.setString(1, categorie.getLibelle());
+             PreparedStatement pstmt = conn.prepareStatement(MAPPING.insertSql(), Statement.RETURN_GENERATED_KEYS)) {
+            MAPPING.bind(pstmt, categorie);
             pstmt.executeUpdate();
-            
+
             try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
                 if (generatedKeys.next()) {
                     categorie.setId(generatedKeys.getInt(1));
@@ -30,28 +34,33 @@ public class CategorieDAO implements IGenericDAO<Categorie> {
 
     @Override
     public Categorie read(int id) throws Exception {
-        String sql = "SELECT * FROM categorie WHERE id = ?";
+        String sql = COLONNES.select() + " WHERE id = ?";
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, id);
             try (ResultSet rs = pstmt.executeQuery()) {
                 if (rs.next()) {
-                    return new Categorie(rs.getInt("id"), rs.getString("libelle"));
+                    return COLONNES.map(rs);
                 }
             }
         }
         return null;
     }
 
+    @Override
+    public Map<Integer, Categorie> readByIds(Collection<Integer> ids) throws Exception {
+        return JdbcBatch.readByIds(MAPPING, ids);
+    }
+
     @Override
     public List<Categorie> readAll() throws Exception {
         List<Categorie> categories = new ArrayList<>();
-        String sql = "SELECT * FROM categorie ORDER BY libelle";
+        String sql = COLONNES.select() + " ORDER BY libelle";
         try (Connection conn = DatabaseConnection.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
             while (rs.next()) {
-                categories.add(new Categorie(rs.getInt("id"), rs.getString("libelle")));
+                categories.add(COLONNES.map(rs));
             }
         }
         return categories;
@@ -59,11 +68,9 @@ public class CategorieDAO implements IGenericDAO<Categorie> {
 
     @Override
     public void update(Categorie categorie) throws Exception {
-        String sql = "UPDATE categorie SET libelle = ? WHERE id = ?";
         try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, categorie.getLibelle());
-            pstmt.setInt(2, categorie.getId());
+             PreparedStatement pstmt = conn.prepareStatement(MAPPING.updateSql())) {
+            MAPPING.bindWithId(pstmt, categorie, categorie.getId());
             pstmt.executeUpdate();
         }
     }
@@ -78,6 +85,22 @@ public class CategorieDAO implements IGenericDAO<Categorie> {
         }
     }
 
+    @Override
+    public List<Integer> createAll(List<Categorie> categories) throws Exception {
+        return JdbcBatch.insert(MAPPING.insertSql(), categories, MAPPING::bind, Categorie::setId);
+    }
+
+    @Override
+    public void updateAll(List<Categorie> categories) throws Exception {
+        JdbcBatch.execute(MAPPING.updateSql(), categories,
+                (pstmt, categorie) -> MAPPING.bindWithId(pstmt, categorie, categorie.getId()));
+    }
+
+    @Override
+    public void deleteAll(List<Integer> ids) throws Exception {
+        JdbcBatch.deleteByIds(MAPPING, ids);
+    }
+
     /**
      * Vérifie si une catégorie avec ce libellé existe déjà
      */
@@ -0,0 +1,198 @@
+package dao;
+
+import dao.cache.CatalogCache;
+import dao.cache.SalesCube;
+import utils.DatabaseConnection;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Détection des modifications faites par les autres postes
+ *
+ * Chaque table métier a un compteur dans table_version, incrémenté par
+ * déclencheur à chaque écriture (voir utils.MigrationRunner). Toutes les
+ * POLL_INTERVAL_MS, une seule requête relit tous les compteurs; pour les
+ * tables dont le compteur a avancé, les caches du catalogue et le cube des
+ * ventes sont invalidés et les écouteurs (ex: écrans à rafraîchir) sont prévenus.
+ *
+ * Les écritures de ce poste font aussi avancer les compteurs. Celles
+ * déclarées par ownWrite() (commandes et lignes, voir CommandeDAO) ne
+ * comptent pas comme des modifications: le cube des ventes, déjà tenu à
+ * jour par ce poste, n'est pas jeté à chaque commande saisie. Les autres
+ * sont vues comme celles d'un autre poste: les écouteurs doivent supporter
+ * d'être prévenus d'une modification déjà vue.
+ */
+public final class ChangePoller {
+
+    /**
+     * Prévenu depuis le thread de scrutation, jamais depuis le thread Swing
+     */
+    public interface Listener {
+        void tablesChanged(Set<String> tables);
+    }
+
+    private static final long POLL_INTERVAL_MS = 2000;
+
+    private static final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<>();
+    private static Map<String, Long> seen = null;
+    // Écritures de ce poste pas encore vues par poll(): table -> (compteur avant -> compteur après)
+    private static final Map<String, Map<Long, Long>> own = new HashMap<>();
+    private static ScheduledExecutorService scheduler = null;
+
+    private ChangePoller() {
+    }
+
+    /**
+     * Lance la scrutation en arrière-plan (MySQL uniquement)
+     */
+    public static synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "change-poller");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                poll();
+            } catch (Exception e) {
+                System.err.println("Scrutation des modifications impossible: " + e.getMessage());
+            }
+        }, POLL_INTERVAL_MS, POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    public static void addListener(Listener listener) {
+        listeners.addIfAbsent(listener);
+    }
+
+    public static void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Lit et verrouille (FOR UPDATE) les compteurs des tables, dans la
+     * transaction d'écriture
+     *
+     * Appelée avant la première écriture sur ces tables puis juste avant le
+     * commit: les lignes de table_version restant verrouillées jusqu'au
+     * commit, aucun autre poste ne fait avancer les compteurs entre les deux
+     * lectures. Les deux relevés sont ensuite passés à ownWrite().
+     */
+    static Map<String, Long> lockVersions(Connection conn, String... tables) throws SQLException {
+        StringBuilder sql = new StringBuilder("SELECT table_name, version FROM table_version WHERE table_name IN (");
+        for (int i = 0; i < tables.length; i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        sql.append(") ORDER BY table_name FOR UPDATE");
+        Map<String, Long> versions = new HashMap<>();
+        try (PreparedStatement pstmt = conn.prepareStatement(sql.toString())) {
+            for (int i = 0; i < tables.length; i++) {
+                pstmt.setString(i + 1, tables[i]);
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    versions.put(rs.getString(1), rs.getLong(2));
+                }
+            }
+        }
+        return versions;
+    }
+
+    /**
+     * Déclare une écriture de ce poste, après son commit
+     *
+     * @param avant Compteurs relevés avant l'écriture (lockVersions)
+     * @param apres Compteurs relevés juste avant le commit (lockVersions)
+     */
+    static synchronized void ownWrite(Map<String, Long> avant, Map<String, Long> apres) {
+        for (Map.Entry<String, Long> entry : apres.entrySet()) {
+            Long debut = avant.get(entry.getKey());
+            if (debut != null && !debut.equals(entry.getValue())) {
+                own.computeIfAbsent(entry.getKey(), k -> new HashMap<>()).put(debut, entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Le compteur est passé de vu à version uniquement par des écritures de
+     * ce poste (enchaînées sans trou); les écritures déclarées dépassées sont oubliées
+     */
+    private static boolean isOwn(String table, Long vu, long version) {
+        Map<Long, Long> ecritures = own.get(table);
+        if (ecritures == null || vu == null) {
+            return false;
+        }
+        long v = vu;
+        while (v != version && ecritures.containsKey(v)) {
+            v = ecritures.remove(v);
+        }
+        ecritures.keySet().removeIf(debut -> debut < version);
+        return v == version;
+    }
+
+    /**
+     * Relit les compteurs et traite les tables modifiées depuis l'appel précédent
+     * (le premier appel ne fait que relever les compteurs)
+     *
+     * @return Les tables modifiées
+     */
+    static Set<String> poll() throws SQLException {
+        Map<String, Long> versions = new HashMap<>();
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement("SELECT table_name, version FROM table_version");
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                versions.put(rs.getString(1), rs.getLong(2));
+            }
+        }
+        Set<String> changed = new HashSet<>();
+        synchronized (ChangePoller.class) {
+            if (seen != null) {
+                for (Map.Entry<String, Long> entry : versions.entrySet()) {
+                    Long vu = seen.get(entry.getKey());
+                    if (!entry.getValue().equals(vu) && !isOwn(entry.getKey(), vu, entry.getValue())) {
+                        changed.add(entry.getKey());
+                    }
+                }
+            } else {
+                own.clear();
+            }
+            seen = versions;
+        }
+        if (changed.isEmpty()) {
+            return changed;
+        }
+        if (changed.contains("produit")) {
+            CatalogCache.invalidateProduits();
+        }
+        if (changed.contains("categorie")) {
+            CatalogCache.invalidateCategories();
+        }
+        if (changed.contains("commande") || changed.contains("ligne_commande")) {
+            SalesCube.invalidate();
+        }
+        Set<String> tables = Collections.unmodifiableSet(changed);
+        for (Listener listener : listeners) {
+            try {
+                listener.tablesChanged(tables);
+            } catch (RuntimeException e) {
+                System.err.println("Écouteur de modifications en erreur: " + e);
+            }
+        }
+        return tables;
+    }
+}
@@ -1,12 +1,27 @@
 package dao;
 
+import dao.cache.CatalogCache;
+import dao.cache.SalesCube;
+import models.ActiviteHoraire;
+import models.BilanVentes;
 import models.Commande;
+import models.LigneCommande;
+import models.MouvementStock;
+import models.VenteProduit;
 import utils.DatabaseConnection;
 
 import java.sql.*;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 import utils.AuditUtils;
 
 /**
@@ -14,106 +29,568 @@ import utils.AuditUtils;
  */
 public class CommandeDAO implements IGenericDAO<Commande> {
 
+    private static final TableMapping<Commande> MAPPING = Mappings.COMMANDE;
+    private static final TableMapping.Projection<Commande> COLONNES = MAPPING.all();
+    // Compteurs de table_version avancés par les écritures de commandes (voir ChangePoller.ownWrite)
+    private static final String[] TABLES_VENTES = {"commande", "ligne_commande"};
+
     @Override
     public void create(Commande commande) throws Exception {
-        String sql = "INSERT INTO commande (date_commande, etat, total) VALUES (?, ?, ?)";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-            pstmt.setDate(1, java.sql.Date.valueOf(commande.getDateCommande()));
-            pstmt.setString(2, commande.getEtat().toString());
-            pstmt.setDouble(3, commande.getTotal());
-            pstmt.executeUpdate();
+        stampCreation(commande);
+        Map<String, Long> versionsAvant;
+        Map<String, Long> versionsApres;
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                versionsAvant = ChangePoller.lockVersions(conn, TABLES_VENTES);
+                try (PreparedStatement pstmt = conn.prepareStatement(MAPPING.insertSql(), Statement.RETURN_GENERATED_KEYS)) {
+                    MAPPING.bind(pstmt, commande);
+                    pstmt.executeUpdate();
 
-            try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
-                if (generatedKeys.next()) {
-                    commande.setId(generatedKeys.getInt(1));
+                    try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
+                        if (generatedKeys.next()) {
+                            commande.setId(generatedKeys.getInt(1));
+                        }
+                    }
                 }
+                VentesJournalieres ventes = new VentesJournalieres();
+                ventes.add(commande);
+                ventes.flush(conn);
+                versionsApres = ChangePoller.lockVersions(conn, TABLES_VENTES);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
             }
-            try { AuditUtils.log("CREATE", "commande", commande.getId(), "system", "total="+commande.getTotal()); } catch (Exception ignore) {}
         }
+        ChangePoller.ownWrite(versionsAvant, versionsApres);
+        try { AuditUtils.log("CREATE", "commande", commande.getId(), "system", "total="+commande.getTotal()); } catch (Exception ignore) {}
     }
 
     @Override
     public Commande read(int id) throws Exception {
-        String sql = "SELECT * FROM commande WHERE id = ?";
+        String sql = COLONNES.select() + " WHERE id = ?";
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, id);
             try (ResultSet rs = pstmt.executeQuery()) {
                 if (rs.next()) {
-                    return new Commande(
-                            rs.getInt("id"),
-                            rs.getDate("date_commande").toLocalDate(),
-                            Commande.EtatCommande.valueOf(rs.getString("etat")),
-                            rs.getDouble("total")
-                    );
+                    return COLONNES.map(rs);
                 }
             }
         }
         return null;
     }
 
+    @Override
+    public Map<Integer, Commande> readByIds(Collection<Integer> ids) throws Exception {
+        return JdbcBatch.readByIds(MAPPING, ids);
+    }
+
     @Override
     public List<Commande> readAll() throws Exception {
         List<Commande> commandes = new ArrayList<>();
-        String sql = "SELECT * FROM commande ORDER BY date_commande DESC";
-        try (Connection conn = DatabaseConnection.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
+        String sql = COLONNES.select() + " ORDER BY date_commande DESC";
+        try (Connection conn = DatabaseConnection.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
             while (rs.next()) {
-                commandes.add(new Commande(
-                        rs.getInt("id"),
-                        rs.getDate("date_commande").toLocalDate(),
-                        Commande.EtatCommande.valueOf(rs.getString("etat")),
-                        rs.getDouble("total")
-                ));
+                commandes.add(COLONNES.map(rs));
             }
         }
         return commandes;
     }
 
+    /**
+     * Met à jour la commande, seulement si elle n'a pas changé en base depuis sa lecture
+     * (même version); sa version est alors incrémentée. Le résumé
+     * ventes_journalieres est mis à jour dans la même transaction. Une
+     * commande validée qui quitte l'état VALIDEE (annulation) remet ses
+     * produits en stock, avec un mouvement ENTREE par produit (voir restock).
+     *
+     * @throws OptimisticLockException si un autre poste l'a modifiée ou supprimée entre-temps
+     */
     @Override
     public void update(Commande commande) throws Exception {
-        String sql = "UPDATE commande SET date_commande = ?, etat = ?, total = ? WHERE id = ?";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setDate(1, java.sql.Date.valueOf(commande.getDateCommande()));
-            pstmt.setString(2, commande.getEtat().toString());
-            pstmt.setDouble(3, commande.getTotal());
-            pstmt.setInt(4, commande.getId());
-            pstmt.executeUpdate();
+        SalesCube.beginUpdate();
+        try {
+            Commande avant;
+            List<VenteProduit> annulees = null;
+            List<Integer> mouvementIds = new ArrayList<>();
+            Map<String, Long> versionsAvant;
+            Map<String, Long> versionsApres;
+            try (Connection conn = DatabaseConnection.getConnection()) {
+                conn.setAutoCommit(false);
+                try {
+                    avant = lock(conn, List.of(commande.getId())).get(commande.getId());
+                    versionsAvant = ChangePoller.lockVersions(conn, TABLES_VENTES);
+                    try (PreparedStatement pstmt = conn.prepareStatement(MAPPING.updateSql())) {
+                        MAPPING.bindWithId(pstmt, commande, commande.getId());
+                        if (pstmt.executeUpdate() == 0) {
+                            throw new OptimisticLockException("commande", commande.getId(), commande.getVersion());
+                        }
+                    }
+                    if (isValidee(avant) && !isValidee(commande)) {
+                        List<VenteProduit> retirees = readVentes(conn, commande.getId(), avant.getDateCommande());
+                        mouvementIds = restock(conn, Map.of(commande.getId(), retirees));
+                        if (isCancellation(avant, commande)) {
+                            annulees = retirees;
+                        }
+                    }
+                    VentesJournalieres ventes = new VentesJournalieres();
+                    ventes.remove(avant);
+                    ventes.add(commande);
+                    ventes.flush(conn);
+                    versionsApres = ChangePoller.lockVersions(conn, TABLES_VENTES);
+                    conn.commit();
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                }
+            }
+            ChangePoller.ownWrite(versionsAvant, versionsApres);
+            if (!mouvementIds.isEmpty()) {
+                CatalogCache.invalidateProduits();
+            }
+            if (annulees != null) {
+                SalesCube.remove(annulees);
+            } else if (isValidee(avant) || isValidee(commande)) {
+                SalesCube.invalidate();
+            }
+            commande.setVersion(commande.getVersion() + 1);
+            try { AuditUtils.log("UPDATE", "commande", commande.getId(), "system", "total="+commande.getTotal()); } catch (Exception ignore) {}
+            if (!mouvementIds.isEmpty()) {
+                try { AuditUtils.logBatch("CREATE", "mouvement_stock", mouvementIds, "system"); } catch (Exception ignore) {}
+            }
+        } finally {
+            SalesCube.endUpdate();
         }
-        try { AuditUtils.log("UPDATE", "commande", commande.getId(), "system", "total="+commande.getTotal()); } catch (Exception ignore) {}
     }
 
     @Override
     public void delete(int id) throws Exception {
-        String sql = "DELETE FROM commande WHERE id = ?";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setInt(1, id);
-            pstmt.executeUpdate();
-        }
+        deleteAndSummarize(List.of(id));
         try { AuditUtils.log("DELETE", "commande", id, "system", null); } catch (Exception ignore) {}
     }
 
+    @Override
+    public List<Integer> createAll(List<Commande> commandes) throws Exception {
+        for (Commande commande : commandes) {
+            stampCreation(commande);
+        }
+        List<Integer> ids;
+        Map<String, Long> versionsAvant;
+        Map<String, Long> versionsApres;
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                versionsAvant = ChangePoller.lockVersions(conn, TABLES_VENTES);
+                ids = JdbcBatch.insert(conn, MAPPING.insertSql(), commandes, MAPPING::bind);
+                VentesJournalieres ventes = new VentesJournalieres();
+                for (Commande commande : commandes) {
+                    ventes.add(commande);
+                }
+                ventes.flush(conn);
+                versionsApres = ChangePoller.lockVersions(conn, TABLES_VENTES);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+        ChangePoller.ownWrite(versionsAvant, versionsApres);
+        JdbcBatch.setIds(commandes, ids, Commande::setId);
+        try { AuditUtils.logBatch("CREATE", "commande", ids, "system"); } catch (Exception ignore) {}
+        return ids;
+    }
+
+    @Override
+    public void updateAll(List<Commande> commandes) throws Exception {
+        if (commandes.isEmpty()) {
+            return;
+        }
+        boolean validees = false;
+        List<Integer> mouvementIds;
+        Map<String, Long> versionsAvant;
+        Map<String, Long> versionsApres;
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                Map<Integer, Commande> avant = lock(conn, idsOf(commandes));
+                versionsAvant = ChangePoller.lockVersions(conn, TABLES_VENTES);
+                JdbcBatch.updateVersioned(conn, MAPPING, commandes, Commande::getId);
+                VentesJournalieres ventes = new VentesJournalieres();
+                Map<Integer, List<VenteProduit>> retirees = new TreeMap<>();
+                for (Commande commande : commandes) {
+                    Commande ancienne = avant.remove(commande.getId());
+                    validees |= isValidee(ancienne) || isValidee(commande);
+                    if (isValidee(ancienne) && !isValidee(commande)) {
+                        retirees.put(commande.getId(), readVentes(conn, commande.getId(), ancienne.getDateCommande()));
+                    }
+                    ventes.remove(ancienne);
+                    ventes.add(commande);
+                }
+                ventes.flush(conn);
+                mouvementIds = restock(conn, retirees);
+                versionsApres = ChangePoller.lockVersions(conn, TABLES_VENTES);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+        ChangePoller.ownWrite(versionsAvant, versionsApres);
+        if (!mouvementIds.isEmpty()) {
+            CatalogCache.invalidateProduits();
+        }
+        if (validees) {
+            SalesCube.invalidate();
+        }
+        for (Commande commande : commandes) {
+            commande.setVersion(commande.getVersion() + 1);
+        }
+        try { AuditUtils.logBatch("UPDATE", "commande", idsOf(commandes), "system"); } catch (Exception ignore) {}
+        if (!mouvementIds.isEmpty()) {
+            try { AuditUtils.logBatch("CREATE", "mouvement_stock", mouvementIds, "system"); } catch (Exception ignore) {}
+        }
+    }
+
+    @Override
+    public void deleteAll(List<Integer> ids) throws Exception {
+        if (ids.isEmpty()) {
+            return;
+        }
+        deleteAndSummarize(ids);
+        try { AuditUtils.logBatch("DELETE", "commande", ids, "system"); } catch (Exception ignore) {}
+    }
+
+    /**
+     * Supprime les commandes et retire leur contribution au résumé, en une transaction
+     */
+    private static void deleteAndSummarize(List<Integer> ids) throws SQLException {
+        boolean validees = false;
+        Map<String, Long> versionsAvant;
+        Map<String, Long> versionsApres;
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                Map<Integer, Commande> avant = lock(conn, ids);
+                versionsAvant = ChangePoller.lockVersions(conn, TABLES_VENTES);
+                JdbcBatch.deleteByIds(conn, MAPPING, ids);
+                VentesJournalieres ventes = new VentesJournalieres();
+                for (Commande commande : avant.values()) {
+                    validees |= isValidee(commande);
+                    ventes.remove(commande);
+                }
+                ventes.flush(conn);
+                versionsApres = ChangePoller.lockVersions(conn, TABLES_VENTES);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+        ChangePoller.ownWrite(versionsAvant, versionsApres);
+        if (validees) {
+            SalesCube.invalidate();
+        }
+    }
+
+    /**
+     * Lit et verrouille (FOR UPDATE) les commandes telles qu'elles sont en base,
+     * avant une écriture qui doit reporter leur changement dans le résumé
+     */
+    private static Map<Integer, Commande> lock(Connection conn, Collection<Integer> ids) throws SQLException {
+        return JdbcBatch.readByIds(conn, MAPPING, ids, true);
+    }
+
+    /**
+     * Heure courante, à la seconde (colonnes created_at et validated_at)
+     */
+    protected static LocalDateTime maintenant() {
+        return LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+    }
+
+    /**
+     * Horodate une commande à créer, sauf si l'appelant a fixé son heure (ex: import)
+     */
+    protected static void stampCreation(Commande commande) {
+        if (commande.getCreatedAt() == null) {
+            commande.setCreatedAt(maintenant());
+        }
+    }
+
+    protected static boolean isValidee(Commande commande) {
+        return commande != null && commande.getEtat() == Commande.EtatCommande.VALIDEE;
+    }
+
+    /**
+     * Commande validée qui quitte l'état VALIDEE sans changer de jour: ses
+     * ventes sont retirées du cube (SalesCube.remove) au lieu de le recharger
+     */
+    protected static boolean isCancellation(Commande avant, Commande apres) {
+        return isValidee(avant) && !isValidee(apres) && avant.getDateCommande().equals(apres.getDateCommande());
+    }
+
+    /**
+     * Ventes d'une commande par produit, avec la catégorie du produit
+     */
+    private static List<VenteProduit> readVentes(Connection conn, int commandeId, LocalDate jour) throws SQLException {
+        String sql = "SELECT lc.produit_id, p.categorie_id, SUM(lc.quantite), SUM(lc.montant_ligne) " +
+                "FROM ligne_commande lc JOIN produit p ON p.id = lc.produit_id " +
+                "WHERE lc.commande_id = ? GROUP BY lc.produit_id, p.categorie_id";
+        List<VenteProduit> ventes = new ArrayList<>();
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, commandeId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    ventes.add(new VenteProduit(jour, rs.getInt(2), rs.getInt(1), rs.getLong(3), rs.getDouble(4)));
+                }
+            }
+        }
+        return ventes;
+    }
+
+    protected static List<Integer> idsOf(List<Commande> commandes) {
+        List<Integer> ids = new ArrayList<>(commandes.size());
+        for (Commande commande : commandes) {
+            ids.add(commande.getId());
+        }
+        return ids;
+    }
+
+    /**
+     * Ajoute des lignes à une commande et augmente son total, en une transaction
+     *
+     * Les lignes sont insérées par lot, puis le total est mis à jour
+     * relativement (total = total + montant des lignes) sur la même connexion:
+     * deux postes qui ajoutent des lignes à la même commande ne peuvent pas
+     * écraser le total l'un de l'autre. Le résumé ventes_journalieres suit
+     * (si la commande est déjà VALIDEE). Tout est appliqué, ou rien.
+     *
+     * @return Les ids des lignes créées, dans l'ordre de la liste
+     * @throws SQLException si la commande n'existe pas
+     */
+    public List<Integer> addLignes(int commandeId, List<LigneCommande> lignes) throws Exception {
+        if (lignes.isEmpty()) {
+            return new ArrayList<>();
+        }
+        double montant = 0;
+        for (LigneCommande ligne : lignes) {
+            ligne.setCommandeId(commandeId);
+            montant += ligne.getMontantLigne();
+        }
+        TableMapping<LigneCommande> lignesMapping = Mappings.LIGNE_COMMANDE;
+        List<Integer> ids;
+        boolean validee;
+        Map<String, Long> versionsAvant;
+        Map<String, Long> versionsApres;
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                Commande commande = lock(conn, List.of(commandeId)).get(commandeId);
+                if (commande == null) {
+                    throw new SQLException("Commande introuvable: " + commandeId);
+                }
+                versionsAvant = ChangePoller.lockVersions(conn, TABLES_VENTES);
+                ids = JdbcBatch.insert(conn, lignesMapping.insertSql(), lignes, lignesMapping::bind);
+                try (PreparedStatement pstmt = conn.prepareStatement("UPDATE commande SET total = total + ?, version = version + 1 WHERE id = ?")) {
+                    pstmt.setDouble(1, montant);
+                    pstmt.setInt(2, commandeId);
+                    pstmt.executeUpdate();
+                }
+                VentesJournalieres ventes = new VentesJournalieres();
+                ventes.remove(commande);
+                commande.setTotal(commande.getTotal() + montant);
+                ventes.add(commande);
+                ventes.flush(conn);
+                versionsApres = ChangePoller.lockVersions(conn, TABLES_VENTES);
+                conn.commit();
+                validee = isValidee(commande);
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+        ChangePoller.ownWrite(versionsAvant, versionsApres);
+        if (validee) {
+            SalesCube.invalidate();
+        }
+        JdbcBatch.setIds(lignes, ids, LigneCommande::setId);
+        try { AuditUtils.logBatch("CREATE", "ligne_commande", ids, "system"); } catch (Exception ignore) {}
+        try { AuditUtils.log("UPDATE", "commande", commandeId, "system", "total+="+montant); } catch (Exception ignore) {}
+        return ids;
+    }
+
+    /**
+     * Valide une commande en cours et sort du stock les produits vendus, en une transaction
+     *
+     * Le nombre d'allers-retours est fixe, quel que soit le nombre de lignes:
+     * - passage à VALIDEE (seulement si la commande est EN_COURS), heure de
+     *   validation (validated_at) et report
+     *   du total dans ventes_journalieres
+     * - quantités et montants des lignes, regroupés par produit (ajoutés
+     *   ensuite au cube des ventes, SalesCube)
+     * - verrouillage des produits (SELECT ... FOR UPDATE) par id croissant: deux
+     *   validations simultanées prennent leurs verrous dans le même ordre et ne
+     *   peuvent pas s'interbloquer
+     * - diminution des stocks et insertion des mouvements SORTIE, chacun par lot
+     *
+     * @throws StockInsuffisantException si un produit n'a pas assez de stock (rien n'est modifié)
+     * @throws SQLException si la commande n'existe pas ou n'est plus en cours
+     */
+    public void validate(int commandeId) throws Exception {
+        SalesCube.beginUpdate();
+        try {
+            List<MouvementStock> sorties = new ArrayList<>();
+            List<Integer> mouvementIds;
+            List<VenteProduit> vendues;
+            Map<String, Long> versionsAvant;
+            Map<String, Long> versionsApres;
+            try (Connection conn = DatabaseConnection.getConnection()) {
+                conn.setAutoCommit(false);
+                try {
+                    Commande commande = lock(conn, List.of(commandeId)).get(commandeId);
+                    if (commande == null || commande.getEtat() != Commande.EtatCommande.EN_COURS) {
+                        throw new SQLException("Commande introuvable ou déjà traitée: " + commandeId);
+                    }
+                    versionsAvant = ChangePoller.lockVersions(conn, TABLES_VENTES);
+                    try (PreparedStatement pstmt = conn.prepareStatement(
+                            "UPDATE commande SET etat = 'VALIDEE', validated_at = ?, version = version + 1 WHERE id = ?")) {
+                        pstmt.setTimestamp(1, Timestamp.valueOf(maintenant()));
+                        pstmt.setInt(2, commandeId);
+                        pstmt.executeUpdate();
+                    }
+                    VentesJournalieres ventes = new VentesJournalieres();
+                    ventes.remove(commande);
+                    commande.setEtat(Commande.EtatCommande.VALIDEE);
+                    ventes.add(commande);
+                    ventes.flush(conn);
+
+                    vendues = readVentes(conn, commandeId, commande.getDateCommande());
+                    Map<Integer, Integer> quantites = new TreeMap<>();
+                    for (VenteProduit vente : vendues) {
+                        quantites.put(vente.getProduitId(), (int) vente.getQuantite());
+                    }
+
+                    if (!quantites.isEmpty()) {
+                        lockAndCheckStock(conn, quantites);
+                        JdbcBatch.execute(conn, "UPDATE produit SET stock_actuel = stock_actuel - ?, version = version + 1 WHERE id = ?",
+                                new ArrayList<>(quantites.entrySet()), (pstmt, entry) -> {
+                                    pstmt.setInt(1, entry.getValue());
+                                    pstmt.setInt(2, entry.getKey());
+                                });
+                        for (Map.Entry<Integer, Integer> entry : quantites.entrySet()) {
+                            sorties.add(new MouvementStock(0, entry.getKey(), MouvementStock.TypeMouvement.SORTIE,
+                                    entry.getValue(), LocalDate.now(), "Commande #" + commandeId));
+                        }
+                    }
+                    TableMapping<MouvementStock> mouvementsMapping = Mappings.MOUVEMENT_STOCK;
+                    mouvementIds = JdbcBatch.insert(conn, mouvementsMapping.insertSql(), sorties, mouvementsMapping::bind);
+                    versionsApres = ChangePoller.lockVersions(conn, TABLES_VENTES);
+                    conn.commit();
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                }
+            }
+            ChangePoller.ownWrite(versionsAvant, versionsApres);
+            JdbcBatch.setIds(sorties, mouvementIds, MouvementStock::setId);
+            CatalogCache.invalidateProduits();
+            SalesCube.record(vendues);
+            try { AuditUtils.log("UPDATE", "commande", commandeId, "system", "etat=VALIDEE"); } catch (Exception ignore) {}
+            if (!mouvementIds.isEmpty()) {
+                try { AuditUtils.logBatch("CREATE", "mouvement_stock", mouvementIds, "system"); } catch (Exception ignore) {}
+            }
+        } finally {
+            SalesCube.endUpdate();
+        }
+    }
+
+    /**
+     * Verrouille les produits par id croissant et vérifie que leur stock couvre les quantités
+     */
+    private static void lockAndCheckStock(Connection conn, Map<Integer, Integer> quantites) throws SQLException {
+        Map<Integer, Integer> stocks = lockProduits(conn, quantites.keySet());
+        for (Map.Entry<Integer, Integer> entry : quantites.entrySet()) {
+            int stock = stocks.getOrDefault(entry.getKey(), 0);
+            if (stock < entry.getValue()) {
+                throw new StockInsuffisantException(entry.getKey(), stock, entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Verrouille (SELECT ... FOR UPDATE) les produits par id croissant
+     *
+     * @param produitIds Ids triés (TreeMap.keySet)
+     * @return Le stock de chaque produit trouvé
+     */
+    private static Map<Integer, Integer> lockProduits(Connection conn, Collection<Integer> produitIds) throws SQLException {
+        StringBuilder sql = new StringBuilder("SELECT id, stock_actuel FROM produit WHERE id IN (");
+        for (int i = 0; i < produitIds.size(); i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        sql.append(") ORDER BY id FOR UPDATE");
+        Map<Integer, Integer> stocks = new HashMap<>();
+        try (PreparedStatement pstmt = conn.prepareStatement(sql.toString())) {
+            int i = 1;
+            for (Integer produitId : produitIds) {
+                pstmt.setInt(i++, produitId);
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    stocks.put(rs.getInt(1), rs.getInt(2));
+                }
+            }
+        }
+        return stocks;
+    }
+
+    /**
+     * Remet en stock les produits de commandes validées qui quittent l'état
+     * VALIDEE, dans la transaction de leur mise à jour: produits verrouillés
+     * par id croissant (même ordre que validate), stocks augmentés et un
+     * mouvement ENTREE par commande et par produit, chacun par lot
+     *
+     * @param retirees Ventes de chaque commande (readVentes), par id de commande
+     * @return Les ids des mouvements créés
+     */
+    private static List<Integer> restock(Connection conn, Map<Integer, List<VenteProduit>> retirees) throws SQLException {
+        Map<Integer, Integer> quantites = new TreeMap<>();
+        List<MouvementStock> entrees = new ArrayList<>();
+        for (Map.Entry<Integer, List<VenteProduit>> commande : retirees.entrySet()) {
+            for (VenteProduit vente : commande.getValue()) {
+                quantites.merge(vente.getProduitId(), (int) vente.getQuantite(), Integer::sum);
+                entrees.add(new MouvementStock(0, vente.getProduitId(), MouvementStock.TypeMouvement.ENTREE,
+                        (int) vente.getQuantite(), LocalDate.now(), "Annulation commande #" + commande.getKey()));
+            }
+        }
+        if (quantites.isEmpty()) {
+            return new ArrayList<>();
+        }
+        lockProduits(conn, quantites.keySet());
+        JdbcBatch.execute(conn, "UPDATE produit SET stock_actuel = stock_actuel + ?, version = version + 1 WHERE id = ?",
+                new ArrayList<>(quantites.entrySet()), (pstmt, entry) -> {
+                    pstmt.setInt(1, entry.getValue());
+                    pstmt.setInt(2, entry.getKey());
+                });
+        TableMapping<MouvementStock> mouvementsMapping = Mappings.MOUVEMENT_STOCK;
+        return JdbcBatch.insert(conn, mouvementsMapping.insertSql(), entrees, mouvementsMapping::bind);
+    }
+
     /**
      * Récupère les commandes du jour
      */
     public List<Commande> readByDate(LocalDate date) throws Exception {
         List<Commande> commandes = new ArrayList<>();
-        String sql = "SELECT * FROM commande WHERE date_commande = ? ORDER BY id DESC";
-        try (Connection conn = DatabaseConnection.getConnection();
+        String sql = COLONNES.select() + " WHERE date_commande = ? ORDER BY id DESC";
+        try (Connection conn = DatabaseConnection.getReadConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setDate(1, java.sql.Date.valueOf(date));
             try (ResultSet rs = pstmt.executeQuery()) {
                 while (rs.next()) {
-                    commandes.add(new Commande(
-                            rs.getInt("id"),
-                            rs.getDate("date_commande").toLocalDate(),
-                            Commande.EtatCommande.valueOf(rs.getString("etat")),
-                            rs.getDouble("total")
-                    ));
+                    commandes.add(COLONNES.map(rs));
                 }
             }
         }
@@ -124,34 +601,206 @@ public class CommandeDAO implements IGenericDAO<Commande> {
      * Calcule le chiffre d'affaires pour une date donnée
      */
     public double calculateTotalSalesByDate(LocalDate date) throws Exception {
-        String sql = "SELECT COALESCE(SUM(total), 0) as total FROM commande WHERE date_commande = ? AND etat = 'VALIDEE'";
-        try (Connection conn = DatabaseConnection.getConnection();
+        return calculateTotalSalesBetween(date, date);
+    }
+
+    /**
+     * Calcule le chiffre d'affaires pour une période (une ligne de ventes_journalieres par jour)
+     */
+    public double calculateTotalSalesBetween(LocalDate dateDebut, LocalDate dateFin) throws Exception {
+        return readBilanVentes(dateDebut, dateFin).getChiffreAffaires();
+    }
+
+    /**
+     * Cumule le résumé ventes_journalieres sur une période
+     *
+     * @param dateDebut Premier jour inclus, null pour ne pas borner
+     * @param dateFin Dernier jour inclus, null pour ne pas borner
+     */
+    public BilanVentes readBilanVentes(LocalDate dateDebut, LocalDate dateFin) throws Exception {
+        String sql = "SELECT COALESCE(SUM(nb_commandes), 0), COALESCE(SUM(chiffre_affaires), 0), COALESCE(SUM(nb_annulees), 0) " +
+                "FROM ventes_journalieres WHERE jour >= ? AND jour <= ?";
+        try (Connection conn = DatabaseConnection.getReadConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setDate(1, java.sql.Date.valueOf(date));
+            pstmt.setDate(1, java.sql.Date.valueOf(dateDebut != null ? dateDebut : LocalDate.of(1, 1, 1)));
+            pstmt.setDate(2, java.sql.Date.valueOf(dateFin != null ? dateFin : LocalDate.of(9999, 12, 31)));
             try (ResultSet rs = pstmt.executeQuery()) {
                 if (rs.next()) {
-                    return rs.getDouble("total");
+                    return new BilanVentes(rs.getInt(1), rs.getDouble(2), rs.getInt(3));
                 }
             }
         }
-        return 0;
+        return new BilanVentes(0, 0, 0);
     }
 
     /**
-     * Calcule le chiffre d'affaires pour une période
+     * Activité des commandes heure par heure sur une période
+     *
+     * Deux requêtes, chacune servie par un index couvrant (voir
+     * utils.MigrationRunner): les mois de commandes ne sont jamais lus
+     * ligne à ligne côté Java.
+     * - nombre de commandes créées par heure (created_at)
+     * - par heure de validation (validated_at), chiffre d'affaires des
+     *   commandes VALIDEE et médiane du délai création -> validation:
+     *   ROW_NUMBER() classe les délais de chaque heure, la médiane est la
+     *   moyenne du ou des deux rangs du milieu (MySQL 8)
+     * Les heures sont stockées en UTC (serverTimezone=UTC): la base ne
+     * connaît pas l'heure locale. Chaque commande est donc classée par son
+     * nombre d'heures écoulées depuis le début de la première heure locale
+     * de la période, reconverti en heure locale côté Java (voir heureLocale),
+     * comme le fait le stockage en mémoire.
+     * Les commandes antérieures à l'ajout des colonnes (heures NULL) ne sont pas comptées.
+     *
+     * @param debut Début de la période (inclus)
+     * @param fin Fin de la période (exclue)
+     * @return Une entrée par heure ayant au moins une commande créée ou validée, par heure croissante
      */
-    public double calculateTotalSalesBetween(LocalDate dateDebut, LocalDate dateFin) throws Exception {
-        String sql = "SELECT COALESCE(SUM(total), 0) as total FROM commande WHERE date_commande BETWEEN ? AND ? AND etat = 'VALIDEE'";
-        try (Connection conn = DatabaseConnection.getConnection();
+    public List<ActiviteHoraire> readActiviteHoraire(LocalDateTime debut, LocalDateTime fin) throws Exception {
+        // Rang de l'heure depuis l'origine; l'origine est convertie en UTC par le pilote, comme les colonnes à l'écriture
+        String creees = "SELECT FLOOR(TIMESTAMPDIFF(SECOND, ?, created_at) / 3600) AS heure, COUNT(*) " +
+                "FROM commande WHERE created_at >= ? AND created_at < ? GROUP BY heure";
+        String validees = "SELECT heure, SUM(total), AVG(CASE WHEN rang IN (FLOOR((n + 1) / 2), CEIL((n + 1) / 2)) THEN delai END) " +
+                "FROM (SELECT heure, total, delai, " +
+                // Délais inconnus (created_at NULL) classés en dernier, hors des n comptés
+                "ROW_NUMBER() OVER (PARTITION BY heure ORDER BY delai IS NULL, delai) AS rang, " +
+                "COUNT(delai) OVER (PARTITION BY heure) AS n " +
+                "FROM (SELECT FLOOR(TIMESTAMPDIFF(SECOND, ?, validated_at) / 3600) AS heure, total, " +
+                "TIMESTAMPDIFF(SECOND, created_at, validated_at) AS delai " +
+                "FROM commande WHERE validated_at >= ? AND validated_at < ? AND etat = 'VALIDEE') c) v " +
+                "GROUP BY heure";
+        ZonedDateTime origine = debut.truncatedTo(ChronoUnit.HOURS).atZone(ZoneId.systemDefault());
+        Map<LocalDateTime, Integer> nbCommandes = new TreeMap<>();
+        Map<LocalDateTime, double[]> ventes = new TreeMap<>();
+        try (Connection conn = DatabaseConnection.getReadConnection()) {
+            try (PreparedStatement pstmt = conn.prepareStatement(creees)) {
+                pstmt.setTimestamp(1, Timestamp.valueOf(origine.toLocalDateTime()));
+                pstmt.setTimestamp(2, Timestamp.valueOf(debut));
+                pstmt.setTimestamp(3, Timestamp.valueOf(fin));
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        nbCommandes.merge(heureLocale(origine, rs.getLong(1)), rs.getInt(2), Integer::sum);
+                    }
+                }
+            }
+            try (PreparedStatement pstmt = conn.prepareStatement(validees)) {
+                pstmt.setTimestamp(1, Timestamp.valueOf(origine.toLocalDateTime()));
+                pstmt.setTimestamp(2, Timestamp.valueOf(debut));
+                pstmt.setTimestamp(3, Timestamp.valueOf(fin));
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        double mediane = rs.getDouble(3);
+                        if (rs.wasNull()) {
+                            mediane = Double.NaN;
+                        }
+                        ventes.put(heureLocale(origine, rs.getLong(1)), new double[]{rs.getDouble(2), mediane});
+                    }
+                }
+            }
+        }
+        return activiteHoraire(nbCommandes, ventes);
+    }
+
+    /**
+     * Heure locale de la rang-ième heure écoulée depuis l'origine (début
+     * d'une heure locale), décomptée en temps réel: correcte aussi pour
+     * les fuseaux décalés d'une demi-heure et aux changements d'heure
+     */
+    protected static LocalDateTime heureLocale(ZonedDateTime origine, long rang) {
+        return origine.plusHours(rang).toLocalDateTime();
+    }
+
+    /**
+     * Fusionne les commandes créées et les ventes par heure
+     *
+     * @param ventes Par heure: chiffre d'affaires, médiane du délai (NaN si inconnue)
+     */
+    protected static List<ActiviteHoraire> activiteHoraire(Map<LocalDateTime, Integer> nbCommandes, Map<LocalDateTime, double[]> ventes) {
+        TreeMap<LocalDateTime, ActiviteHoraire> heures = new TreeMap<>();
+        for (Map.Entry<LocalDateTime, Integer> entry : nbCommandes.entrySet()) {
+            heures.put(entry.getKey(), new ActiviteHoraire(entry.getKey(), entry.getValue(), 0, null));
+        }
+        for (Map.Entry<LocalDateTime, double[]> entry : ventes.entrySet()) {
+            double[] vente = entry.getValue();
+            heures.put(entry.getKey(), new ActiviteHoraire(entry.getKey(), nbCommandes.getOrDefault(entry.getKey(), 0),
+                    vente[0], Double.isNaN(vente[1]) ? null : vente[1]));
+        }
+        return new ArrayList<>(heures.values());
+    }
+
+    /**
+     * Lit une page de commandes triées par (date_commande, id)
+     *
+     * @param cursor Curseur retourné par la page précédente, null pour la première
+     * @param limit Nombre maximal de commandes dans la page
+     * @param sort Sens de tri
+     */
+    public Page<Commande> readPage(String cursor, int limit, Page.Sort sort) throws Exception {
+        Page.checkLimit(limit);
+        Page.Cursor after = Page.Cursor.decode(cursor);
+        String sql = COLONNES.select()
+                + (after != null ? " WHERE " + Page.seekPredicate("date_commande", sort) : "")
+                + " ORDER BY " + Page.orderBy("date_commande", sort) + " LIMIT ?";
+        List<Commande> commandes = new ArrayList<>();
+        try (Connection conn = DatabaseConnection.getReadConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setDate(1, java.sql.Date.valueOf(dateDebut));
-            pstmt.setDate(2, java.sql.Date.valueOf(dateFin));
+            int i = 1;
+            if (after != null) {
+                java.sql.Date key = java.sql.Date.valueOf(LocalDate.parse(after.getKey()));
+                pstmt.setDate(i++, key);
+                pstmt.setDate(i++, key);
+                pstmt.setInt(i++, after.getId());
+            }
+            pstmt.setInt(i, limit + 1);
             try (ResultSet rs = pstmt.executeQuery()) {
-                if (rs.next()) {
-                    return rs.getDouble("total");
+                while (rs.next()) {
+                    commandes.add(COLONNES.map(rs));
                 }
             }
         }
-        return 0;
+        return Page.of(commandes, limit, c -> Page.encodeCursor(c.getDateCommande(), c.getId()));
+    }
+
+    /**
+     * Parcourt toutes les commandes en flux, sans les charger en mémoire
+     */
+    public void forEach(RowConsumer<Commande> action) throws Exception {
+        forEach(action, false);
+    }
+
+    /**
+     * Parcourt toutes les commandes en flux, par id croissant
+     *
+     * @param action Action appelée pour chaque commande
+     * @param reuseRow Si vrai, le même objet est rempli à nouveau pour chaque
+     *                 ligne (aucune allocation par ligne): l'action ne doit pas le conserver
+     */
+    public void forEach(RowConsumer<Commande> action, boolean reuseRow) throws Exception {
+        String sql = COLONNES.select() + " ORDER BY id";
+        try (Connection conn = DatabaseConnection.getReadConnection();
+             PreparedStatement pstmt = DatabaseConnection.prepareStreaming(conn, sql);
+             ResultSet rs = pstmt.executeQuery()) {
+            Commande flyweight = reuseRow ? new Commande() : null;
+            while (rs.next()) {
+                action.accept(COLONNES.fill(reuseRow ? flyweight : new Commande(), rs, 1));
+            }
+        }
+    }
+
+    /**
+     * Parcourt en flux les ventes (lignes des commandes VALIDEE) cumulées
+     * par jour et par produit, avec la catégorie du produit (chargement de SalesCube)
+     */
+    public void forEachVente(RowConsumer<VenteProduit> action) throws Exception {
+        String sql = "SELECT c.date_commande, p.categorie_id, lc.produit_id, SUM(lc.quantite), SUM(lc.montant_ligne) " +
+                "FROM ligne_commande lc JOIN commande c ON c.id = lc.commande_id JOIN produit p ON p.id = lc.produit_id " +
+                "WHERE c.etat = 'VALIDEE' GROUP BY c.date_commande, p.categorie_id, lc.produit_id";
+        try (Connection conn = DatabaseConnection.getReadConnection();
+             PreparedStatement pstmt = DatabaseConnection.prepareStreaming(conn, sql);
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                action.accept(new VenteProduit(rs.getDate(1).toLocalDate(), rs.getInt(2), rs.getInt(3),
+                        rs.getLong(4), rs.getDouble(5)));
+            }
+        }
     }
 }
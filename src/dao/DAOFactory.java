@@ -0,0 +1,92 @@
+package dao;
+
+import dao.cache.CachedCategorieDAO;
+import dao.cache.CachedProduitDAO;
+import dao.memory.MemoryCategorieDAO;
+import dao.memory.MemoryCommandeDAO;
+import dao.memory.MemoryHistoriqueDAO;
+import dao.memory.MemoryLigneCommandeDAO;
+import dao.memory.MemoryMouvementStockDAO;
+import dao.memory.MemoryProduitDAO;
+import dao.memory.MemoryStatsDAO;
+import dao.memory.MemoryStore;
+import dao.memory.MemoryUtilisateurDAO;
+import utils.AuditUtils;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Fabrique des DAO de l'application
+ *
+ * Par défaut les DAO utilisent MySQL (DatabaseConnection). Un appel à
+ * useMemoryBackend() au démarrage bascule toute l'application sur le
+ * stockage embarqué en mémoire (dao.memory.MemoryStore), sans réseau.
+ *
+ * Avec MySQL, les DAO du catalogue (produits, catégories) sont servis par
+ * dao.cache.CatalogCache; le stockage en mémoire n'en a pas besoin.
+ */
+public class DAOFactory {
+
+    private static MemoryStore memoryStore = null;
+
+    private DAOFactory() {
+    }
+
+    /**
+     * Active le stockage en mémoire, persisté dans le dossier donné
+     * Doit être appelé avant la création des fenêtres.
+     */
+    public static synchronized void useMemoryBackend(Path directory) throws IOException {
+        if (memoryStore != null) {
+            return;
+        }
+        MemoryStore store = MemoryStore.open(directory);
+        memoryStore = store;
+        AuditUtils.setSink(store::appendAudit);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                store.close();
+            } catch (IOException e) {
+                System.err.println("Erreur fermeture du stockage mémoire: " + e.getMessage());
+            }
+        }, "memory-store-shutdown"));
+    }
+
+    public static synchronized boolean isMemoryBackend() {
+        return memoryStore != null;
+    }
+
+    public static synchronized UtilisateurDAO getUtilisateurDAO() {
+        return memoryStore != null ? new MemoryUtilisateurDAO(memoryStore) : new UtilisateurDAO();
+    }
+
+    public static synchronized CategorieDAO getCategorieDAO() {
+        return memoryStore != null ? new MemoryCategorieDAO(memoryStore) : new CachedCategorieDAO(new CategorieDAO());
+    }
+
+    public static synchronized ProduitDAO getProduitDAO() {
+        return memoryStore != null ? new MemoryProduitDAO(memoryStore)
+                : new CachedProduitDAO(new ProduitDAO(), new CachedCategorieDAO(new CategorieDAO()));
+    }
+
+    public static synchronized CommandeDAO getCommandeDAO() {
+        return memoryStore != null ? new MemoryCommandeDAO(memoryStore) : new CommandeDAO();
+    }
+
+    public static synchronized LigneCommandeDAO getLigneCommandeDAO() {
+        return memoryStore != null ? new MemoryLigneCommandeDAO(memoryStore) : new LigneCommandeDAO();
+    }
+
+    public static synchronized MouvementStockDAO getMouvementStockDAO() {
+        return memoryStore != null ? new MemoryMouvementStockDAO(memoryStore) : new MouvementStockDAO();
+    }
+
+    public static synchronized HistoriqueDAO getHistoriqueDAO() {
+        return memoryStore != null ? new MemoryHistoriqueDAO(memoryStore) : new HistoriqueDAO();
+    }
+
+    public static synchronized StatsDAO getStatsDAO() {
+        return memoryStore != null ? new MemoryStatsDAO(memoryStore) : new StatsDAO();
+    }
+}
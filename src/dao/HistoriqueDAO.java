@@ -6,34 +6,128 @@ import utils.DatabaseConnection;
 
 import java.sql.Connection;
 import java.sql.ResultSet;
-import java.sql.Statement;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
 import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * DAO de lecture de l'historique (table partitionnée par mois, voir utils.HistoriquePartitions)
+ *
+ * Par défaut les lectures sont bornées aux RECENT_MONTHS derniers mois:
+ * MySQL n'ouvre alors que les partitions récentes, quelle que soit
+ * l'ancienneté de la base. Les variantes avec "depuis" permettent de
+ * remonter plus loin (null: tout l'historique conservé).
+ */
 public class HistoriqueDAO {
 
+    public static final int RECENT_MONTHS = 3;
+
+    /**
+     * Début de la fenêtre par défaut: premier jour du mois, RECENT_MONTHS - 1 mois en arrière
+     */
+    public static LocalDateTime defaultSince() {
+        return YearMonth.now().minusMonths(RECENT_MONTHS - 1).atDay(1).atStartOfDay();
+    }
+
     public List<AuditEntry> readAll() throws Exception {
-        // Ensure the historique table exists before attempting to read it
-        AuditUtils.ensureTableExists();
+        return readAll(defaultSince());
+    }
+
+    /**
+     * @param depuis Date minimale (incluse), null pour tout l'historique
+     */
+    public List<AuditEntry> readAll(LocalDateTime depuis) throws Exception {
+        // Les entrées sont écrites en arrière-plan: attendre celles déjà déposées
+        AuditUtils.flush();
 
         List<AuditEntry> list = new ArrayList<>();
-        String sql = "SELECT * FROM historique ORDER BY created_at DESC";
-        try (Connection conn = DatabaseConnection.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-            while (rs.next()) {
-                list.add(new AuditEntry(
-                        rs.getInt("id"),
-                        rs.getString("action"),
-                        rs.getString("table_name"),
-                        rs.getObject("record_id") != null ? rs.getInt("record_id") : null,
-                        rs.getString("user"),
-                        rs.getString("details"),
-                        rs.getTimestamp("created_at").toLocalDateTime()
-                ));
+        String sql = "SELECT * FROM historique"
+                + (depuis != null ? " WHERE created_at >= ?" : "")
+                + " ORDER BY created_at DESC";
+        try (Connection conn = DatabaseConnection.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            if (depuis != null) {
+                pstmt.setTimestamp(1, Timestamp.valueOf(depuis));
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    list.add(new AuditEntry(
+                            rs.getInt("id"),
+                            rs.getString("action"),
+                            rs.getString("table_name"),
+                            rs.getObject("record_id") != null ? rs.getInt("record_id") : null,
+                            rs.getString("user"),
+                            rs.getString("details"),
+                            rs.getTimestamp("created_at").toLocalDateTime()
+                    ));
+                }
             }
         }
         return list;
     }
+
+    /**
+     * Lit une page d'historique triée par (created_at, id)
+     *
+     * @param cursor Curseur retourné par la page précédente, null pour la première
+     * @param limit Nombre maximal d'entrées dans la page
+     * @param sort Sens de tri
+     */
+    public Page<AuditEntry> readPage(String cursor, int limit, Page.Sort sort) throws Exception {
+        return readPage(cursor, limit, sort, defaultSince());
+    }
+
+    /**
+     * Lit une page d'historique triée par (created_at, id), à partir d'une date
+     *
+     * @param depuis Date minimale (incluse), null pour tout l'historique
+     */
+    public Page<AuditEntry> readPage(String cursor, int limit, Page.Sort sort, LocalDateTime depuis) throws Exception {
+        Page.checkLimit(limit);
+        AuditUtils.flush();
+
+        Page.Cursor after = Page.Cursor.decode(cursor);
+        List<String> conditions = new ArrayList<>();
+        if (depuis != null) {
+            conditions.add("created_at >= ?");
+        }
+        if (after != null) {
+            conditions.add(Page.seekPredicate("created_at", sort));
+        }
+        String sql = "SELECT * FROM historique"
+                + (conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions))
+                + " ORDER BY " + Page.orderBy("created_at", sort) + " LIMIT ?";
+        List<AuditEntry> list = new ArrayList<>();
+        try (Connection conn = DatabaseConnection.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            int i = 1;
+            if (depuis != null) {
+                pstmt.setTimestamp(i++, Timestamp.valueOf(depuis));
+            }
+            if (after != null) {
+                Timestamp key = Timestamp.valueOf(LocalDateTime.parse(after.getKey()));
+                pstmt.setTimestamp(i++, key);
+                pstmt.setTimestamp(i++, key);
+                pstmt.setInt(i++, after.getId());
+            }
+            pstmt.setInt(i, limit + 1);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    list.add(new AuditEntry(
+                            rs.getInt("id"),
+                            rs.getString("action"),
+                            rs.getString("table_name"),
+                            rs.getObject("record_id") != null ? rs.getInt("record_id") : null,
+                            rs.getString("user"),
+                            rs.getString("details"),
+                            rs.getTimestamp("created_at").toLocalDateTime()
+                    ));
+                }
+            }
+        }
+        return Page.of(list, limit, a -> Page.encodeCursor(a.getCreatedAt(), a.getId()));
+    }
 }
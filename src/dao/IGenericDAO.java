@@ -1,6 +1,8 @@
 package dao;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Interface générique pour les opérations CRUD (Create, Read, Update, Delete)
@@ -15,6 +17,9 @@ import java.util.List;
  * - CommandeDAO
  * - LigneCommandeDAO
  * - MouvementStockDAO
+ *
+ * Chaque DAO a une variante en mémoire dans dao.memory (MemoryProduitDAO, ...),
+ * choisie au démarrage via DAOFactory.
  * 
  * @param <T> Le type d'entité gérée par le DAO
  */
@@ -37,6 +42,15 @@ public interface IGenericDAO<T> {
      */
     T read(int id) throws Exception;
     
+    /**
+     * Récupère plusieurs entités par leurs IDs en une seule requête
+     * 
+     * @param ids Les identifiants (les doublons sont ignorés)
+     * @return Les objets trouvés, indexés par ID; les IDs inexistants sont absents
+     * @throws Exception Si erreur de base de données
+     */
+    Map<Integer, T> readByIds(Collection<Integer> ids) throws Exception;
+    
     /**
      * Récupère toutes les entités du type
      * 
@@ -60,4 +74,30 @@ public interface IGenericDAO<T> {
      * @throws Exception Si erreur lors de la suppression
      */
     void delete(int id) throws Exception;
+
+    /**
+     * Crée plusieurs entités en une seule opération (un lot, une transaction,
+     * une seule entrée d'historique)
+     * 
+     * @param items Les objets à insérer; leurs ids sont renseignés après l'insertion
+     * @return Les ids générés, dans l'ordre de la liste
+     * @throws Exception Si erreur lors de l'insertion (aucune ligne n'est insérée)
+     */
+    List<Integer> createAll(List<T> items) throws Exception;
+
+    /**
+     * Modifie plusieurs entités en une seule opération
+     * 
+     * @param items Les objets contenant les données mises à jour
+     * @throws Exception Si erreur lors de la mise à jour (aucune ligne n'est modifiée)
+     */
+    void updateAll(List<T> items) throws Exception;
+
+    /**
+     * Supprime plusieurs entités par leurs IDs en une seule opération
+     * 
+     * @param ids Les identifiants des entités à supprimer
+     * @throws Exception Si erreur lors de la suppression (aucune ligne n'est supprimée)
+     */
+    void deleteAll(List<Integer> ids) throws Exception;
 }
@@ -0,0 +1,254 @@
+package dao;
+
+import utils.DatabaseConnection;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToIntFunction;
+
+/**
+ * Exécution des opérations par lot des DAO JDBC (createAll, updateAll,
+ * deleteAll, readByIds)
+ *
+ * Chaque lot est envoyé avec addBatch/executeBatch dans une seule transaction:
+ * tout le lot est appliqué, ou rien. Avec rewriteBatchedStatements (voir
+ * DatabaseConnection), le driver réécrit les INSERT en un INSERT multi-lignes
+ * et les clés générées de tout le lot sont relues en une fois.
+ */
+final class JdbcBatch {
+
+    /**
+     * Renseigne les paramètres du statement pour un élément du lot
+     */
+    interface Binder<T> {
+        void bind(PreparedStatement pstmt, T t) throws SQLException;
+    }
+
+    /**
+     * Reporte l'id généré sur l'élément inséré
+     */
+    interface IdSetter<T> {
+        void setId(T t, int id);
+    }
+
+    // Nombre maximal d'ids par requête IN (...)
+    private static final int IN_CHUNK = 512;
+
+    private JdbcBatch() {
+    }
+
+    /**
+     * Insère tous les éléments et retourne les ids générés, dans l'ordre du lot
+     */
+    static <T> List<Integer> insert(String sql, List<T> items, Binder<T> binder, IdSetter<T> idSetter) throws SQLException {
+        if (items.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Integer> ids;
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                ids = insert(conn, sql, items, binder);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+        setIds(items, ids, idSetter);
+        return ids;
+    }
+
+    /**
+     * Insère tous les éléments sur une connexion dont l'appelant gère la
+     * transaction; les ids générés ne sont pas reportés sur les éléments
+     * (voir setIds, à appeler après le commit)
+     */
+    static <T> List<Integer> insert(Connection conn, String sql, List<T> items, Binder<T> binder) throws SQLException {
+        List<Integer> ids = new ArrayList<>(items.size());
+        if (items.isEmpty()) {
+            return ids;
+        }
+        try (PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            for (T t : items) {
+                binder.bind(pstmt, t);
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+            try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
+                while (generatedKeys.next()) {
+                    ids.add(generatedKeys.getInt(1));
+                }
+            }
+        }
+        if (ids.size() != items.size()) {
+            throw new SQLException("Clés générées incomplètes: " + ids.size() + " pour " + items.size() + " lignes");
+        }
+        return ids;
+    }
+
+    static <T> void setIds(List<T> items, List<Integer> ids, IdSetter<T> idSetter) {
+        for (int i = 0; i < items.size(); i++) {
+            idSetter.setId(items.get(i), ids.get(i));
+        }
+    }
+
+    /**
+     * Exécute le même UPDATE/DELETE pour chaque élément du lot
+     */
+    static <T> void execute(String sql, List<T> items, Binder<T> binder) throws SQLException {
+        if (items.isEmpty()) {
+            return;
+        }
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                execute(conn, sql, items, binder);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Exécute le même UPDATE/DELETE pour chaque élément, sur une connexion
+     * dont l'appelant gère la transaction
+     *
+     * @return Le nombre de lignes modifiées par élément (Statement.SUCCESS_NO_INFO si inconnu)
+     */
+    static <T> int[] execute(Connection conn, String sql, List<T> items, Binder<T> binder) throws SQLException {
+        if (items.isEmpty()) {
+            return new int[0];
+        }
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            for (T t : items) {
+                binder.bind(pstmt, t);
+                pstmt.addBatch();
+            }
+            return pstmt.executeBatch();
+        }
+    }
+
+    /**
+     * Exécute updateSql() pour chaque élément d'une table versionnée
+     *
+     * Si un seul élément est en conflit (version périmée ou ligne supprimée),
+     * tout le lot est annulé. Les versions des éléments ne sont pas modifiées:
+     * à l'appelant de les incrémenter après le retour.
+     *
+     * @throws OptimisticLockException pour le premier élément en conflit
+     */
+    static <T> void updateVersioned(TableMapping<T> mapping, List<T> items, ToIntFunction<T> idGetter) throws SQLException {
+        if (items.isEmpty()) {
+            return;
+        }
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                updateVersioned(conn, mapping, items, idGetter);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Comme updateVersioned, dans la transaction de l'appelant (à lui de l'annuler en cas d'exception)
+     */
+    static <T> void updateVersioned(Connection conn, TableMapping<T> mapping, List<T> items, ToIntFunction<T> idGetter) throws SQLException {
+        int[] counts = execute(conn, mapping.updateSql(), items,
+                (pstmt, t) -> mapping.bindWithId(pstmt, t, idGetter.applyAsInt(t)));
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) {
+                T t = items.get(i);
+                throw new OptimisticLockException(mapping.table(), idGetter.applyAsInt(t), mapping.versionOf(t));
+            }
+        }
+    }
+
+    /**
+     * Supprime les lignes de la table dont l'id est dans la liste
+     */
+    static void deleteByIds(TableMapping<?> mapping, List<Integer> ids) throws SQLException {
+        execute("DELETE FROM " + mapping.table() + " WHERE id = ?", ids, (pstmt, id) -> pstmt.setInt(1, id));
+    }
+
+    static void deleteByIds(Connection conn, TableMapping<?> mapping, List<Integer> ids) throws SQLException {
+        execute(conn, "DELETE FROM " + mapping.table() + " WHERE id = ?", ids, (pstmt, id) -> pstmt.setInt(1, id));
+    }
+
+    /**
+     * Lit les lignes de la table dont l'id est dans la collection, par
+     * requêtes "WHERE id IN (...)" d'au plus IN_CHUNK ids
+     *
+     * Le nombre de paramètres est arrondi à la puissance de deux supérieure
+     * (en répétant le dernier id) pour que le cache de statements ne voie
+     * qu'une dizaine de formes de requête différentes.
+     *
+     * @return Les entités trouvées, par id (les ids absents n'y figurent pas)
+     */
+    static <T> Map<Integer, T> readByIds(TableMapping<T> mapping, Collection<Integer> ids) throws SQLException {
+        if (ids.isEmpty()) {
+            return new HashMap<>();
+        }
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            return readByIds(conn, mapping, ids, false);
+        }
+    }
+
+    /**
+     * Comme readByIds, sur la connexion de l'appelant
+     *
+     * @param forUpdate Si vrai, les lignes lues restent verrouillées (SELECT ... FOR UPDATE)
+     *                  jusqu'à la fin de la transaction; elles sont verrouillées par id
+     *                  croissant, pour que deux transactions ne puissent pas s'interbloquer
+     */
+    static <T> Map<Integer, T> readByIds(Connection conn, TableMapping<T> mapping, Collection<Integer> ids, boolean forUpdate) throws SQLException {
+        TableMapping.Projection<T> colonnes = mapping.all();
+        Map<Integer, T> result = new HashMap<>();
+        List<Integer> distinct = new ArrayList<>(new LinkedHashSet<>(ids));
+        if (distinct.isEmpty()) {
+            return result;
+        }
+        if (forUpdate) {
+            distinct.sort(null);
+        }
+        for (int from = 0; from < distinct.size(); from += IN_CHUNK) {
+            List<Integer> chunk = distinct.subList(from, Math.min(from + IN_CHUNK, distinct.size()));
+            int size = Integer.highestOneBit(chunk.size());
+            if (size < chunk.size()) {
+                size <<= 1;
+            }
+            StringBuilder sql = new StringBuilder(colonnes.select()).append(" WHERE id IN (");
+            for (int i = 0; i < size; i++) {
+                sql.append(i == 0 ? "?" : ", ?");
+            }
+            sql.append(forUpdate ? ") FOR UPDATE" : ")");
+            try (PreparedStatement pstmt = conn.prepareStatement(sql.toString())) {
+                for (int i = 0; i < size; i++) {
+                    pstmt.setInt(i + 1, chunk.get(Math.min(i, chunk.size() - 1)));
+                }
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        // id est toujours la première colonne
+                        result.put(rs.getInt(1), colonnes.map(rs));
+                    }
+                }
+            }
+        }
+        return result;
+    }
+}
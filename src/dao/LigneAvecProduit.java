@@ -0,0 +1,39 @@
+package dao;
+
+import models.LigneCommande;
+
+/**
+ * Vue en lecture seule: une ligne de commande, le nom et le prix actuel de son produit
+ *
+ * Résultat de LigneCommandeDAO.readByCommandeWithProduit(), lu par jointure en une requête.
+ */
+public final class LigneAvecProduit {
+
+    private final LigneCommande ligne;
+    private final String produitNom;
+    private final Double prixVenteActuel;
+
+    public LigneAvecProduit(LigneCommande ligne, String produitNom, Double prixVenteActuel) {
+        this.ligne = ligne;
+        this.produitNom = produitNom;
+        this.prixVenteActuel = prixVenteActuel;
+    }
+
+    public LigneCommande getLigne() {
+        return ligne;
+    }
+
+    /**
+     * Nom du produit, ou null s'il n'existe plus
+     */
+    public String getProduitNom() {
+        return produitNom;
+    }
+
+    /**
+     * Prix de vente actuel du produit, ou null s'il n'existe plus
+     */
+    public Double getPrixVenteActuel() {
+        return prixVenteActuel;
+    }
+}
@@ -5,7 +5,9 @@ import utils.DatabaseConnection;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import utils.AuditUtils;
 
 /**
@@ -13,16 +15,14 @@ import utils.AuditUtils;
  */
 public class LigneCommandeDAO implements IGenericDAO<LigneCommande> {
 
+    private static final TableMapping<LigneCommande> MAPPING = Mappings.LIGNE_COMMANDE;
+    private static final TableMapping.Projection<LigneCommande> COLONNES = MAPPING.all();
+
     @Override
     public void create(LigneCommande ligne) throws Exception {
-        String sql = "INSERT INTO ligne_commande (commande_id, produit_id, quantite, prix_unitaire, montant_ligne) VALUES (?, ?, ?, ?, ?)";
         try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-            pstmt.setInt(1, ligne.getCommandeId());
-            pstmt.setInt(2, ligne.getProduitId());
-            pstmt.setInt(3, ligne.getQuantite());
-            pstmt.setDouble(4, ligne.getPrixUnitaire());
-            pstmt.setDouble(5, ligne.getMontantLigne());
+             PreparedStatement pstmt = conn.prepareStatement(MAPPING.insertSql(), Statement.RETURN_GENERATED_KEYS)) {
+            MAPPING.bind(pstmt, ligne);
             pstmt.executeUpdate();
 
             try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
@@ -36,40 +36,33 @@ public class LigneCommandeDAO implements IGenericDAO<LigneCommande> {
 
     @Override
     public LigneCommande read(int id) throws Exception {
-        String sql = "SELECT * FROM ligne_commande WHERE id = ?";
+        String sql = COLONNES.select() + " WHERE id = ?";
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, id);
             try (ResultSet rs = pstmt.executeQuery()) {
                 if (rs.next()) {
-                    return new LigneCommande(
-                            rs.getInt("id"),
-                            rs.getInt("commande_id"),
-                            rs.getInt("produit_id"),
-                            rs.getInt("quantite"),
-                            rs.getDouble("prix_unitaire")
-                    );
+                    return COLONNES.map(rs);
                 }
             }
         }
         return null;
     }
 
+    @Override
+    public Map<Integer, LigneCommande> readByIds(Collection<Integer> ids) throws Exception {
+        return JdbcBatch.readByIds(MAPPING, ids);
+    }
+
     @Override
     public List<LigneCommande> readAll() throws Exception {
         List<LigneCommande> lignes = new ArrayList<>();
-        String sql = "SELECT * FROM ligne_commande ORDER BY commande_id";
+        String sql = COLONNES.select() + " ORDER BY commande_id";
         try (Connection conn = DatabaseConnection.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
             while (rs.next()) {
-                lignes.add(new LigneCommande(
-                        rs.getInt("id"),
-                        rs.getInt("commande_id"),
-                        rs.getInt("produit_id"),
-                        rs.getInt("quantite"),
-                        rs.getDouble("prix_unitaire")
-                ));
+                lignes.add(COLONNES.map(rs));
             }
         }
         return lignes;
@@ -77,15 +70,9 @@ public class LigneCommandeDAO implements IGenericDAO<LigneCommande> {
 
     @Override
     public void update(LigneCommande ligne) throws Exception {
-        String sql = "UPDATE ligne_commande SET commande_id = ?, produit_id = ?, quantite = ?, prix_unitaire = ?, montant_ligne = ? WHERE id = ?";
         try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setInt(1, ligne.getCommandeId());
-            pstmt.setInt(2, ligne.getProduitId());
-            pstmt.setInt(3, ligne.getQuantite());
-            pstmt.setDouble(4, ligne.getPrixUnitaire());
-            pstmt.setDouble(5, ligne.getMontantLigne());
-            pstmt.setInt(6, ligne.getId());
+             PreparedStatement pstmt = conn.prepareStatement(MAPPING.updateSql())) {
+            MAPPING.bindWithId(pstmt, ligne, ligne.getId());
             pstmt.executeUpdate();
         }
         try { AuditUtils.log("UPDATE", "ligne_commande", ligne.getId(), "system", "cmd="+ligne.getCommandeId()+" prod="+ligne.getProduitId()); } catch (Exception ignore) {}
@@ -102,24 +89,46 @@ public class LigneCommandeDAO implements IGenericDAO<LigneCommande> {
         try { AuditUtils.log("DELETE", "ligne_commande", id, "system", null); } catch (Exception ignore) {}
     }
 
+    @Override
+    public List<Integer> createAll(List<LigneCommande> lignes) throws Exception {
+        List<Integer> ids = JdbcBatch.insert(MAPPING.insertSql(), lignes, MAPPING::bind, LigneCommande::setId);
+        try { AuditUtils.logBatch("CREATE", "ligne_commande", ids, "system"); } catch (Exception ignore) {}
+        return ids;
+    }
+
+    @Override
+    public void updateAll(List<LigneCommande> lignes) throws Exception {
+        JdbcBatch.execute(MAPPING.updateSql(), lignes,
+                (pstmt, ligne) -> MAPPING.bindWithId(pstmt, ligne, ligne.getId()));
+        try { AuditUtils.logBatch("UPDATE", "ligne_commande", idsOf(lignes), "system"); } catch (Exception ignore) {}
+    }
+
+    @Override
+    public void deleteAll(List<Integer> ids) throws Exception {
+        JdbcBatch.deleteByIds(MAPPING, ids);
+        try { AuditUtils.logBatch("DELETE", "ligne_commande", ids, "system"); } catch (Exception ignore) {}
+    }
+
+    protected static List<Integer> idsOf(List<LigneCommande> lignes) {
+        List<Integer> ids = new ArrayList<>(lignes.size());
+        for (LigneCommande ligne : lignes) {
+            ids.add(ligne.getId());
+        }
+        return ids;
+    }
+
     /**
      * Récupère les lignes d'une commande
      */
     public List<LigneCommande> readByCommande(int commandeId) throws Exception {
         List<LigneCommande> lignes = new ArrayList<>();
-        String sql = "SELECT * FROM ligne_commande WHERE commande_id = ?";
+        String sql = COLONNES.select() + " WHERE commande_id = ?";
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, commandeId);
             try (ResultSet rs = pstmt.executeQuery()) {
                 while (rs.next()) {
-                    lignes.add(new LigneCommande(
-                            rs.getInt("id"),
-                            rs.getInt("commande_id"),
-                            rs.getInt("produit_id"),
-                            rs.getInt("quantite"),
-                            rs.getDouble("prix_unitaire")
-                    ));
+                    lignes.add(COLONNES.map(rs));
                 }
             }
         }
@@ -138,4 +147,51 @@ public class LigneCommandeDAO implements IGenericDAO<LigneCommande> {
         }
         try { AuditUtils.log("DELETE", "ligne_commande", null, "system", "deleteByCommande="+commandeId); } catch (Exception ignore) {}
     }
+
+    /**
+     * Parcourt toutes les lignes de commande en flux, sans les charger en mémoire
+     */
+    public void forEach(RowConsumer<LigneCommande> action) throws Exception {
+        forEach(action, false);
+    }
+
+    /**
+     * Parcourt toutes les lignes de commande en flux, par id croissant
+     *
+     * @param action Action appelée pour chaque ligne
+     * @param reuseRow Si vrai, le même objet est rempli à nouveau pour chaque
+     *                 ligne (aucune allocation par ligne): l'action ne doit pas le conserver
+     */
+    public void forEach(RowConsumer<LigneCommande> action, boolean reuseRow) throws Exception {
+        String sql = COLONNES.select() + " ORDER BY id";
+        try (Connection conn = DatabaseConnection.getReadConnection();
+             PreparedStatement pstmt = DatabaseConnection.prepareStreaming(conn, sql);
+             ResultSet rs = pstmt.executeQuery()) {
+            LigneCommande flyweight = reuseRow ? new LigneCommande() : null;
+            while (rs.next()) {
+                action.accept(COLONNES.fill(reuseRow ? flyweight : new LigneCommande(), rs, 1));
+            }
+        }
+    }
+
+    /**
+     * Récupère les lignes d'une commande avec le nom et le prix actuel de leur produit, en une requête
+     */
+    public List<LigneAvecProduit> readByCommandeWithProduit(int commandeId) throws Exception {
+        List<LigneAvecProduit> lignes = new ArrayList<>();
+        String sql = "SELECT " + COLONNES.columns("l") + ", p.nom, p.prix_vente " +
+                "FROM ligne_commande l LEFT JOIN produit p ON p.id = l.produit_id " +
+                "WHERE l.commande_id = ? ORDER BY l.id";
+        int nom = COLONNES.size() + 1;
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, commandeId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    lignes.add(new LigneAvecProduit(COLONNES.map(rs), rs.getString(nom), rs.getObject(nom + 1, Double.class)));
+                }
+            }
+        }
+        return lignes;
+    }
 }
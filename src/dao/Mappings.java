@@ -0,0 +1,83 @@
+package dao;
+
+import models.Categorie;
+import models.Commande;
+import models.LigneCommande;
+import models.MouvementStock;
+import models.Produit;
+import models.Utilisateur;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+/**
+ * Correspondances table / modèle des DAO JDBC
+ *
+ * L'ordre des colonnes est celui de database/restaurant.sql (puis des
+ * colonnes ajoutées par utils.MigrationRunner). Ajouter une colonne ici
+ * suffit pour qu'elle soit lue, insérée et mise à jour par le DAO.
+ */
+final class Mappings {
+
+    private Mappings() {
+    }
+
+    static final TableMapping<Utilisateur> UTILISATEUR =
+            new TableMapping<>("utilisateur", Utilisateur::new, (u, rs, i) -> u.setId(rs.getInt(i)))
+                    .column("login", (u, rs, i) -> u.setLogin(rs.getString(i)), (ps, i, u) -> ps.setString(i, u.getLogin()))
+                    .column("motDePasse", (u, rs, i) -> u.setMotDePasse(rs.getString(i)), (ps, i, u) -> ps.setString(i, u.getMotDePasse()));
+
+    static final TableMapping<Categorie> CATEGORIE =
+            new TableMapping<>("categorie", Categorie::new, (c, rs, i) -> c.setId(rs.getInt(i)))
+                    .column("libelle", (c, rs, i) -> c.setLibelle(rs.getString(i)), (ps, i, c) -> ps.setString(i, c.getLibelle()));
+
+    static final TableMapping<Produit> PRODUIT =
+            new TableMapping<>("produit", Produit::new, (p, rs, i) -> p.setId(rs.getInt(i)))
+                    .column("nom", (p, rs, i) -> p.setNom(rs.getString(i)), (ps, i, p) -> ps.setString(i, p.getNom()))
+                    .column("categorie_id", (p, rs, i) -> p.setCategorieId(rs.getInt(i)), (ps, i, p) -> ps.setInt(i, p.getCategorieId()))
+                    .column("prix_vente", (p, rs, i) -> p.setPrixVente(rs.getDouble(i)), (ps, i, p) -> ps.setDouble(i, p.getPrixVente()))
+                    .column("stock_actuel", (p, rs, i) -> p.setStockActuel(rs.getInt(i)), (ps, i, p) -> ps.setInt(i, p.getStockActuel()))
+                    .column("seuil_alerte", (p, rs, i) -> p.setSeuilAlerte(rs.getInt(i)), (ps, i, p) -> ps.setInt(i, p.getSeuilAlerte()))
+                    .version("version", (p, rs, i) -> p.setVersion(rs.getInt(i)), Produit::getVersion);
+
+    static final TableMapping<MouvementStock> MOUVEMENT_STOCK =
+            new TableMapping<>("mouvement_stock", MouvementStock::new, (m, rs, i) -> m.setId(rs.getInt(i)))
+                    .column("produit_id", (m, rs, i) -> m.setProduitId(rs.getInt(i)), (ps, i, m) -> ps.setInt(i, m.getProduitId()))
+                    .column("type", (m, rs, i) -> m.setType(MouvementStock.TypeMouvement.valueOf(rs.getString(i))),
+                            (ps, i, m) -> ps.setString(i, m.getType().toString()))
+                    .column("quantite", (m, rs, i) -> m.setQuantite(rs.getInt(i)), (ps, i, m) -> ps.setInt(i, m.getQuantite()))
+                    .column("date_mouvement", (m, rs, i) -> m.setDateMouvement(rs.getDate(i).toLocalDate()),
+                            (ps, i, m) -> ps.setDate(i, java.sql.Date.valueOf(m.getDateMouvement())))
+                    .column("motif", (m, rs, i) -> m.setMotif(rs.getString(i)), (ps, i, m) -> ps.setString(i, m.getMotif()));
+
+    static final TableMapping<Commande> COMMANDE =
+            new TableMapping<>("commande", Commande::new, (c, rs, i) -> c.setId(rs.getInt(i)))
+                    .column("date_commande", (c, rs, i) -> c.setDateCommande(rs.getDate(i).toLocalDate()),
+                            (ps, i, c) -> ps.setDate(i, java.sql.Date.valueOf(c.getDateCommande())))
+                    .column("etat", (c, rs, i) -> c.setEtat(Commande.EtatCommande.valueOf(rs.getString(i))),
+                            (ps, i, c) -> ps.setString(i, c.getEtat().toString()))
+                    .column("total", (c, rs, i) -> c.setTotal(rs.getDouble(i)), (ps, i, c) -> ps.setDouble(i, c.getTotal()))
+                    .version("version", (c, rs, i) -> c.setVersion(rs.getInt(i)), Commande::getVersion)
+                    .column("created_at", (c, rs, i) -> c.setCreatedAt(toLocalDateTime(rs.getTimestamp(i))),
+                            (ps, i, c) -> ps.setTimestamp(i, toTimestamp(c.getCreatedAt())))
+                    .column("validated_at", (c, rs, i) -> c.setValidatedAt(toLocalDateTime(rs.getTimestamp(i))),
+                            (ps, i, c) -> ps.setTimestamp(i, toTimestamp(c.getValidatedAt())));
+
+    static final TableMapping<LigneCommande> LIGNE_COMMANDE =
+            new TableMapping<>("ligne_commande", LigneCommande::new, (l, rs, i) -> l.setId(rs.getInt(i)))
+                    .column("commande_id", (l, rs, i) -> l.setCommandeId(rs.getInt(i)), (ps, i, l) -> ps.setInt(i, l.getCommandeId()))
+                    .column("produit_id", (l, rs, i) -> l.setProduitId(rs.getInt(i)), (ps, i, l) -> ps.setInt(i, l.getProduitId()))
+                    .column("quantite", (l, rs, i) -> l.setQuantite(rs.getInt(i)), (ps, i, l) -> ps.setInt(i, l.getQuantite()))
+                    .column("prix_unitaire", (l, rs, i) -> l.setPrixUnitaire(rs.getDouble(i)), (ps, i, l) -> ps.setDouble(i, l.getPrixUnitaire()))
+                    // montant_ligne est recalculé par LigneCommande à partir de quantite et prix_unitaire
+                    .column("montant_ligne", null, (ps, i, l) -> ps.setDouble(i, l.getMontantLigne()));
+
+    // Colonnes DATETIME pouvant être NULL
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+
+    private static Timestamp toTimestamp(LocalDateTime dateTime) {
+        return dateTime != null ? Timestamp.valueOf(dateTime) : null;
+    }
+}
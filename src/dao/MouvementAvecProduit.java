@@ -0,0 +1,30 @@
+package dao;
+
+import models.MouvementStock;
+
+/**
+ * Vue en lecture seule: un mouvement de stock et le nom de son produit
+ *
+ * Résultat de MouvementStockDAO.readAllWithProduit(), lu par jointure en une requête.
+ */
+public final class MouvementAvecProduit {
+
+    private final MouvementStock mouvement;
+    private final String produitNom;
+
+    public MouvementAvecProduit(MouvementStock mouvement, String produitNom) {
+        this.mouvement = mouvement;
+        this.produitNom = produitNom;
+    }
+
+    public MouvementStock getMouvement() {
+        return mouvement;
+    }
+
+    /**
+     * Nom du produit, ou null s'il n'existe plus
+     */
+    public String getProduitNom() {
+        return produitNom;
+    }
+}
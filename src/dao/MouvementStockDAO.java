@@ -1,12 +1,15 @@
 package dao;
 
+import dao.cache.CatalogCache;
 import models.MouvementStock;
 import utils.DatabaseConnection;
 
 import java.sql.*;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import utils.AuditUtils;
 
 /**
@@ -14,16 +17,14 @@ import utils.AuditUtils;
  */
 public class MouvementStockDAO implements IGenericDAO<MouvementStock> {
 
+    private static final TableMapping<MouvementStock> MAPPING = Mappings.MOUVEMENT_STOCK;
+    private static final TableMapping.Projection<MouvementStock> COLONNES = MAPPING.all();
+
     @Override
     public void create(MouvementStock mouvement) throws Exception {
-        String sql = "INSERT INTO mouvement_stock (produit_id, type, quantite, date_mouvement, motif) VALUES (?, ?, ?, ?, ?)";
         try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-            pstmt.setInt(1, mouvement.getProduitId());
-            pstmt.setString(2, mouvement.getType().toString());
-            pstmt.setInt(3, mouvement.getQuantite());
-            pstmt.setDate(4, java.sql.Date.valueOf(mouvement.getDateMouvement()));
-            pstmt.setString(5, mouvement.getMotif());
+             PreparedStatement pstmt = conn.prepareStatement(MAPPING.insertSql(), Statement.RETURN_GENERATED_KEYS)) {
+            MAPPING.bind(pstmt, mouvement);
             pstmt.executeUpdate();
 
             try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
@@ -37,42 +38,33 @@ public class MouvementStockDAO implements IGenericDAO<MouvementStock> {
 
     @Override
     public MouvementStock read(int id) throws Exception {
-        String sql = "SELECT * FROM mouvement_stock WHERE id = ?";
+        String sql = COLONNES.select() + " WHERE id = ?";
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, id);
             try (ResultSet rs = pstmt.executeQuery()) {
                 if (rs.next()) {
-                    return new MouvementStock(
-                            rs.getInt("id"),
-                            rs.getInt("produit_id"),
-                            MouvementStock.TypeMouvement.valueOf(rs.getString("type")),
-                            rs.getInt("quantite"),
-                            rs.getDate("date_mouvement").toLocalDate(),
-                            rs.getString("motif")
-                    );
+                    return COLONNES.map(rs);
                 }
             }
         }
         return null;
     }
 
+    @Override
+    public Map<Integer, MouvementStock> readByIds(Collection<Integer> ids) throws Exception {
+        return JdbcBatch.readByIds(MAPPING, ids);
+    }
+
     @Override
     public List<MouvementStock> readAll() throws Exception {
         List<MouvementStock> mouvements = new ArrayList<>();
-        String sql = "SELECT * FROM mouvement_stock ORDER BY date_mouvement DESC";
+        String sql = COLONNES.select() + " ORDER BY date_mouvement DESC";
         try (Connection conn = DatabaseConnection.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
             while (rs.next()) {
-                mouvements.add(new MouvementStock(
-                        rs.getInt("id"),
-                        rs.getInt("produit_id"),
-                        MouvementStock.TypeMouvement.valueOf(rs.getString("type")),
-                        rs.getInt("quantite"),
-                        rs.getDate("date_mouvement").toLocalDate(),
-                        rs.getString("motif")
-                ));
+                mouvements.add(COLONNES.map(rs));
             }
         }
         return mouvements;
@@ -80,15 +72,9 @@ public class MouvementStockDAO implements IGenericDAO<MouvementStock> {
 
     @Override
     public void update(MouvementStock mouvement) throws Exception {
-        String sql = "UPDATE mouvement_stock SET produit_id = ?, type = ?, quantite = ?, date_mouvement = ?, motif = ? WHERE id = ?";
         try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setInt(1, mouvement.getProduitId());
-            pstmt.setString(2, mouvement.getType().toString());
-            pstmt.setInt(3, mouvement.getQuantite());
-            pstmt.setDate(4, java.sql.Date.valueOf(mouvement.getDateMouvement()));
-            pstmt.setString(5, mouvement.getMotif());
-            pstmt.setInt(6, mouvement.getId());
+             PreparedStatement pstmt = conn.prepareStatement(MAPPING.updateSql())) {
+            MAPPING.bindWithId(pstmt, mouvement, mouvement.getId());
             pstmt.executeUpdate();
         }
         try { AuditUtils.log("UPDATE", "mouvement_stock", mouvement.getId(), "system", "prod="+mouvement.getProduitId()+" type="+mouvement.getType()); } catch (Exception ignore) {}
@@ -105,25 +91,87 @@ public class MouvementStockDAO implements IGenericDAO<MouvementStock> {
         try { AuditUtils.log("DELETE", "mouvement_stock", id, "system", null); } catch (Exception ignore) {}
     }
 
+    @Override
+    public List<Integer> createAll(List<MouvementStock> mouvements) throws Exception {
+        List<Integer> ids = JdbcBatch.insert(MAPPING.insertSql(), mouvements, MAPPING::bind, MouvementStock::setId);
+        try { AuditUtils.logBatch("CREATE", "mouvement_stock", ids, "system"); } catch (Exception ignore) {}
+        return ids;
+    }
+
+    @Override
+    public void updateAll(List<MouvementStock> mouvements) throws Exception {
+        JdbcBatch.execute(MAPPING.updateSql(), mouvements,
+                (pstmt, mouvement) -> MAPPING.bindWithId(pstmt, mouvement, mouvement.getId()));
+        try { AuditUtils.logBatch("UPDATE", "mouvement_stock", idsOf(mouvements), "system"); } catch (Exception ignore) {}
+    }
+
+    @Override
+    public void deleteAll(List<Integer> ids) throws Exception {
+        JdbcBatch.deleteByIds(MAPPING, ids);
+        try { AuditUtils.logBatch("DELETE", "mouvement_stock", ids, "system"); } catch (Exception ignore) {}
+    }
+
+    protected static List<Integer> idsOf(List<MouvementStock> mouvements) {
+        List<Integer> ids = new ArrayList<>(mouvements.size());
+        for (MouvementStock mouvement : mouvements) {
+            ids.add(mouvement.getId());
+        }
+        return ids;
+    }
+
+    /**
+     * Enregistre un mouvement et l'applique au stock du produit, en une transaction
+     *
+     * Le stock est modifié d'abord: une sortie passe par la mise à jour
+     * conditionnelle de ProduitDAO.decreaseStock. Si le stock est insuffisant,
+     * la transaction est annulée et aucun mouvement n'est enregistré.
+     *
+     * @return false si la sortie est refusée faute de stock
+     */
+    public boolean createAndApply(MouvementStock mouvement) throws Exception {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                if (mouvement.getType() == MouvementStock.TypeMouvement.SORTIE) {
+                    if (!ProduitDAO.decreaseStock(conn, mouvement.getProduitId(), mouvement.getQuantite())) {
+                        conn.rollback();
+                        return false;
+                    }
+                } else {
+                    ProduitDAO.increaseStock(conn, mouvement.getProduitId(), mouvement.getQuantite());
+                }
+                try (PreparedStatement pstmt = conn.prepareStatement(MAPPING.insertSql(), Statement.RETURN_GENERATED_KEYS)) {
+                    MAPPING.bind(pstmt, mouvement);
+                    pstmt.executeUpdate();
+                    try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
+                        if (generatedKeys.next()) {
+                            mouvement.setId(generatedKeys.getInt(1));
+                        }
+                    }
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+        CatalogCache.invalidateProduits();
+        try { AuditUtils.log("CREATE", "mouvement_stock", mouvement.getId(), "system", "prod="+mouvement.getProduitId()+" type="+mouvement.getType()); } catch (Exception ignore) {}
+        return true;
+    }
+
     /**
      * Récupère les mouvements d'un produit
      */
     public List<MouvementStock> readByProduit(int produitId) throws Exception {
         List<MouvementStock> mouvements = new ArrayList<>();
-        String sql = "SELECT * FROM mouvement_stock WHERE produit_id = ? ORDER BY date_mouvement DESC";
+        String sql = COLONNES.select() + " WHERE produit_id = ? ORDER BY date_mouvement DESC";
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, produitId);
             try (ResultSet rs = pstmt.executeQuery()) {
                 while (rs.next()) {
-                    mouvements.add(new MouvementStock(
-                            rs.getInt("id"),
-                            rs.getInt("produit_id"),
-                            MouvementStock.TypeMouvement.valueOf(rs.getString("type")),
-                            rs.getInt("quantite"),
-                            rs.getDate("date_mouvement").toLocalDate(),
-                            rs.getString("motif")
-                    ));
+                    mouvements.add(COLONNES.map(rs));
                 }
             }
         }
@@ -135,23 +183,94 @@ public class MouvementStockDAO implements IGenericDAO<MouvementStock> {
      */
     public List<MouvementStock> readByDate(LocalDate date) throws Exception {
         List<MouvementStock> mouvements = new ArrayList<>();
-        String sql = "SELECT * FROM mouvement_stock WHERE date_mouvement = ? ORDER BY id";
+        String sql = COLONNES.select() + " WHERE date_mouvement = ? ORDER BY id";
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setDate(1, java.sql.Date.valueOf(date));
             try (ResultSet rs = pstmt.executeQuery()) {
                 while (rs.next()) {
-                    mouvements.add(new MouvementStock(
-                            rs.getInt("id"),
-                            rs.getInt("produit_id"),
-                            MouvementStock.TypeMouvement.valueOf(rs.getString("type")),
-                            rs.getInt("quantite"),
-                            rs.getDate("date_mouvement").toLocalDate(),
-                            rs.getString("motif")
-                    ));
+                    mouvements.add(COLONNES.map(rs));
                 }
             }
         }
         return mouvements;
     }
+
+    /**
+     * Lit une page de mouvements triés par (date_mouvement, id)
+     *
+     * @param cursor Curseur retourné par la page précédente, null pour la première
+     * @param limit Nombre maximal de mouvements dans la page
+     * @param sort Sens de tri
+     */
+    public Page<MouvementStock> readPage(String cursor, int limit, Page.Sort sort) throws Exception {
+        Page.checkLimit(limit);
+        Page.Cursor after = Page.Cursor.decode(cursor);
+        String sql = COLONNES.select()
+                + (after != null ? " WHERE " + Page.seekPredicate("date_mouvement", sort) : "")
+                + " ORDER BY " + Page.orderBy("date_mouvement", sort) + " LIMIT ?";
+        List<MouvementStock> mouvements = new ArrayList<>();
+        try (Connection conn = DatabaseConnection.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            int i = 1;
+            if (after != null) {
+                java.sql.Date key = java.sql.Date.valueOf(LocalDate.parse(after.getKey()));
+                pstmt.setDate(i++, key);
+                pstmt.setDate(i++, key);
+                pstmt.setInt(i++, after.getId());
+            }
+            pstmt.setInt(i, limit + 1);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    mouvements.add(COLONNES.map(rs));
+                }
+            }
+        }
+        return Page.of(mouvements, limit, m -> Page.encodeCursor(m.getDateMouvement(), m.getId()));
+    }
+
+    /**
+     * Parcourt tous les mouvements en flux, sans les charger en mémoire
+     */
+    public void forEach(RowConsumer<MouvementStock> action) throws Exception {
+        forEach(action, false);
+    }
+
+    /**
+     * Parcourt tous les mouvements en flux, par id croissant
+     *
+     * @param action Action appelée pour chaque mouvement
+     * @param reuseRow Si vrai, le même objet est rempli à nouveau pour chaque
+     *                 ligne (aucune allocation par ligne): l'action ne doit pas le conserver
+     */
+    public void forEach(RowConsumer<MouvementStock> action, boolean reuseRow) throws Exception {
+        String sql = COLONNES.select() + " ORDER BY id";
+        try (Connection conn = DatabaseConnection.getReadConnection();
+             PreparedStatement pstmt = DatabaseConnection.prepareStreaming(conn, sql);
+             ResultSet rs = pstmt.executeQuery()) {
+            MouvementStock flyweight = reuseRow ? new MouvementStock() : null;
+            while (rs.next()) {
+                action.accept(COLONNES.fill(reuseRow ? flyweight : new MouvementStock(), rs, 1));
+            }
+        }
+    }
+
+    /**
+     * Récupère tous les mouvements avec le nom de leur produit, en une requête
+     */
+    public List<MouvementAvecProduit> readAllWithProduit() throws Exception {
+        List<MouvementAvecProduit> mouvements = new ArrayList<>();
+        String sql = "SELECT " + COLONNES.columns("m") + ", p.nom " +
+                "FROM mouvement_stock m LEFT JOIN produit p ON p.id = m.produit_id " +
+                "ORDER BY m.date_mouvement DESC";
+        int nom = COLONNES.size() + 1;
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                mouvements.add(new MouvementAvecProduit(COLONNES.map(rs), rs.getString(nom)));
+            }
+        }
+        return mouvements;
+    }
 }
@@ -0,0 +1,40 @@
+package dao;
+
+import java.sql.SQLException;
+
+/**
+ * Levée quand un update() porte sur une version périmée d'un enregistrement:
+ * un autre poste l'a modifié (ou supprimé) depuis sa lecture.
+ * Rien n'est modifié: relire l'enregistrement, réappliquer la modification, réessayer.
+ */
+public class OptimisticLockException extends SQLException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String table;
+    private final int id;
+    private final int version;
+
+    public OptimisticLockException(String table, int id, int version) {
+        super("Enregistrement modifié ou supprimé par un autre poste: " + table + " #" + id
+                + " (version lue: " + version + ")");
+        this.table = table;
+        this.id = id;
+        this.version = version;
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Version de l'enregistrement au moment de sa lecture
+     */
+    public int getVersion() {
+        return version;
+    }
+}
@@ -0,0 +1,131 @@
+package dao;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Page de résultats d'une lecture paginée (readPage)
+ *
+ * La pagination est faite par clé (keyset): la page suivante reprend
+ * strictement après la dernière ligne lue, repérée par sa clé de tri et son
+ * id, au lieu d'un OFFSET. Le coût d'une page reste le même quelle que soit
+ * sa profondeur. Le curseur de continuation est une chaîne opaque à
+ * repasser telle quelle à readPage(); il vaut null sur la dernière page.
+ *
+ * @param <T> Le type d'entité de la page
+ */
+public class Page<T> {
+
+    /**
+     * Sens de tri sur (clé, id)
+     */
+    public enum Sort {
+        ASC,
+        DESC
+    }
+
+    private static final String SEPARATOR = "|";
+
+    private final List<T> items;
+    private final String nextCursor;
+
+    public Page(List<T> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    /**
+     * Curseur de la page suivante, ou null s'il n'y en a pas
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+
+    /**
+     * Construit une page à partir de limit + 1 lignes lues: la ligne en trop
+     * indique qu'une page suivante existe et n'est pas retournée
+     */
+    public static <T> Page<T> of(List<T> fetched, int limit, Function<T, String> cursorOf) {
+        if (fetched.size() <= limit) {
+            return new Page<>(fetched, null);
+        }
+        List<T> items = new ArrayList<>(fetched.subList(0, limit));
+        return new Page<>(items, cursorOf.apply(items.get(limit - 1)));
+    }
+
+    public static void checkLimit(int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Taille de page invalide: " + limit);
+        }
+    }
+
+    /**
+     * Prédicat "strictement après (clé, id)" dans le sens de tri, écrit pour
+     * rester servi par l'index sur la colonne clé (qui contient aussi l'id)
+     * Paramètres: clé, clé, id.
+     */
+    static String seekPredicate(String keyColumn, Sort sort) {
+        String op = sort == Sort.ASC ? ">" : "<";
+        return "(" + keyColumn + " " + op + " ? OR (" + keyColumn + " = ? AND id " + op + " ?))";
+    }
+
+    static String orderBy(String keyColumn, Sort sort) {
+        return keyColumn + " " + sort + ", id " + sort;
+    }
+
+    /**
+     * Encode la position (clé de tri, id) de la dernière ligne d'une page
+     */
+    public static String encodeCursor(Object key, int id) {
+        String raw = key + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Position décodée d'un curseur: la clé reste sous forme texte (ISO-8601 pour les dates)
+     */
+    public static class Cursor {
+        private final String key;
+        private final int id;
+
+        private Cursor(String key, int id) {
+            this.key = key;
+            this.id = id;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        /**
+         * Décode un curseur; null pour la première page
+         */
+        public static Cursor decode(String cursor) {
+            if (cursor == null || cursor.isEmpty()) {
+                return null;
+            }
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int sep = raw.lastIndexOf(SEPARATOR);
+                return new Cursor(raw.substring(0, sep), Integer.parseInt(raw.substring(sep + 1)));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Curseur de pagination invalide: " + cursor, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package dao;
+
+import models.Produit;
+
+/**
+ * Vue en lecture seule: un produit et le libellé de sa catégorie
+ *
+ * Résultat de ProduitDAO.readAllWithCategorie(), lu par jointure en une requête.
+ */
+public final class ProduitAvecCategorie {
+
+    private final Produit produit;
+    private final String categorieLibelle;
+
+    public ProduitAvecCategorie(Produit produit, String categorieLibelle) {
+        this.produit = produit;
+        this.categorieLibelle = categorieLibelle;
+    }
+
+    public Produit getProduit() {
+        return produit;
+    }
+
+    /**
+     * Libellé de la catégorie, ou null si elle n'existe plus
+     */
+    public String getCategorieLibelle() {
+        return categorieLibelle;
+    }
+}
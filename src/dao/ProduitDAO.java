@@ -6,30 +6,31 @@ import utils.DatabaseConnection;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 /**
  * DAO pour la gestion des produits dans la base de données
- * 
+ *
  * Implémente les opérations CRUD (Create, Read, Update, Delete)
  * et fournit des méthodes utilitaires pour le stock.
  */
 public class ProduitDAO implements IGenericDAO<Produit> {
 
+    private static final TableMapping<Produit> MAPPING = Mappings.PRODUIT;
+    private static final TableMapping.Projection<Produit> COLONNES = MAPPING.all();
+    // Règle d'alerte de stock, identique à Produit.isStockBas (reprise par StatsDAO)
+    static final String ALERTE_STOCK = "stock_actuel < seuil_alerte";
+
     @Override
     public void create(Produit produit) throws Exception {
-        String sql = "INSERT INTO produit (nom, categorie_id, prix_vente, stock_actuel, seuil_alerte) VALUES (?, ?, ?, ?, ?)";
         try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-            
-            pstmt.setString(1, produit.getNom());
-            pstmt.setInt(2, produit.getCategorieId());
-            pstmt.setDouble(3, produit.getPrixVente());
-            pstmt.setInt(4, produit.getStockActuel());
-            pstmt.setInt(5, produit.getSeuilAlerte());
-            
+             PreparedStatement pstmt = conn.prepareStatement(MAPPING.insertSql(), Statement.RETURN_GENERATED_KEYS)) {
+
+            MAPPING.bind(pstmt, produit);
             pstmt.executeUpdate();
-            
+
             try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
                 if (generatedKeys.next()) {
                     produit.setId(generatedKeys.getInt(1));
@@ -43,66 +44,61 @@ public class ProduitDAO implements IGenericDAO<Produit> {
 
     @Override
     public Produit read(int id) throws Exception {
-        String sql = "SELECT * FROM produit WHERE id = ?";
+        String sql = COLONNES.select() + " WHERE id = ?";
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
+
             pstmt.setInt(1, id);
-            
+
             try (ResultSet rs = pstmt.executeQuery()) {
                 if (rs.next()) {
-                    return new Produit(
-                            rs.getInt("id"),
-                            rs.getString("nom"),
-                            rs.getInt("categorie_id"),
-                            rs.getDouble("prix_vente"),
-                            rs.getInt("stock_actuel"),
-                            rs.getInt("seuil_alerte")
-                    );
+                    return COLONNES.map(rs);
                 }
             }
         }
         return null;
     }
 
+    @Override
+    public Map<Integer, Produit> readByIds(Collection<Integer> ids) throws Exception {
+        return JdbcBatch.readByIds(MAPPING, ids);
+    }
+
     @Override
     public List<Produit> readAll() throws Exception {
-        List<Produit> produits = new ArrayList<>();
-        String sql = "SELECT * FROM produit ORDER BY nom";
-        
-        try (Connection conn = DatabaseConnection.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-            
-            while (rs.next()) {
-                produits.add(new Produit(
-                        rs.getInt("id"),
-                        rs.getString("nom"),
-                        rs.getInt("categorie_id"),
-                        rs.getDouble("prix_vente"),
-                        rs.getInt("stock_actuel"),
-                        rs.getInt("seuil_alerte")
-                ));
-            }
-        }
-        return produits;
+        return readProjection(COLONNES, "");
+    }
+
+    /**
+     * Récupère tous les produits, en ne lisant que les colonnes demandées
+     *
+     * Les champs non lus gardent leur valeur par défaut: à réserver aux
+     * affichages (ex: "id", "nom", "prix_vente" pour une liste déroulante),
+     * jamais à un update().
+     *
+     * @param colonnes Noms des colonnes de la table produit
+     */
+    public List<Produit> readAllColumns(String... colonnes) throws Exception {
+        return readProjection(MAPPING.project(colonnes), "");
     }
 
+    /**
+     * Met à jour le produit, seulement s'il n'a pas changé en base depuis sa lecture
+     * (même version); sa version est alors incrémentée
+     *
+     * @throws OptimisticLockException si un autre poste l'a modifié ou supprimé entre-temps
+     */
     @Override
     public void update(Produit produit) throws Exception {
-        String sql = "UPDATE produit SET nom = ?, categorie_id = ?, prix_vente = ?, stock_actuel = ?, seuil_alerte = ? WHERE id = ?";
         try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setString(1, produit.getNom());
-            pstmt.setInt(2, produit.getCategorieId());
-            pstmt.setDouble(3, produit.getPrixVente());
-            pstmt.setInt(4, produit.getStockActuel());
-            pstmt.setInt(5, produit.getSeuilAlerte());
-            pstmt.setInt(6, produit.getId());
-            
-            pstmt.executeUpdate();
+             PreparedStatement pstmt = conn.prepareStatement(MAPPING.updateSql())) {
+
+            MAPPING.bindWithId(pstmt, produit, produit.getId());
+            if (pstmt.executeUpdate() == 0) {
+                throw new OptimisticLockException("produit", produit.getId(), produit.getVersion());
+            }
         }
+        produit.setVersion(produit.getVersion() + 1);
         try {
             AuditUtils.log("UPDATE", "produit", produit.getId(), "system", "nom=" + produit.getNom());
         } catch (Exception ignore) {}
@@ -113,7 +109,7 @@ public class ProduitDAO implements IGenericDAO<Produit> {
         String sql = "DELETE FROM produit WHERE id = ?";
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
+
             pstmt.setInt(1, id);
             pstmt.executeUpdate();
         }
@@ -122,26 +118,55 @@ public class ProduitDAO implements IGenericDAO<Produit> {
         } catch (Exception ignore) {}
     }
 
+    @Override
+    public List<Integer> createAll(List<Produit> produits) throws Exception {
+        List<Integer> ids = JdbcBatch.insert(MAPPING.insertSql(), produits, MAPPING::bind, Produit::setId);
+        try {
+            AuditUtils.logBatch("CREATE", "produit", ids, "system");
+        } catch (Exception ignore) {}
+        return ids;
+    }
+
+    @Override
+    public void updateAll(List<Produit> produits) throws Exception {
+        JdbcBatch.updateVersioned(MAPPING, produits, Produit::getId);
+        for (Produit produit : produits) {
+            produit.setVersion(produit.getVersion() + 1);
+        }
+        try {
+            AuditUtils.logBatch("UPDATE", "produit", idsOf(produits), "system");
+        } catch (Exception ignore) {}
+    }
+
+    @Override
+    public void deleteAll(List<Integer> ids) throws Exception {
+        JdbcBatch.deleteByIds(MAPPING, ids);
+        try {
+            AuditUtils.logBatch("DELETE", "produit", ids, "system");
+        } catch (Exception ignore) {}
+    }
+
+    protected static List<Integer> idsOf(List<Produit> produits) {
+        List<Integer> ids = new ArrayList<>(produits.size());
+        for (Produit produit : produits) {
+            ids.add(produit.getId());
+        }
+        return ids;
+    }
+
     /**
      * Récupère les produits d'une catégorie spécifique
      */
     public List<Produit> readByCategorie(int categorieId) throws Exception {
         List<Produit> produits = new ArrayList<>();
-        String sql = "SELECT * FROM produit WHERE categorie_id = ? ORDER BY nom";
+        String sql = COLONNES.select() + " WHERE categorie_id = ? ORDER BY nom";
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
+
             pstmt.setInt(1, categorieId);
             try (ResultSet rs = pstmt.executeQuery()) {
                 while (rs.next()) {
-                    produits.add(new Produit(
-                            rs.getInt("id"),
-                            rs.getString("nom"),
-                            rs.getInt("categorie_id"),
-                            rs.getDouble("prix_vente"),
-                            rs.getInt("stock_actuel"),
-                            rs.getInt("seuil_alerte")
-                    ));
+                    produits.add(COLONNES.map(rs));
                 }
             }
         }
@@ -153,20 +178,13 @@ public class ProduitDAO implements IGenericDAO<Produit> {
      */
     public List<Produit> readAlertProducts() throws Exception {
         List<Produit> produits = new ArrayList<>();
-        String sql = "SELECT * FROM produit WHERE stock_actuel < seuil_alerte ORDER BY nom";
-        try (Connection conn = DatabaseConnection.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-            
+        String sql = COLONNES.select() + " WHERE " + ALERTE_STOCK + " ORDER BY nom";
+        try (Connection conn = DatabaseConnection.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+
             while (rs.next()) {
-                produits.add(new Produit(
-                        rs.getInt("id"),
-                        rs.getString("nom"),
-                        rs.getInt("categorie_id"),
-                        rs.getDouble("prix_vente"),
-                        rs.getInt("stock_actuel"),
-                        rs.getInt("seuil_alerte")
-                ));
+                produits.add(COLONNES.map(rs));
             }
         }
         return produits;
@@ -176,27 +194,75 @@ public class ProduitDAO implements IGenericDAO<Produit> {
      * Augmente le stock d'un produit
      */
     public void increaseStock(int produitId, int quantite) throws Exception {
-        String sql = "UPDATE produit SET stock_actuel = stock_actuel + ? WHERE id = ?";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            increaseStock(conn, produitId, quantite);
+        }
+    }
+
+    /**
+     * Diminue le stock d'un produit, seulement s'il est suffisant
+     *
+     * La vérification et la mise à jour se font en une seule instruction
+     * (UPDATE ... WHERE stock_actuel >= ?): deux sorties simultanées ne
+     * peuvent pas rendre le stock négatif, et aucun autre verrou n'est pris.
+     *
+     * @return false si le stock est insuffisant (ou le produit inexistant): rien n'est modifié
+     */
+    public boolean decreaseStock(int produitId, int quantite) throws Exception {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            return decreaseStock(conn, produitId, quantite);
+        }
+    }
+
+    static void increaseStock(Connection conn, int produitId, int quantite) throws SQLException {
+        String sql = "UPDATE produit SET stock_actuel = stock_actuel + ?, version = version + 1 WHERE id = ?";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, quantite);
             pstmt.setInt(2, produitId);
             pstmt.executeUpdate();
         }
     }
 
+    static boolean decreaseStock(Connection conn, int produitId, int quantite) throws SQLException {
+        String sql = "UPDATE produit SET stock_actuel = stock_actuel - ?, version = version + 1 WHERE id = ? AND stock_actuel >= ?";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, quantite);
+            pstmt.setInt(2, produitId);
+            pstmt.setInt(3, quantite);
+            return pstmt.executeUpdate() == 1;
+        }
+    }
+
     /**
-     * Diminue le stock d'un produit
+     * Récupère tous les produits avec le libellé de leur catégorie, en une requête
      */
-    public void decreaseStock(int produitId, int quantite) throws Exception {
-        String sql = "UPDATE produit SET stock_actuel = stock_actuel - ? WHERE id = ?";
+    public List<ProduitAvecCategorie> readAllWithCategorie() throws Exception {
+        List<ProduitAvecCategorie> produits = new ArrayList<>();
+        String sql = "SELECT " + COLONNES.columns("p") + ", c.libelle " +
+                "FROM produit p LEFT JOIN categorie c ON c.id = p.categorie_id ORDER BY p.nom";
+        int libelle = COLONNES.size() + 1;
         try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setInt(1, quantite);
-            pstmt.setInt(2, produitId);
-            pstmt.executeUpdate();
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+
+            while (rs.next()) {
+                produits.add(new ProduitAvecCategorie(COLONNES.map(rs), rs.getString(libelle)));
+            }
         }
+        return produits;
+    }
+
+    private List<Produit> readProjection(TableMapping.Projection<Produit> projection, String where) throws Exception {
+        List<Produit> produits = new ArrayList<>();
+        String sql = projection.select() + where + " ORDER BY nom";
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+
+            while (rs.next()) {
+                produits.add(projection.map(rs));
+            }
+        }
+        return produits;
     }
 }
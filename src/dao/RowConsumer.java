@@ -0,0 +1,14 @@
+package dao;
+
+/**
+ * Action appliquée à chaque ligne d'une lecture en flux (forEach des DAO)
+ *
+ * Contrairement à java.util.function.Consumer, l'action peut lever une
+ * exception: la lecture s'arrête et l'exception remonte à l'appelant.
+ *
+ * @param <T> Le type de ligne
+ */
+@FunctionalInterface
+public interface RowConsumer<T> {
+    void accept(T row) throws Exception;
+}
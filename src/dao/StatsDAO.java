@@ -0,0 +1,73 @@
+package dao;
+
+import utils.DatabaseConnection;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * DAO des indicateurs du tableau de bord
+ *
+ * Chaque indicateur (Kpi) est une sous-requête scalaire calculée par MySQL:
+ * read() les assemble en un seul SELECT, un seul aller-retour, sans lire
+ * aucune ligne côté Java. Pour ajouter un indicateur, il suffit d'ajouter
+ * une constante à Kpi (et son calcul à dao.memory.MemoryStatsDAO).
+ */
+public class StatsDAO {
+
+    public enum Kpi {
+        // Toutes les commandes, quel que soit leur état (résumé ventes_journalieres)
+        TOTAL_COMMANDES("SELECT COALESCE(SUM(nb_commandes), 0) FROM ventes_journalieres"),
+        // Total des commandes VALIDEE
+        CHIFFRE_AFFAIRES("SELECT COALESCE(SUM(chiffre_affaires), 0) FROM ventes_journalieres"),
+        TOTAL_PRODUITS("SELECT COUNT(*) FROM produit"),
+        // Même règle que ProduitDAO.readAlertProducts
+        PRODUITS_EN_ALERTE("SELECT COUNT(*) FROM produit WHERE " + ProduitDAO.ALERTE_STOCK);
+
+        private final String sql;
+
+        Kpi(String sql) {
+            this.sql = sql;
+        }
+    }
+
+    /**
+     * Calcule tous les indicateurs
+     */
+    public Map<Kpi, Double> read() throws Exception {
+        return read(EnumSet.allOf(Kpi.class));
+    }
+
+    /**
+     * Calcule les indicateurs demandés, en une seule requête
+     */
+    public Map<Kpi, Double> read(Set<Kpi> kpis) throws Exception {
+        Map<Kpi, Double> valeurs = new EnumMap<>(Kpi.class);
+        if (kpis.isEmpty()) {
+            return valeurs;
+        }
+        StringBuilder sql = new StringBuilder("SELECT ");
+        for (Kpi kpi : kpis) {
+            if (sql.length() > "SELECT ".length()) {
+                sql.append(", ");
+            }
+            sql.append("(").append(kpi.sql).append(")");
+        }
+        try (Connection conn = DatabaseConnection.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql.toString());
+             ResultSet rs = pstmt.executeQuery()) {
+            if (rs.next()) {
+                int i = 1;
+                for (Kpi kpi : kpis) {
+                    valeurs.put(kpi, rs.getDouble(i++));
+                }
+            }
+        }
+        return valeurs;
+    }
+}
@@ -0,0 +1,36 @@
+package dao;
+
+import java.sql.SQLException;
+
+/**
+ * Levée quand une opération ferait passer le stock d'un produit sous zéro
+ * La transaction a été annulée: rien n'est modifié.
+ */
+public class StockInsuffisantException extends SQLException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int produitId;
+    private final int stockActuel;
+    private final int quantiteDemandee;
+
+    public StockInsuffisantException(int produitId, int stockActuel, int quantiteDemandee) {
+        super("Stock insuffisant pour le produit " + produitId
+                + " (disponible: " + stockActuel + ", demandé: " + quantiteDemandee + ")");
+        this.produitId = produitId;
+        this.stockActuel = stockActuel;
+        this.quantiteDemandee = quantiteDemandee;
+    }
+
+    public int getProduitId() {
+        return produitId;
+    }
+
+    public int getStockActuel() {
+        return stockActuel;
+    }
+
+    public int getQuantiteDemandee() {
+        return quantiteDemandee;
+    }
+}
@@ -0,0 +1,286 @@
+package dao;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * Correspondance entre une table et sa classe modèle, sans réflexion
+ *
+ * Chaque colonne est déclarée une fois (voir Mappings) avec sa lecture
+ * depuis un ResultSet et son écriture dans un PreparedStatement. On en
+ * déduit:
+ * - les listes de colonnes explicites des SELECT (plus de SELECT *)
+ * - la lecture par position (rs.getInt(1), ...), sans résolution de nom par ligne
+ * - les INSERT / UPDATE et le renseignement de leurs paramètres
+ * - des projections sur un sous-ensemble de colonnes (ex: id + nom pour une liste déroulante)
+ *
+ * La colonne id est toujours la première.
+ *
+ * Une table peut déclarer une colonne de version (verrouillage optimiste):
+ * elle est lue mais jamais écrite par les paramètres; updateSql()
+ * l'incrémente et ne met à jour la ligne que si elle n'a pas changé depuis
+ * sa lecture (WHERE id = ? AND version = ?).
+ *
+ * @param <T> Le type d'entité
+ */
+final class TableMapping<T> {
+
+    interface Reader<T> {
+        void read(T t, ResultSet rs, int index) throws SQLException;
+    }
+
+    interface Writer<T> {
+        void write(PreparedStatement pstmt, int index, T t) throws SQLException;
+    }
+
+    private static final class Column<T> {
+        final String name;
+        final Reader<T> reader;
+        final Writer<T> writer;
+
+        Column(String name, Reader<T> reader, Writer<T> writer) {
+            this.name = name;
+            this.reader = reader;
+            this.writer = writer;
+        }
+    }
+
+    private final String table;
+    private final Supplier<T> factory;
+    private final Map<String, Column<T>> columns = new LinkedHashMap<>();
+    private String versionColumn;
+    private ToIntFunction<T> versionGetter;
+    private Projection<T> all;
+    private String insertSql;
+    private String updateSql;
+
+    TableMapping(String table, Supplier<T> factory, Reader<T> idReader) {
+        this.table = table;
+        this.factory = factory;
+        columns.put("id", new Column<>("id", idReader, null));
+    }
+
+    /**
+     * Déclare la colonne suivante, dans l'ordre du schéma
+     * (reader null pour une colonne calculée, écrite mais jamais relue)
+     */
+    TableMapping<T> column(String name, Reader<T> reader, Writer<T> writer) {
+        columns.put(name, new Column<>(name, reader, writer));
+        return this;
+    }
+
+    /**
+     * Déclare la colonne de version, dans l'ordre du schéma
+     */
+    TableMapping<T> version(String name, Reader<T> reader, ToIntFunction<T> getter) {
+        columns.put(name, new Column<>(name, reader, null));
+        versionColumn = name;
+        versionGetter = getter;
+        return this;
+    }
+
+    String table() {
+        return table;
+    }
+
+    /**
+     * Version lue de l'entité (0 si la table n'a pas de colonne de version)
+     */
+    int versionOf(T t) {
+        return versionGetter != null ? versionGetter.applyAsInt(t) : 0;
+    }
+
+    /**
+     * Projection sur toutes les colonnes
+     */
+    synchronized Projection<T> all() {
+        if (all == null) {
+            List<Column<T>> readable = new ArrayList<>();
+            for (Column<T> column : columns.values()) {
+                if (column.reader != null) {
+                    readable.add(column);
+                }
+            }
+            all = new Projection<>(this, readable);
+        }
+        return all;
+    }
+
+    /**
+     * Projection sur les colonnes nommées: les autres champs de l'entité
+     * gardent leur valeur par défaut
+     */
+    Projection<T> project(String... names) {
+        List<Column<T>> selected = new ArrayList<>(names.length);
+        for (String name : names) {
+            Column<T> column = columns.get(name);
+            if (column == null || column.reader == null) {
+                throw new IllegalArgumentException("Colonne inconnue: " + table + "." + name);
+            }
+            selected.add(column);
+        }
+        return new Projection<>(this, selected);
+    }
+
+    /**
+     * INSERT de toutes les colonnes sauf id; paramètres renseignés par bind()
+     */
+    synchronized String insertSql() {
+        if (insertSql == null) {
+            StringBuilder names = new StringBuilder();
+            StringBuilder params = new StringBuilder();
+            for (Column<T> column : columns.values()) {
+                if (column.writer == null) {
+                    continue;
+                }
+                if (names.length() > 0) {
+                    names.append(", ");
+                    params.append(", ");
+                }
+                names.append(column.name);
+                params.append("?");
+            }
+            insertSql = "INSERT INTO " + table + " (" + names + ") VALUES (" + params + ")";
+        }
+        return insertSql;
+    }
+
+    /**
+     * UPDATE de toutes les colonnes sauf id; paramètres renseignés par bindWithId()
+     * Avec une colonne de version, 0 ligne modifiée signifie un conflit.
+     */
+    synchronized String updateSql() {
+        if (updateSql == null) {
+            StringBuilder sets = new StringBuilder();
+            for (Column<T> column : columns.values()) {
+                if (column.writer == null) {
+                    continue;
+                }
+                if (sets.length() > 0) {
+                    sets.append(", ");
+                }
+                sets.append(column.name).append(" = ?");
+            }
+            if (versionColumn != null) {
+                sets.append(", ").append(versionColumn).append(" = ").append(versionColumn).append(" + 1");
+            }
+            updateSql = "UPDATE " + table + " SET " + sets + " WHERE id = ?"
+                    + (versionColumn != null ? " AND " + versionColumn + " = ?" : "");
+        }
+        return updateSql;
+    }
+
+    /**
+     * Renseigne les paramètres de insertSql() (toutes les colonnes sauf id)
+     *
+     * @return Le nombre de paramètres renseignés
+     */
+    int bind(PreparedStatement pstmt, T t) throws SQLException {
+        int index = 0;
+        for (Column<T> column : columns.values()) {
+            if (column.writer != null) {
+                column.writer.write(pstmt, ++index, t);
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Renseigne les paramètres de updateSql() (colonnes, puis id, puis version lue)
+     */
+    void bindWithId(PreparedStatement pstmt, T t, int id) throws SQLException {
+        int index = bind(pstmt, t) + 1;
+        pstmt.setInt(index, id);
+        if (versionColumn != null) {
+            pstmt.setInt(index + 1, versionGetter.applyAsInt(t));
+        }
+    }
+
+    /**
+     * Sous-ensemble de colonnes lu par position
+     */
+    static final class Projection<T> {
+        private final TableMapping<T> mapping;
+        private final List<Column<T>> columns;
+        private final String selectList;
+
+        private Projection(TableMapping<T> mapping, List<Column<T>> columns) {
+            this.mapping = mapping;
+            this.columns = Collections.unmodifiableList(columns);
+            StringBuilder list = new StringBuilder();
+            for (Column<T> column : columns) {
+                if (list.length() > 0) {
+                    list.append(", ");
+                }
+                list.append(column.name);
+            }
+            this.selectList = list.toString();
+        }
+
+        /**
+         * Liste des colonnes, ex: "id, nom"
+         */
+        String columns() {
+            return selectList;
+        }
+
+        /**
+         * Liste des colonnes préfixées par l'alias de table, ex: "p.id, p.nom"
+         */
+        String columns(String alias) {
+            StringBuilder list = new StringBuilder();
+            for (Column<T> column : columns) {
+                if (list.length() > 0) {
+                    list.append(", ");
+                }
+                list.append(alias).append('.').append(column.name);
+            }
+            return list.toString();
+        }
+
+        /**
+         * "SELECT colonnes FROM table"
+         */
+        String select() {
+            return "SELECT " + selectList + " FROM " + mapping.table;
+        }
+
+        int size() {
+            return columns.size();
+        }
+
+        /**
+         * Lit l'entité depuis la ligne courante, à partir de la colonne 1
+         */
+        T map(ResultSet rs) throws SQLException {
+            return map(rs, 1);
+        }
+
+        /**
+         * Lit l'entité depuis la ligne courante, à partir de la colonne first
+         * (projections suivies d'autres colonnes, ex: jointures)
+         */
+        T map(ResultSet rs, int first) throws SQLException {
+            return fill(mapping.factory.get(), rs, first);
+        }
+
+        /**
+         * Remplit une entité existante (lecture en flux avec objet réutilisé)
+         */
+        T fill(T t, ResultSet rs, int first) throws SQLException {
+            int index = first;
+            for (Column<T> column : columns) {
+                column.reader.read(t, rs, index++);
+            }
+            return t;
+        }
+    }
+}
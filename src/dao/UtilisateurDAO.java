@@ -5,20 +5,23 @@ import utils.DatabaseConnection;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 /**
  * DAO pour la gestion des utilisateurs
  */
 public class UtilisateurDAO implements IGenericDAO<Utilisateur> {
 
+    private static final TableMapping<Utilisateur> MAPPING = Mappings.UTILISATEUR;
+    private static final TableMapping.Projection<Utilisateur> COLONNES = MAPPING.all();
+
     @Override
     public void create(Utilisateur utilisateur) throws Exception {
-        String sql = "INSERT INTO utilisateur (login, motDePasse) VALUES (?, ?)";
         try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-            pstmt.setString(1, utilisateur.getLogin());
-            pstmt.setString(2, utilisateur.getMotDePasse());
+             PreparedStatement pstmt = conn.prepareStatement(MAPPING.insertSql(), Statement.RETURN_GENERATED_KEYS)) {
+            MAPPING.bind(pstmt, utilisateur);
             pstmt.executeUpdate();
 
             try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
@@ -31,28 +34,33 @@ public class UtilisateurDAO implements IGenericDAO<Utilisateur> {
 
     @Override
     public Utilisateur read(int id) throws Exception {
-        String sql = "SELECT * FROM utilisateur WHERE id = ?";
+        String sql = COLONNES.select() + " WHERE id = ?";
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, id);
             try (ResultSet rs = pstmt.executeQuery()) {
                 if (rs.next()) {
-                    return new Utilisateur(rs.getInt("id"), rs.getString("login"), rs.getString("motDePasse"));
+                    return COLONNES.map(rs);
                 }
             }
         }
         return null;
     }
 
+    @Override
+    public Map<Integer, Utilisateur> readByIds(Collection<Integer> ids) throws Exception {
+        return JdbcBatch.readByIds(MAPPING, ids);
+    }
+
     @Override
     public List<Utilisateur> readAll() throws Exception {
         List<Utilisateur> utilisateurs = new ArrayList<>();
-        String sql = "SELECT * FROM utilisateur ORDER BY login";
+        String sql = COLONNES.select() + " ORDER BY login";
         try (Connection conn = DatabaseConnection.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
             while (rs.next()) {
-                utilisateurs.add(new Utilisateur(rs.getInt("id"), rs.getString("login"), rs.getString("motDePasse")));
+                utilisateurs.add(COLONNES.map(rs));
             }
         }
         return utilisateurs;
@@ -60,12 +68,9 @@ public class UtilisateurDAO implements IGenericDAO<Utilisateur> {
 
     @Override
     public void update(Utilisateur utilisateur) throws Exception {
-        String sql = "UPDATE utilisateur SET login = ?, motDePasse = ? WHERE id = ?";
         try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, utilisateur.getLogin());
-            pstmt.setString(2, utilisateur.getMotDePasse());
-            pstmt.setInt(3, utilisateur.getId());
+             PreparedStatement pstmt = conn.prepareStatement(MAPPING.updateSql())) {
+            MAPPING.bindWithId(pstmt, utilisateur, utilisateur.getId());
             pstmt.executeUpdate();
         }
     }
@@ -80,18 +85,34 @@ public class UtilisateurDAO implements IGenericDAO<Utilisateur> {
         }
     }
 
+    @Override
+    public List<Integer> createAll(List<Utilisateur> utilisateurs) throws Exception {
+        return JdbcBatch.insert(MAPPING.insertSql(), utilisateurs, MAPPING::bind, Utilisateur::setId);
+    }
+
+    @Override
+    public void updateAll(List<Utilisateur> utilisateurs) throws Exception {
+        JdbcBatch.execute(MAPPING.updateSql(), utilisateurs,
+                (pstmt, utilisateur) -> MAPPING.bindWithId(pstmt, utilisateur, utilisateur.getId()));
+    }
+
+    @Override
+    public void deleteAll(List<Integer> ids) throws Exception {
+        JdbcBatch.deleteByIds(MAPPING, ids);
+    }
+
     /**
      * Authentifie un utilisateur avec login et mot de passe
      */
     public Utilisateur authenticate(String login, String motDePasse) throws Exception {
-        String sql = "SELECT * FROM utilisateur WHERE login = ? AND motDePasse = ?";
+        String sql = COLONNES.select() + " WHERE login = ? AND motDePasse = ?";
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, login);
             pstmt.setString(2, motDePasse);
             try (ResultSet rs = pstmt.executeQuery()) {
                 if (rs.next()) {
-                    return new Utilisateur(rs.getInt("id"), rs.getString("login"), rs.getString("motDePasse"));
+                    return COLONNES.map(rs);
                 }
             }
         }
@@ -0,0 +1,76 @@
+package dao;
+
+import models.Commande;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Report des écritures de commandes dans la table de résumé ventes_journalieres
+ *
+ * ventes_journalieres a une ligne par jour: nombre de commandes (tous états),
+ * chiffre d'affaires (total des commandes VALIDEE) et nombre de commandes
+ * ANNULEE. Chaque écriture de CommandeDAO retire la contribution des
+ * commandes telles qu'elles étaient (lues avec FOR UPDATE), ajoute celle des
+ * commandes telles qu'elles deviennent, puis flush() applique les différences
+ * sur la même connexion, avant le commit: le résumé est validé ou annulé avec
+ * la commande. utils.RebuildVentes le recalcule entièrement depuis commande.
+ */
+final class VentesJournalieres {
+
+    private static final String UPSERT = "INSERT INTO ventes_journalieres (jour, nb_commandes, chiffre_affaires, nb_annulees) " +
+            "VALUES (?, ?, ?, ?) ON DUPLICATE KEY UPDATE " +
+            "nb_commandes = nb_commandes + VALUES(nb_commandes), " +
+            "chiffre_affaires = chiffre_affaires + VALUES(chiffre_affaires), " +
+            "nb_annulees = nb_annulees + VALUES(nb_annulees)";
+
+    // Par jour: nombre de commandes, chiffre d'affaires, nombre d'annulées
+    private final Map<LocalDate, double[]> deltas = new TreeMap<>();
+
+    void add(Commande commande) {
+        apply(commande, 1);
+    }
+
+    void remove(Commande commande) {
+        if (commande != null) {
+            apply(commande, -1);
+        }
+    }
+
+    private void apply(Commande commande, int sign) {
+        double[] delta = deltas.computeIfAbsent(commande.getDateCommande(), jour -> new double[3]);
+        delta[0] += sign;
+        if (commande.getEtat() == Commande.EtatCommande.VALIDEE) {
+            delta[1] += sign * commande.getTotal();
+        } else if (commande.getEtat() == Commande.EtatCommande.ANNULEE) {
+            delta[2] += sign;
+        }
+    }
+
+    /**
+     * Applique les différences non nulles, par jour croissant: deux
+     * transactions verrouillent les lignes du résumé dans le même ordre
+     */
+    void flush(Connection conn) throws SQLException {
+        List<Map.Entry<LocalDate, double[]>> changed = new ArrayList<>();
+        for (Map.Entry<LocalDate, double[]> entry : deltas.entrySet()) {
+            double[] delta = entry.getValue();
+            if (delta[0] != 0 || Math.abs(delta[1]) >= 0.005 || delta[2] != 0) {
+                changed.add(entry);
+            }
+        }
+        JdbcBatch.execute(conn, UPSERT, changed, (pstmt, entry) -> {
+            double[] delta = entry.getValue();
+            pstmt.setDate(1, java.sql.Date.valueOf(entry.getKey()));
+            pstmt.setInt(2, (int) delta[0]);
+            pstmt.setDouble(3, delta[1]);
+            pstmt.setInt(4, (int) delta[2]);
+        });
+        deltas.clear();
+    }
+}
@@ -0,0 +1,45 @@
+package dao.cache;
+
+/**
+ * Photographie de l'état d'un cache du catalogue
+ */
+public class CacheStats {
+    private final String name;
+    private final int size;
+    private final long ageMs;
+    private final long hits;
+    private final long misses;
+    private final long invalidations;
+
+    public CacheStats(String name, int size, long ageMs, long hits, long misses, long invalidations) {
+        this.name = name;
+        this.size = size;
+        this.ageMs = ageMs;
+        this.hits = hits;
+        this.misses = misses;
+        this.invalidations = invalidations;
+    }
+
+    public String getName() { return name; }
+    public int getSize() { return size; }
+    /** Âge de la photographie en millisecondes, -1 si aucune n'est chargée */
+    public long getAgeMs() { return ageMs; }
+    public long getHits() { return hits; }
+    public long getMisses() { return misses; }
+    public long getInvalidations() { return invalidations; }
+
+    /**
+     * Taux de succès (0 à 1)
+     */
+    public double getHitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("cache %s: %d lignes, âge=%s | succès=%.0f%% (%d/%d) | invalidations=%d",
+                name, size, ageMs < 0 ? "-" : (ageMs / 1000) + "s",
+                getHitRate() * 100, hits, hits + misses, invalidations);
+    }
+}
@@ -0,0 +1,134 @@
+package dao.cache;
+
+import dao.CategorieDAO;
+import models.Categorie;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * CategorieDAO dont les lectures sont servies par CatalogCache
+ *
+ * Les entités retournées sont des copies. existsByLibelle() interroge
+ * toujours le DAO délégué: il sert à valider une création.
+ */
+public class CachedCategorieDAO extends CategorieDAO {
+
+    private final CategorieDAO delegate;
+
+    public CachedCategorieDAO(CategorieDAO delegate) {
+        this.delegate = delegate;
+    }
+
+    List<Categorie> snapshot() throws Exception {
+        return CatalogCache.CATEGORIES.get(delegate::readAll);
+    }
+
+    @Override
+    public void create(Categorie categorie) throws Exception {
+        try {
+            delegate.create(categorie);
+        } finally {
+            CatalogCache.invalidateCategories();
+        }
+    }
+
+    @Override
+    public Categorie read(int id) throws Exception {
+        for (Categorie categorie : snapshot()) {
+            if (categorie.getId() == id) {
+                return copy(categorie);
+            }
+        }
+        return delegate.read(id);
+    }
+
+    @Override
+    public Map<Integer, Categorie> readByIds(Collection<Integer> ids) throws Exception {
+        Map<Integer, Categorie> byId = new HashMap<>();
+        for (Categorie categorie : snapshot()) {
+            byId.put(categorie.getId(), categorie);
+        }
+        Map<Integer, Categorie> result = new HashMap<>();
+        List<Integer> absents = new ArrayList<>();
+        for (Integer id : ids) {
+            Categorie categorie = byId.get(id);
+            if (categorie != null) {
+                result.put(id, copy(categorie));
+            } else {
+                absents.add(id);
+            }
+        }
+        if (!absents.isEmpty()) {
+            result.putAll(delegate.readByIds(absents));
+        }
+        return result;
+    }
+
+    @Override
+    public List<Categorie> readAll() throws Exception {
+        List<Categorie> categories = snapshot();
+        List<Categorie> copies = new ArrayList<>(categories.size());
+        for (Categorie categorie : categories) {
+            copies.add(copy(categorie));
+        }
+        return copies;
+    }
+
+    @Override
+    public void update(Categorie categorie) throws Exception {
+        try {
+            delegate.update(categorie);
+        } finally {
+            CatalogCache.invalidateCategories();
+        }
+    }
+
+    @Override
+    public void delete(int id) throws Exception {
+        try {
+            delegate.delete(id);
+        } finally {
+            CatalogCache.invalidateCategories();
+        }
+    }
+
+    @Override
+    public List<Integer> createAll(List<Categorie> categories) throws Exception {
+        try {
+            return delegate.createAll(categories);
+        } finally {
+            CatalogCache.invalidateCategories();
+        }
+    }
+
+    @Override
+    public void updateAll(List<Categorie> categories) throws Exception {
+        try {
+            delegate.updateAll(categories);
+        } finally {
+            CatalogCache.invalidateCategories();
+        }
+    }
+
+    @Override
+    public void deleteAll(List<Integer> ids) throws Exception {
+        try {
+            delegate.deleteAll(ids);
+        } finally {
+            CatalogCache.invalidateCategories();
+        }
+    }
+
+    @Override
+    public boolean existsByLibelle(String libelle) throws Exception {
+        return delegate.existsByLibelle(libelle);
+    }
+
+    private static Categorie copy(Categorie c) {
+        return new Categorie(c.getId(), c.getLibelle());
+    }
+}
@@ -0,0 +1,205 @@
+package dao.cache;
+
+import dao.ProduitAvecCategorie;
+import dao.ProduitDAO;
+import models.Categorie;
+import models.Produit;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ProduitDAO dont les lectures sont servies par CatalogCache
+ *
+ * Toutes les lectures dérivent de la photographie de la table (et de celle
+ * des catégories pour readAllWithCategorie): ouvrir une liste déroulante de
+ * produits ne fait aucun aller-retour vers la base tant que la photographie
+ * est valide. Les entités retournées sont des copies, modifiables par
+ * l'appelant. Les écritures passent par le DAO délégué puis invalident le
+ * cache, qu'elles réussissent ou non.
+ */
+public class CachedProduitDAO extends ProduitDAO {
+
+    private final ProduitDAO delegate;
+    private final CachedCategorieDAO categories;
+
+    public CachedProduitDAO(ProduitDAO delegate, CachedCategorieDAO categories) {
+        this.delegate = delegate;
+        this.categories = categories;
+    }
+
+    private List<Produit> snapshot() throws Exception {
+        return CatalogCache.PRODUITS.get(delegate::readAll);
+    }
+
+    @Override
+    public void create(Produit produit) throws Exception {
+        try {
+            delegate.create(produit);
+        } finally {
+            CatalogCache.invalidateProduits();
+        }
+    }
+
+    @Override
+    public Produit read(int id) throws Exception {
+        for (Produit produit : snapshot()) {
+            if (produit.getId() == id) {
+                return copy(produit);
+            }
+        }
+        // Créé depuis la photographie (ex: sur un autre poste)
+        return delegate.read(id);
+    }
+
+    @Override
+    public Map<Integer, Produit> readByIds(Collection<Integer> ids) throws Exception {
+        Map<Integer, Produit> byId = new HashMap<>();
+        for (Produit produit : snapshot()) {
+            byId.put(produit.getId(), produit);
+        }
+        Map<Integer, Produit> result = new HashMap<>();
+        List<Integer> absents = new ArrayList<>();
+        for (Integer id : ids) {
+            Produit produit = byId.get(id);
+            if (produit != null) {
+                result.put(id, copy(produit));
+            } else {
+                absents.add(id);
+            }
+        }
+        if (!absents.isEmpty()) {
+            result.putAll(delegate.readByIds(absents));
+        }
+        return result;
+    }
+
+    @Override
+    public List<Produit> readAll() throws Exception {
+        return copyAll(snapshot());
+    }
+
+    /**
+     * Les produits sont retournés complets (colonnes demandées incluses)
+     */
+    @Override
+    public List<Produit> readAllColumns(String... colonnes) throws Exception {
+        return readAll();
+    }
+
+    @Override
+    public void update(Produit produit) throws Exception {
+        try {
+            delegate.update(produit);
+        } finally {
+            CatalogCache.invalidateProduits();
+        }
+    }
+
+    @Override
+    public void delete(int id) throws Exception {
+        try {
+            delegate.delete(id);
+        } finally {
+            CatalogCache.invalidateProduits();
+        }
+    }
+
+    @Override
+    public List<Integer> createAll(List<Produit> produits) throws Exception {
+        try {
+            return delegate.createAll(produits);
+        } finally {
+            CatalogCache.invalidateProduits();
+        }
+    }
+
+    @Override
+    public void updateAll(List<Produit> produits) throws Exception {
+        try {
+            delegate.updateAll(produits);
+        } finally {
+            CatalogCache.invalidateProduits();
+        }
+    }
+
+    @Override
+    public void deleteAll(List<Integer> ids) throws Exception {
+        try {
+            delegate.deleteAll(ids);
+        } finally {
+            CatalogCache.invalidateProduits();
+        }
+    }
+
+    @Override
+    public List<Produit> readByCategorie(int categorieId) throws Exception {
+        List<Produit> produits = new ArrayList<>();
+        for (Produit produit : snapshot()) {
+            if (produit.getCategorieId() == categorieId) {
+                produits.add(copy(produit));
+            }
+        }
+        return produits;
+    }
+
+    @Override
+    public List<Produit> readAlertProducts() throws Exception {
+        List<Produit> produits = new ArrayList<>();
+        for (Produit produit : snapshot()) {
+            if (produit.isStockBas()) {
+                produits.add(copy(produit));
+            }
+        }
+        return produits;
+    }
+
+    @Override
+    public void increaseStock(int produitId, int quantite) throws Exception {
+        try {
+            delegate.increaseStock(produitId, quantite);
+        } finally {
+            CatalogCache.invalidateProduits();
+        }
+    }
+
+    @Override
+    public boolean decreaseStock(int produitId, int quantite) throws Exception {
+        try {
+            return delegate.decreaseStock(produitId, quantite);
+        } finally {
+            CatalogCache.invalidateProduits();
+        }
+    }
+
+    @Override
+    public List<ProduitAvecCategorie> readAllWithCategorie() throws Exception {
+        Map<Integer, String> libelles = new HashMap<>();
+        for (Categorie categorie : categories.snapshot()) {
+            libelles.put(categorie.getId(), categorie.getLibelle());
+        }
+        List<Produit> produits = snapshot();
+        List<ProduitAvecCategorie> vues = new ArrayList<>(produits.size());
+        for (Produit produit : produits) {
+            vues.add(new ProduitAvecCategorie(copy(produit), libelles.get(produit.getCategorieId())));
+        }
+        return vues;
+    }
+
+    private static List<Produit> copyAll(List<Produit> produits) {
+        List<Produit> copies = new ArrayList<>(produits.size());
+        for (Produit produit : produits) {
+            copies.add(copy(produit));
+        }
+        return copies;
+    }
+
+    static Produit copy(Produit p) {
+        Produit copy = new Produit(p.getId(), p.getNom(), p.getCategorieId(), p.getPrixVente(), p.getStockActuel(), p.getSeuilAlerte());
+        copy.setVersion(p.getVersion());
+        return copy;
+    }
+}
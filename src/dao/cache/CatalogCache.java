@@ -0,0 +1,49 @@
+package dao.cache;
+
+import models.Categorie;
+import models.Produit;
+
+import java.util.List;
+
+/**
+ * Caches partagés du catalogue (produits et catégories)
+ *
+ * Le catalogue change peu pendant le service: les lectures de
+ * CachedProduitDAO et CachedCategorieDAO sont servies depuis une
+ * photographie de la table, relue au plus toutes les TTL_MS. Toute
+ * écriture faite par ce poste l'invalide aussitôt, y compris les
+ * mouvements de stock passés par d'autres DAO (validation de commande,
+ * mouvement de stock). Les modifications faites par un autre poste sont
+ * vues au plus tard après TTL_MS; un update() à partir d'une copie
+ * périmée est de toute façon refusé (verrouillage optimiste).
+ */
+public final class CatalogCache {
+
+    // Configuration
+    private static final long TTL_MS = 60 * 1000;
+    private static final int MAX_ROWS = 5_000;
+
+    static final SnapshotCache<Produit> PRODUITS = new SnapshotCache<>("produit", TTL_MS, MAX_ROWS);
+    static final SnapshotCache<Categorie> CATEGORIES = new SnapshotCache<>("categorie", TTL_MS, MAX_ROWS);
+
+    private CatalogCache() {
+    }
+
+    /**
+     * À appeler après toute modification de la table produit (dont le stock)
+     */
+    public static void invalidateProduits() {
+        PRODUITS.invalidate();
+    }
+
+    /**
+     * À appeler après toute modification de la table categorie
+     */
+    public static void invalidateCategories() {
+        CATEGORIES.invalidate();
+    }
+
+    public static List<CacheStats> getStats() {
+        return List.of(PRODUITS.stats(), CATEGORIES.stats());
+    }
+}
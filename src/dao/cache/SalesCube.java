@@ -0,0 +1,307 @@
+package dao.cache;
+
+import dao.DAOFactory;
+import models.VenteProduit;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Cube des ventes en mémoire: quantité et chiffre d'affaires par (jour, catégorie, produit)
+ *
+ * Chargé une fois depuis les lignes des commandes VALIDEE
+ * (CommandeDAO.forEachVente), puis tenu à jour par les DAO de commandes:
+ * record() à la validation d'une commande, remove() à l'annulation d'une
+ * commande validée. Les autres modifications de commandes validées
+ * (suppression, ajout de lignes, modification par lot) et celles faites par
+ * un autre poste (dao.ChangePoller, qui ignore les écritures de ce poste)
+ * appellent invalidate(): le cube est rechargé à la requête suivante. Ce
+ * rechargement lit toutes les ventes: les requêtes ne doivent pas être
+ * appelées depuis le thread Swing.
+ *
+ * Chaque jour a ses cellules, une par produit vendu, dans des tableaux de
+ * primitives (produit, catégorie, quantité, chiffre d'affaires); les jours
+ * sont indexés par leur écart au premier jour du cube. Une requête sur une
+ * période ne parcourt que les cellules de ses jours. Les requêtes se font
+ * sous le verrou de lecture (plusieurs à la fois), les mises à jour sous
+ * le verrou d'écriture.
+ *
+ * Une écriture suivie de record() ou remove() est encadrée par
+ * beginUpdate() / endUpdate(), du début de sa transaction à la mise à jour
+ * du cube: un chargement qui la chevauche a pu lire la vente déjà validée
+ * en base; il est installé mais reste périmé, et record() ne peut pas
+ * compter la vente deux fois dans un cube considéré comme à jour.
+ *
+ * La catégorie d'une vente est celle du produit au chargement ou à la
+ * validation.
+ */
+public final class SalesCube {
+
+    /**
+     * Cellules d'un jour (tableaux agrandis au besoin)
+     */
+    private static final class Jour {
+        int size = 0;
+        int[] produits = new int[8];
+        int[] categories = new int[8];
+        long[] quantites = new long[8];
+        double[] chiffres = new double[8];
+
+        void add(int produitId, int categorieId, long quantite, double chiffre) {
+            int i = 0;
+            while (i < size && produits[i] != produitId) {
+                i++;
+            }
+            if (i == size) {
+                if (size == produits.length) {
+                    int capacity = size * 2;
+                    produits = Arrays.copyOf(produits, capacity);
+                    categories = Arrays.copyOf(categories, capacity);
+                    quantites = Arrays.copyOf(quantites, capacity);
+                    chiffres = Arrays.copyOf(chiffres, capacity);
+                }
+                produits[i] = produitId;
+                categories[i] = categorieId;
+                size++;
+            }
+            quantites[i] += quantite;
+            chiffres[i] += chiffre;
+        }
+    }
+
+    private static final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // Un seul chargement à la fois
+    private static final ReentrantLock loadLock = new ReentrantLock();
+
+    // Protégés par lock
+    private static long origin = 0;             // epochDay de jours[0]
+    private static Jour[] jours = null;         // null: pas encore chargé
+    private static boolean stale = true;
+    private static long generation = 0;         // incrémenté à chaque mise à jour ou invalidation
+    private static int pending = 0;             // écritures entre beginUpdate() et endUpdate()
+
+    private SalesCube() {
+    }
+
+    /**
+     * Annonce une écriture dont les ventes seront reportées par record() ou
+     * remove(), avant sa transaction; toujours suivi de endUpdate() (finally)
+     */
+    public static void beginUpdate() {
+        lock.writeLock().lock();
+        try {
+            pending++;
+            generation++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Fin d'une écriture annoncée par beginUpdate(), après record() ou remove()
+     * (ou après l'échec de la transaction)
+     */
+    public static void endUpdate() {
+        lock.writeLock().lock();
+        try {
+            pending--;
+            generation++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Ajoute les ventes d'une commande validée
+     */
+    public static void record(List<VenteProduit> ventes) {
+        apply(ventes, 1);
+    }
+
+    /**
+     * Retire les ventes d'une commande validée puis annulée
+     */
+    public static void remove(List<VenteProduit> ventes) {
+        apply(ventes, -1);
+    }
+
+    /**
+     * Le cube sera rechargé à la requête suivante
+     */
+    public static void invalidate() {
+        lock.writeLock().lock();
+        try {
+            stale = true;
+            generation++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static void apply(List<VenteProduit> ventes, int sign) {
+        lock.writeLock().lock();
+        try {
+            generation++;
+            // Pas encore chargé: le chargement lira ces ventes en base
+            if (jours != null) {
+                for (VenteProduit vente : ventes) {
+                    jour(vente.getJour().toEpochDay()).add(vente.getProduitId(), vente.getCategorieId(),
+                            sign * vente.getQuantite(), sign * vente.getChiffreAffaires());
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Cellules du jour, en agrandissant le tableau des jours au besoin (sous le verrou d'écriture)
+     */
+    private static Jour jour(long epochDay) {
+        if (jours.length == 0) {
+            origin = epochDay;
+            jours = new Jour[1];
+        } else if (epochDay < origin) {
+            Jour[] agrandi = new Jour[(int) (jours.length + origin - epochDay)];
+            System.arraycopy(jours, 0, agrandi, (int) (origin - epochDay), jours.length);
+            jours = agrandi;
+            origin = epochDay;
+        } else if (epochDay - origin >= jours.length) {
+            jours = Arrays.copyOf(jours, (int) Math.max(epochDay - origin + 1, jours.length * 2L));
+        }
+        int i = (int) (epochDay - origin);
+        if (jours[i] == null) {
+            jours[i] = new Jour();
+        }
+        return jours[i];
+    }
+
+    /**
+     * Chiffre d'affaires de la période, par catégorie
+     *
+     * @param debut Premier jour inclus
+     * @param fin Dernier jour inclus
+     */
+    public static Map<Integer, Double> chiffreAffairesParCategorie(LocalDate debut, LocalDate fin) throws Exception {
+        Map<Integer, Double> parCategorie = new TreeMap<>();
+        query(debut, fin, jour -> {
+            for (int i = 0; i < jour.size; i++) {
+                // Cellule vidée par une annulation
+                if (jour.quantites[i] != 0) {
+                    parCategorie.merge(jour.categories[i], jour.chiffres[i], Double::sum);
+                }
+            }
+        });
+        return parCategorie;
+    }
+
+    /**
+     * Produits les plus vendus (en quantité) sur la période, cumulés sans jour
+     *
+     * @param limit Nombre maximal de produits retournés
+     */
+    public static List<VenteProduit> topProduits(LocalDate debut, LocalDate fin, int limit) throws Exception {
+        Map<Integer, VenteProduit> parProduit = new HashMap<>();
+        query(debut, fin, jour -> {
+            for (int i = 0; i < jour.size; i++) {
+                VenteProduit cumul = parProduit.get(jour.produits[i]);
+                parProduit.put(jour.produits[i], new VenteProduit(null, jour.categories[i], jour.produits[i],
+                        jour.quantites[i] + (cumul != null ? cumul.getQuantite() : 0),
+                        jour.chiffres[i] + (cumul != null ? cumul.getChiffreAffaires() : 0)));
+            }
+        });
+        List<VenteProduit> top = new ArrayList<>();
+        for (VenteProduit vente : parProduit.values()) {
+            if (vente.getQuantite() > 0) {
+                top.add(vente);
+            }
+        }
+        top.sort(Comparator.comparingLong(VenteProduit::getQuantite).reversed()
+                .thenComparingInt(VenteProduit::getProduitId));
+        return top.size() > limit ? new ArrayList<>(top.subList(0, limit)) : top;
+    }
+
+    private interface JourVisitor {
+        void visit(Jour jour);
+    }
+
+    /**
+     * Parcourt les jours de la période sous le verrou de lecture, après rechargement si besoin
+     */
+    private static void query(LocalDate debut, LocalDate fin, JourVisitor visitor) throws Exception {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            if (jours == null) {
+                return;
+            }
+            long from = Math.max(debut.toEpochDay() - origin, 0);
+            long to = Math.min(fin.toEpochDay() - origin, jours.length - 1L);
+            for (long i = from; i <= to; i++) {
+                if (jours[(int) i] != null) {
+                    visitor.visit(jours[(int) i]);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Recharge le cube s'il n'est pas chargé ou a été invalidé
+     *
+     * La lecture se fait hors du verrou: les requêtes continuent sur l'ancien
+     * cube pendant ce temps. Si une mise à jour arrive pendant la lecture, ou
+     * si une écriture annoncée (beginUpdate) est en cours, on ne sait pas si
+     * la lecture l'a vue: le nouveau cube est installé mais reste marqué
+     * périmé, et sera relu à la requête suivante.
+     */
+    private static void ensureLoaded() throws Exception {
+        lock.readLock().lock();
+        try {
+            if (!stale) {
+                return;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        loadLock.lock();
+        try {
+            long loadGeneration;
+            lock.readLock().lock();
+            try {
+                if (!stale) {
+                    return;
+                }
+                loadGeneration = generation;
+            } finally {
+                lock.readLock().unlock();
+            }
+            List<VenteProduit> ventes = new ArrayList<>();
+            DAOFactory.getCommandeDAO().forEachVente(ventes::add);
+
+            lock.writeLock().lock();
+            try {
+                jours = new Jour[0];
+                origin = 0;
+                for (VenteProduit vente : ventes) {
+                    jour(vente.getJour().toEpochDay()).add(vente.getProduitId(), vente.getCategorieId(),
+                            vente.getQuantite(), vente.getChiffreAffaires());
+                }
+                stale = generation != loadGeneration || pending > 0;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } finally {
+            loadLock.unlock();
+        }
+    }
+}
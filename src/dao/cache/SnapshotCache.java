@@ -0,0 +1,79 @@
+package dao.cache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Photographie d'une table entière, relue au plus toutes les ttlMs
+ *
+ * La liste gardée est non modifiable et ses éléments ne doivent jamais être
+ * modifiés: les DAO cachés retournent des copies. Une table de plus de
+ * maxRows lignes n'est pas gardée (chaque lecture repasse par la base).
+ *
+ * invalidate() oublie la photographie; un chargement commencé avant une
+ * invalidation n'est pas gardé, pour ne pas réinstaller des données périmées.
+ *
+ * @param <T> Le type d'entité
+ */
+final class SnapshotCache<T> {
+
+    /**
+     * Lecture de la table complète, dans l'ordre attendu par les appelants
+     */
+    interface Loader<T> {
+        List<T> load() throws Exception;
+    }
+
+    private final String name;
+    private final long ttlMs;
+    private final int maxRows;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+    private List<T> rows = null;
+    private long loadedAt = 0;
+    private long generation = 0;
+
+    SnapshotCache(String name, long ttlMs, int maxRows) {
+        this.name = name;
+        this.ttlMs = ttlMs;
+        this.maxRows = maxRows;
+    }
+
+    /**
+     * Retourne la photographie, chargée par loader si absente ou expirée
+     */
+    List<T> get(Loader<T> loader) throws Exception {
+        long loadGeneration;
+        synchronized (this) {
+            if (rows != null && System.currentTimeMillis() - loadedAt < ttlMs) {
+                hits.incrementAndGet();
+                return rows;
+            }
+            loadGeneration = generation;
+        }
+        misses.incrementAndGet();
+        List<T> loaded = Collections.unmodifiableList(new ArrayList<>(loader.load()));
+        synchronized (this) {
+            if (generation == loadGeneration && loaded.size() <= maxRows) {
+                rows = loaded;
+                loadedAt = System.currentTimeMillis();
+            }
+        }
+        return loaded;
+    }
+
+    synchronized void invalidate() {
+        rows = null;
+        generation++;
+        invalidations.incrementAndGet();
+    }
+
+    synchronized CacheStats stats() {
+        return new CacheStats(name, rows != null ? rows.size() : 0,
+                rows != null ? System.currentTimeMillis() - loadedAt : -1,
+                hits.get(), misses.get(), invalidations.get());
+    }
+}
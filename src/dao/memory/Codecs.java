@@ -0,0 +1,155 @@
+package dao.memory;
+
+import models.AuditEntry;
+import models.Categorie;
+import models.Commande;
+import models.LigneCommande;
+import models.MouvementStock;
+import models.Produit;
+import models.Utilisateur;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Codecs des entités stockées en mémoire
+ *
+ * L'ordre des champs est celui des colonnes de la table MySQL correspondante.
+ */
+final class Codecs {
+
+    private Codecs() {
+    }
+
+    static final EntityCodec<Utilisateur> UTILISATEUR = new EntityCodec<>() {
+        public int getId(Utilisateur u) { return u.getId(); }
+        public void setId(Utilisateur u, int id) { u.setId(id); }
+        public Utilisateur copy(Utilisateur u) { return new Utilisateur(u.getId(), u.getLogin(), u.getMotDePasse()); }
+        public String[] encode(Utilisateur u) {
+            return new String[]{String.valueOf(u.getId()), u.getLogin(), u.getMotDePasse()};
+        }
+        public Utilisateur decode(String[] f) {
+            return new Utilisateur(Integer.parseInt(f[0]), f[1], f[2]);
+        }
+    };
+
+    static final EntityCodec<Categorie> CATEGORIE = new EntityCodec<>() {
+        public int getId(Categorie c) { return c.getId(); }
+        public void setId(Categorie c, int id) { c.setId(id); }
+        public Categorie copy(Categorie c) { return new Categorie(c.getId(), c.getLibelle()); }
+        public String[] encode(Categorie c) {
+            return new String[]{String.valueOf(c.getId()), c.getLibelle()};
+        }
+        public Categorie decode(String[] f) {
+            return new Categorie(Integer.parseInt(f[0]), f[1]);
+        }
+    };
+
+    static final EntityCodec<Produit> PRODUIT = new EntityCodec<>() {
+        public int getId(Produit p) { return p.getId(); }
+        public void setId(Produit p, int id) { p.setId(id); }
+        public Produit copy(Produit p) {
+            Produit copy = new Produit(p.getId(), p.getNom(), p.getCategorieId(), p.getPrixVente(), p.getStockActuel(), p.getSeuilAlerte());
+            copy.setVersion(p.getVersion());
+            return copy;
+        }
+        public String[] encode(Produit p) {
+            return new String[]{String.valueOf(p.getId()), p.getNom(), String.valueOf(p.getCategorieId()),
+                    String.valueOf(p.getPrixVente()), String.valueOf(p.getStockActuel()), String.valueOf(p.getSeuilAlerte()),
+                    String.valueOf(p.getVersion())};
+        }
+        public Produit decode(String[] f) {
+            Produit p = new Produit(Integer.parseInt(f[0]), f[1], Integer.parseInt(f[2]),
+                    Double.parseDouble(f[3]), Integer.parseInt(f[4]), Integer.parseInt(f[5]));
+            p.setVersion(version(f, 6));
+            return p;
+        }
+    };
+
+    static final EntityCodec<Commande> COMMANDE = new EntityCodec<>() {
+        public int getId(Commande c) { return c.getId(); }
+        public void setId(Commande c, int id) { c.setId(id); }
+        public Commande copy(Commande c) {
+            Commande copy = new Commande(c.getId(), c.getDateCommande(), c.getEtat(), c.getTotal());
+            copy.setVersion(c.getVersion());
+            copy.setCreatedAt(c.getCreatedAt());
+            copy.setValidatedAt(c.getValidatedAt());
+            return copy;
+        }
+        public String[] encode(Commande c) {
+            return new String[]{String.valueOf(c.getId()), String.valueOf(c.getDateCommande()),
+                    c.getEtat().name(), String.valueOf(c.getTotal()), String.valueOf(c.getVersion()),
+                    c.getCreatedAt() != null ? String.valueOf(c.getCreatedAt()) : null,
+                    c.getValidatedAt() != null ? String.valueOf(c.getValidatedAt()) : null};
+        }
+        public Commande decode(String[] f) {
+            Commande c = new Commande(Integer.parseInt(f[0]), LocalDate.parse(f[1]),
+                    Commande.EtatCommande.valueOf(f[2]), Double.parseDouble(f[3]));
+            c.setVersion(version(f, 4));
+            c.setCreatedAt(dateTime(f, 5));
+            c.setValidatedAt(dateTime(f, 6));
+            return c;
+        }
+    };
+
+    static final EntityCodec<LigneCommande> LIGNE_COMMANDE = new EntityCodec<>() {
+        public int getId(LigneCommande l) { return l.getId(); }
+        public void setId(LigneCommande l, int id) { l.setId(id); }
+        public LigneCommande copy(LigneCommande l) {
+            return new LigneCommande(l.getId(), l.getCommandeId(), l.getProduitId(), l.getQuantite(), l.getPrixUnitaire());
+        }
+        public String[] encode(LigneCommande l) {
+            return new String[]{String.valueOf(l.getId()), String.valueOf(l.getCommandeId()), String.valueOf(l.getProduitId()),
+                    String.valueOf(l.getQuantite()), String.valueOf(l.getPrixUnitaire())};
+        }
+        public LigneCommande decode(String[] f) {
+            return new LigneCommande(Integer.parseInt(f[0]), Integer.parseInt(f[1]), Integer.parseInt(f[2]),
+                    Integer.parseInt(f[3]), Double.parseDouble(f[4]));
+        }
+    };
+
+    static final EntityCodec<MouvementStock> MOUVEMENT_STOCK = new EntityCodec<>() {
+        public int getId(MouvementStock m) { return m.getId(); }
+        public void setId(MouvementStock m, int id) { m.setId(id); }
+        public MouvementStock copy(MouvementStock m) {
+            return new MouvementStock(m.getId(), m.getProduitId(), m.getType(), m.getQuantite(), m.getDateMouvement(), m.getMotif());
+        }
+        public String[] encode(MouvementStock m) {
+            return new String[]{String.valueOf(m.getId()), String.valueOf(m.getProduitId()), m.getType().name(),
+                    String.valueOf(m.getQuantite()), String.valueOf(m.getDateMouvement()), m.getMotif()};
+        }
+        public MouvementStock decode(String[] f) {
+            return new MouvementStock(Integer.parseInt(f[0]), Integer.parseInt(f[1]),
+                    MouvementStock.TypeMouvement.valueOf(f[2]), Integer.parseInt(f[3]), LocalDate.parse(f[4]), f[5]);
+        }
+    };
+
+    static final EntityCodec<AuditEntry> HISTORIQUE = new EntityCodec<>() {
+        public int getId(AuditEntry a) { return a.getId(); }
+        public void setId(AuditEntry a, int id) { throw new UnsupportedOperationException("AuditEntry est immuable"); }
+        public AuditEntry copy(AuditEntry a) { return a; }
+        public String[] encode(AuditEntry a) {
+            return new String[]{String.valueOf(a.getId()), a.getAction(), a.getTableName(),
+                    a.getRecordId() != null ? String.valueOf(a.getRecordId()) : null,
+                    a.getUser(), a.getDetails(), String.valueOf(a.getCreatedAt())};
+        }
+        public AuditEntry decode(String[] f) {
+            return new AuditEntry(Integer.parseInt(f[0]), f[1], f[2], f[3] != null ? Integer.valueOf(f[3]) : null,
+                    f[4], f[5], LocalDateTime.parse(f[6]));
+        }
+    };
+
+    /**
+     * Colonne de version, absente des fichiers écrits avant son ajout
+     */
+    private static int version(String[] f, int index) {
+        return f.length > index ? Integer.parseInt(f[index]) : 0;
+    }
+
+    /**
+     * Date et heure facultative, absente des fichiers écrits avant son ajout
+     */
+    private static LocalDateTime dateTime(String[] f, int index) {
+        return f.length > index && f[index] != null ? LocalDateTime.parse(f[index]) : null;
+    }
+}
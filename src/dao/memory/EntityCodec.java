@@ -0,0 +1,29 @@
+package dao.memory;
+
+/**
+ * Description d'une entité pour le stockage en mémoire
+ *
+ * Fournit l'identifiant, la copie défensive et la conversion en champs texte
+ * utilisée par le journal et les snapshots.
+ *
+ * @param <T> Le type d'entité
+ */
+interface EntityCodec<T> {
+
+    int getId(T t);
+
+    void setId(T t, int id);
+
+    /**
+     * Copie indépendante: le store ne partage jamais ses instances avec les appelants
+     */
+    T copy(T t);
+
+    String[] encode(T t);
+
+    /**
+     * Reconstruit l'entité; les champs absents en fin de ligne (format plus ancien)
+     * prennent leur valeur par défaut.
+     */
+    T decode(String[] fields);
+}
@@ -0,0 +1,138 @@
+package dao.memory;
+
+import dao.CategorieDAO;
+import models.Categorie;
+
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * CategorieDAO servi par le stockage en mémoire
+ */
+public class MemoryCategorieDAO extends CategorieDAO {
+
+    private final MemoryStore store;
+
+    public MemoryCategorieDAO(MemoryStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public void create(Categorie categorie) throws Exception {
+        store.write(() -> {
+            checkLibelleUnique(categorie);
+            store.insert(store.categories, categorie);
+            return null;
+        });
+    }
+
+    @Override
+    public Categorie read(int id) throws Exception {
+        return store.read(() -> store.categories.get(id));
+    }
+
+    @Override
+    public Map<Integer, Categorie> readByIds(Collection<Integer> ids) throws Exception {
+        return store.read(() -> store.categories.getAll(ids));
+    }
+
+    @Override
+    public List<Categorie> readAll() throws Exception {
+        return store.read(() -> {
+            List<Categorie> categories = store.categories.all();
+            categories.sort(Comparator.comparing(Categorie::getLibelle, String.CASE_INSENSITIVE_ORDER));
+            return categories;
+        });
+    }
+
+    @Override
+    public void update(Categorie categorie) throws Exception {
+        store.write(() -> {
+            checkLibelleUnique(categorie);
+            return store.update(store.categories, categorie);
+        });
+    }
+
+    @Override
+    public void delete(int id) throws Exception {
+        store.write(() -> {
+            checkNonUtilisee(id);
+            return store.delete(store.categories, id);
+        });
+    }
+
+    @Override
+    public List<Integer> createAll(List<Categorie> categories) throws Exception {
+        return store.write(() -> {
+            checkLibellesUniques(categories);
+            List<Integer> ids = new ArrayList<>(categories.size());
+            for (Categorie categorie : categories) {
+                store.insert(store.categories, categorie);
+                ids.add(categorie.getId());
+            }
+            return ids;
+        });
+    }
+
+    @Override
+    public void updateAll(List<Categorie> categories) throws Exception {
+        store.write(() -> {
+            checkLibellesUniques(categories);
+            for (Categorie categorie : categories) {
+                store.update(store.categories, categorie);
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public void deleteAll(List<Integer> ids) throws Exception {
+        store.write(() -> {
+            for (Integer id : ids) {
+                checkNonUtilisee(id);
+            }
+            for (Integer id : ids) {
+                store.delete(store.categories, id);
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public boolean existsByLibelle(String libelle) throws Exception {
+        return store.read(() -> !store.categories.idsBy("libelle", libelle.toLowerCase()).isEmpty());
+    }
+
+    private void checkLibelleUnique(Categorie categorie) throws SQLIntegrityConstraintViolationException {
+        for (Integer id : store.categories.idsBy("libelle", categorie.getLibelle().toLowerCase())) {
+            if (id != categorie.getId()) {
+                throw new SQLIntegrityConstraintViolationException("Catégorie déjà existante: " + categorie.getLibelle());
+            }
+        }
+    }
+
+    /**
+     * Unicité des libellés, vis-à-vis de la table et à l'intérieur du lot
+     */
+    private void checkLibellesUniques(List<Categorie> categories) throws SQLIntegrityConstraintViolationException {
+        Set<String> libelles = new HashSet<>();
+        for (Categorie categorie : categories) {
+            checkLibelleUnique(categorie);
+            if (!libelles.add(categorie.getLibelle().toLowerCase())) {
+                throw new SQLIntegrityConstraintViolationException("Catégorie déjà existante: " + categorie.getLibelle());
+            }
+        }
+    }
+
+    private void checkNonUtilisee(int id) throws SQLIntegrityConstraintViolationException {
+        if (!store.produits.idsBy("categorie", id).isEmpty()) {
+            throw new SQLIntegrityConstraintViolationException("Catégorie " + id + " utilisée par des produits");
+        }
+    }
+}
@@ -0,0 +1,436 @@
+package dao.memory;
+
+import dao.CommandeDAO;
+import dao.Page;
+import dao.RowConsumer;
+import dao.StockInsuffisantException;
+import dao.cache.CatalogCache;
+import dao.cache.SalesCube;
+import models.ActiviteHoraire;
+import models.BilanVentes;
+import models.Commande;
+import models.LigneCommande;
+import models.MouvementStock;
+import models.Produit;
+import models.VenteProduit;
+import utils.AuditUtils;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * CommandeDAO servi par le stockage en mémoire
+ */
+public class MemoryCommandeDAO extends CommandeDAO {
+
+    private final MemoryStore store;
+
+    public MemoryCommandeDAO(MemoryStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public void create(Commande commande) throws Exception {
+        stampCreation(commande);
+        store.write(() -> {
+            store.insert(store.commandes, commande);
+            return null;
+        });
+        try { AuditUtils.log("CREATE", "commande", commande.getId(), "system", "total="+commande.getTotal()); } catch (Exception ignore) {}
+    }
+
+    @Override
+    public Commande read(int id) throws Exception {
+        return store.read(() -> store.commandes.get(id));
+    }
+
+    @Override
+    public Map<Integer, Commande> readByIds(Collection<Integer> ids) throws Exception {
+        return store.read(() -> store.commandes.getAll(ids));
+    }
+
+    @Override
+    public List<Commande> readAll() throws Exception {
+        return store.read(() -> {
+            List<Commande> commandes = store.commandes.all();
+            commandes.sort(Comparator.comparing(Commande::getDateCommande)
+                    .thenComparing(Commande::getId).reversed());
+            return commandes;
+        });
+    }
+
+    @Override
+    public void update(Commande commande) throws Exception {
+        SalesCube.beginUpdate();
+        try {
+            List<VenteProduit> retirees = new ArrayList<>();
+            List<Integer> mouvementIds = new ArrayList<>();
+            Commande avant = store.write(() -> {
+                store.checkVersion(store.commandes, commande, Commande::getVersion);
+                Commande stockee = store.commandes.get(commande.getId());
+                if (isValidee(stockee) && !isValidee(commande)) {
+                    retirees.addAll(ventes(commande.getId(), stockee.getDateCommande()));
+                    mouvementIds.addAll(restock(commande.getId(), retirees));
+                }
+                commande.setVersion(commande.getVersion() + 1);
+                store.update(store.commandes, commande);
+                return stockee;
+            });
+            if (!mouvementIds.isEmpty()) {
+                CatalogCache.invalidateProduits();
+            }
+            if (isCancellation(avant, commande)) {
+                SalesCube.remove(retirees);
+            } else if (isValidee(avant) || isValidee(commande)) {
+                SalesCube.invalidate();
+            }
+            try { AuditUtils.log("UPDATE", "commande", commande.getId(), "system", "total="+commande.getTotal()); } catch (Exception ignore) {}
+            if (!mouvementIds.isEmpty()) {
+                try { AuditUtils.logBatch("CREATE", "mouvement_stock", mouvementIds, "system"); } catch (Exception ignore) {}
+            }
+        } finally {
+            SalesCube.endUpdate();
+        }
+    }
+
+    @Override
+    public void delete(int id) throws Exception {
+        Commande avant = store.write(() -> {
+            Commande stockee = store.commandes.get(id);
+            // ON DELETE CASCADE sur ligne_commande
+            for (Integer ligneId : new ArrayList<>(store.lignes.idsBy("commande", id))) {
+                store.delete(store.lignes, ligneId);
+            }
+            store.delete(store.commandes, id);
+            return stockee;
+        });
+        if (isValidee(avant)) {
+            SalesCube.invalidate();
+        }
+        try { AuditUtils.log("DELETE", "commande", id, "system", null); } catch (Exception ignore) {}
+    }
+
+    @Override
+    public List<Integer> createAll(List<Commande> commandes) throws Exception {
+        for (Commande commande : commandes) {
+            stampCreation(commande);
+        }
+        List<Integer> ids = store.write(() -> {
+            List<Integer> created = new ArrayList<>(commandes.size());
+            for (Commande commande : commandes) {
+                store.insert(store.commandes, commande);
+                created.add(commande.getId());
+            }
+            return created;
+        });
+        try { AuditUtils.logBatch("CREATE", "commande", ids, "system"); } catch (Exception ignore) {}
+        return ids;
+    }
+
+    @Override
+    public void updateAll(List<Commande> commandes) throws Exception {
+        List<Integer> mouvementIds = new ArrayList<>();
+        boolean validees = store.write(() -> {
+            boolean touchees = false;
+            for (Commande commande : commandes) {
+                store.checkVersion(store.commandes, commande, Commande::getVersion);
+                touchees |= isValidee(store.commandes.get(commande.getId())) || isValidee(commande);
+            }
+            for (Commande commande : commandes) {
+                Commande stockee = store.commandes.get(commande.getId());
+                if (isValidee(stockee) && !isValidee(commande)) {
+                    mouvementIds.addAll(restock(commande.getId(), ventes(commande.getId(), stockee.getDateCommande())));
+                }
+                commande.setVersion(commande.getVersion() + 1);
+                store.update(store.commandes, commande);
+            }
+            return touchees;
+        });
+        if (!mouvementIds.isEmpty()) {
+            CatalogCache.invalidateProduits();
+        }
+        if (validees) {
+            SalesCube.invalidate();
+        }
+        try { AuditUtils.logBatch("UPDATE", "commande", idsOf(commandes), "system"); } catch (Exception ignore) {}
+        if (!mouvementIds.isEmpty()) {
+            try { AuditUtils.logBatch("CREATE", "mouvement_stock", mouvementIds, "system"); } catch (Exception ignore) {}
+        }
+    }
+
+    @Override
+    public void deleteAll(List<Integer> ids) throws Exception {
+        boolean validees = store.write(() -> {
+            boolean touchees = false;
+            for (Integer id : ids) {
+                touchees |= isValidee(store.commandes.get(id));
+                for (Integer ligneId : new ArrayList<>(store.lignes.idsBy("commande", id))) {
+                    store.delete(store.lignes, ligneId);
+                }
+                store.delete(store.commandes, id);
+            }
+            return touchees;
+        });
+        if (validees) {
+            SalesCube.invalidate();
+        }
+        try { AuditUtils.logBatch("DELETE", "commande", ids, "system"); } catch (Exception ignore) {}
+    }
+
+    @Override
+    public List<Integer> addLignes(int commandeId, List<LigneCommande> lignes) throws Exception {
+        if (lignes.isEmpty()) {
+            return new ArrayList<>();
+        }
+        double[] montant = {0};
+        boolean[] validee = {false};
+        List<Integer> ids = store.write(() -> {
+            Commande commande = store.commandes.get(commandeId);
+            if (commande == null) {
+                throw new SQLException("Commande introuvable: " + commandeId);
+            }
+            for (LigneCommande ligne : lignes) {
+                if (!store.produits.contains(ligne.getProduitId())) {
+                    throw new SQLIntegrityConstraintViolationException("Produit inconnu: " + ligne.getProduitId());
+                }
+            }
+            List<Integer> created = new ArrayList<>(lignes.size());
+            for (LigneCommande ligne : lignes) {
+                ligne.setCommandeId(commandeId);
+                store.insert(store.lignes, ligne);
+                created.add(ligne.getId());
+                montant[0] += ligne.getMontantLigne();
+            }
+            commande.setTotal(commande.getTotal() + montant[0]);
+            commande.setVersion(commande.getVersion() + 1);
+            store.update(store.commandes, commande);
+            validee[0] = isValidee(commande);
+            return created;
+        });
+        if (validee[0]) {
+            SalesCube.invalidate();
+        }
+        try { AuditUtils.logBatch("CREATE", "ligne_commande", ids, "system"); } catch (Exception ignore) {}
+        try { AuditUtils.log("UPDATE", "commande", commandeId, "system", "total+="+montant[0]); } catch (Exception ignore) {}
+        return ids;
+    }
+
+    @Override
+    public void validate(int commandeId) throws Exception {
+        SalesCube.beginUpdate();
+        try {
+            List<VenteProduit> vendues = new ArrayList<>();
+            List<Integer> mouvementIds = store.write(() -> {
+                Commande commande = store.commandes.get(commandeId);
+                if (commande == null || commande.getEtat() != Commande.EtatCommande.EN_COURS) {
+                    throw new SQLException("Commande introuvable ou déjà traitée: " + commandeId);
+                }
+                Map<Integer, Integer> quantites = new TreeMap<>();
+                for (LigneCommande ligne : store.lignes.findBy("commande", commandeId)) {
+                    quantites.merge(ligne.getProduitId(), ligne.getQuantite(), Integer::sum);
+                }
+                // Vérifier tous les stocks avant toute modification
+                List<Produit> produits = new ArrayList<>(quantites.size());
+                for (Map.Entry<Integer, Integer> entry : quantites.entrySet()) {
+                    Produit produit = store.produits.get(entry.getKey());
+                    int stock = produit != null ? produit.getStockActuel() : 0;
+                    if (stock < entry.getValue()) {
+                        throw new StockInsuffisantException(entry.getKey(), stock, entry.getValue());
+                    }
+                    produits.add(produit);
+                }
+                vendues.addAll(ventes(commandeId, commande.getDateCommande()));
+                commande.setEtat(Commande.EtatCommande.VALIDEE);
+                commande.setValidatedAt(maintenant());
+                commande.setVersion(commande.getVersion() + 1);
+                store.update(store.commandes, commande);
+                List<Integer> created = new ArrayList<>(produits.size());
+                for (Produit produit : produits) {
+                    int quantite = quantites.get(produit.getId());
+                    produit.setStockActuel(produit.getStockActuel() - quantite);
+                    produit.setVersion(produit.getVersion() + 1);
+                    store.update(store.produits, produit);
+                    MouvementStock sortie = new MouvementStock(0, produit.getId(), MouvementStock.TypeMouvement.SORTIE,
+                            quantite, LocalDate.now(), "Commande #" + commandeId);
+                    store.insert(store.mouvements, sortie);
+                    created.add(sortie.getId());
+                }
+                return created;
+            });
+            CatalogCache.invalidateProduits();
+            SalesCube.record(vendues);
+            try { AuditUtils.log("UPDATE", "commande", commandeId, "system", "etat=VALIDEE"); } catch (Exception ignore) {}
+            if (!mouvementIds.isEmpty()) {
+                try { AuditUtils.logBatch("CREATE", "mouvement_stock", mouvementIds, "system"); } catch (Exception ignore) {}
+            }
+        } finally {
+            SalesCube.endUpdate();
+        }
+    }
+
+    @Override
+    public List<Commande> readByDate(LocalDate date) throws Exception {
+        return store.read(() -> {
+            List<Commande> commandes = store.commandes.findBy("date", date);
+            commandes.sort(Comparator.comparing(Commande::getId).reversed());
+            return commandes;
+        });
+    }
+
+    @Override
+    public double calculateTotalSalesByDate(LocalDate date) throws Exception {
+        return calculateTotalSalesBetween(date, date);
+    }
+
+    @Override
+    public double calculateTotalSalesBetween(LocalDate dateDebut, LocalDate dateFin) throws Exception {
+        return store.read(() -> {
+            double total = 0;
+            for (LocalDate d = dateDebut; !d.isAfter(dateFin); d = d.plusDays(1)) {
+                for (Commande c : store.commandes.findBy("date", d)) {
+                    if (c.getEtat() == Commande.EtatCommande.VALIDEE) {
+                        total += c.getTotal();
+                    }
+                }
+            }
+            return total;
+        });
+    }
+
+    /**
+     * Pas de table de résumé en mémoire: les commandes sont cumulées à la lecture
+     */
+    @Override
+    public BilanVentes readBilanVentes(LocalDate dateDebut, LocalDate dateFin) throws Exception {
+        int[] compteurs = {0, 0};
+        double[] chiffreAffaires = {0};
+        store.forEach(store.commandes, c -> {
+            if ((dateDebut != null && c.getDateCommande().isBefore(dateDebut))
+                    || (dateFin != null && c.getDateCommande().isAfter(dateFin))) {
+                return;
+            }
+            compteurs[0]++;
+            if (c.getEtat() == Commande.EtatCommande.VALIDEE) {
+                chiffreAffaires[0] += c.getTotal();
+            } else if (c.getEtat() == Commande.EtatCommande.ANNULEE) {
+                compteurs[1]++;
+            }
+        });
+        return new BilanVentes(compteurs[0], chiffreAffaires[0], compteurs[1]);
+    }
+
+    @Override
+    public List<ActiviteHoraire> readActiviteHoraire(LocalDateTime debut, LocalDateTime fin) throws Exception {
+        Map<LocalDateTime, Integer> nbCommandes = new TreeMap<>();
+        Map<LocalDateTime, List<Long>> delais = new TreeMap<>();
+        Map<LocalDateTime, Double> chiffres = new TreeMap<>();
+        store.forEach(store.commandes, c -> {
+            LocalDateTime creation = c.getCreatedAt();
+            if (creation != null && !creation.isBefore(debut) && creation.isBefore(fin)) {
+                nbCommandes.merge(creation.truncatedTo(ChronoUnit.HOURS), 1, Integer::sum);
+            }
+            LocalDateTime validation = c.getValidatedAt();
+            if (isValidee(c) && validation != null && !validation.isBefore(debut) && validation.isBefore(fin)) {
+                LocalDateTime heure = validation.truncatedTo(ChronoUnit.HOURS);
+                chiffres.merge(heure, c.getTotal(), Double::sum);
+                List<Long> heureDelais = delais.computeIfAbsent(heure, h -> new ArrayList<>());
+                if (creation != null) {
+                    heureDelais.add(ChronoUnit.SECONDS.between(creation, validation));
+                }
+            }
+        });
+        Map<LocalDateTime, double[]> ventes = new TreeMap<>();
+        for (Map.Entry<LocalDateTime, Double> entry : chiffres.entrySet()) {
+            List<Long> heureDelais = delais.get(entry.getKey());
+            heureDelais.sort(null);
+            int n = heureDelais.size();
+            double mediane = n == 0 ? Double.NaN
+                    : (heureDelais.get((n - 1) / 2) + heureDelais.get(n / 2)) / 2.0;
+            ventes.put(entry.getKey(), new double[]{entry.getValue(), mediane});
+        }
+        return activiteHoraire(nbCommandes, ventes);
+    }
+
+    @Override
+    public Page<Commande> readPage(String cursor, int limit, Page.Sort sort) throws Exception {
+        Page.checkLimit(limit);
+        Page.Cursor after = Page.Cursor.decode(cursor);
+        List<Commande> commandes = store.read(() -> store.commandes.seek("date",
+                after != null ? LocalDate.parse(after.getKey()) : null, after != null ? after.getId() : 0,
+                sort == Page.Sort.DESC, limit + 1));
+        return Page.of(commandes, limit, c -> Page.encodeCursor(c.getDateCommande(), c.getId()));
+    }
+
+    /**
+     * Les lignes sont copiées par tranches depuis la mémoire: reuseRow est sans objet
+     */
+    @Override
+    public void forEach(RowConsumer<Commande> action, boolean reuseRow) throws Exception {
+        store.forEach(store.commandes, action);
+    }
+
+    @Override
+    public void forEachVente(RowConsumer<VenteProduit> action) throws Exception {
+        List<VenteProduit> ventes = store.read(() -> {
+            List<VenteProduit> toutes = new ArrayList<>();
+            for (Commande commande : store.commandes.all()) {
+                if (isValidee(commande)) {
+                    toutes.addAll(ventes(commande.getId(), commande.getDateCommande()));
+                }
+            }
+            return toutes;
+        });
+        for (VenteProduit vente : ventes) {
+            action.accept(vente);
+        }
+    }
+
+    /**
+     * Ventes d'une commande par produit (à appeler sous le verrou du stockage)
+     */
+    /**
+     * Remet en stock les produits d'une commande validée qui quitte l'état
+     * VALIDEE, avec un mouvement ENTREE par produit (sous le verrou d'écriture)
+     *
+     * @return Les ids des mouvements créés
+     */
+    private List<Integer> restock(int commandeId, List<VenteProduit> retirees) throws IOException {
+        List<Integer> created = new ArrayList<>(retirees.size());
+        for (VenteProduit vente : retirees) {
+            Produit produit = store.produits.get(vente.getProduitId());
+            if (produit == null) {
+                continue;
+            }
+            produit.setStockActuel(produit.getStockActuel() + (int) vente.getQuantite());
+            produit.setVersion(produit.getVersion() + 1);
+            store.update(store.produits, produit);
+            MouvementStock entree = new MouvementStock(0, produit.getId(), MouvementStock.TypeMouvement.ENTREE,
+                    (int) vente.getQuantite(), LocalDate.now(), "Annulation commande #" + commandeId);
+            store.insert(store.mouvements, entree);
+            created.add(entree.getId());
+        }
+        return created;
+    }
+
+    private List<VenteProduit> ventes(int commandeId, LocalDate jour) {
+        Map<Integer, VenteProduit> parProduit = new TreeMap<>();
+        for (LigneCommande ligne : store.lignes.findBy("commande", commandeId)) {
+            VenteProduit cumul = parProduit.get(ligne.getProduitId());
+            Produit produit = store.produits.get(ligne.getProduitId());
+            parProduit.put(ligne.getProduitId(), new VenteProduit(jour, produit != null ? produit.getCategorieId() : 0,
+                    ligne.getProduitId(), ligne.getQuantite() + (cumul != null ? cumul.getQuantite() : 0),
+                    ligne.getMontantLigne() + (cumul != null ? cumul.getChiffreAffaires() : 0)));
+        }
+        return new ArrayList<>(parProduit.values());
+    }
+}
@@ -0,0 +1,53 @@
+package dao.memory;
+
+import dao.HistoriqueDAO;
+import dao.Page;
+import models.AuditEntry;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * HistoriqueDAO servi par le stockage en mémoire
+ */
+public class MemoryHistoriqueDAO extends HistoriqueDAO {
+
+    private final MemoryStore store;
+
+    public MemoryHistoriqueDAO(MemoryStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public List<AuditEntry> readAll(LocalDateTime depuis) throws Exception {
+        return store.read(() -> {
+            // Les ids sont attribués dans l'ordre chronologique
+            List<AuditEntry> entries = store.historique.all();
+            if (depuis != null) {
+                entries.removeIf(a -> a.getCreatedAt().isBefore(depuis));
+            }
+            Collections.reverse(entries);
+            return entries;
+        });
+    }
+
+    @Override
+    public Page<AuditEntry> readPage(String cursor, int limit, Page.Sort sort, LocalDateTime depuis) throws Exception {
+        Page.checkLimit(limit);
+        Page.Cursor after = Page.Cursor.decode(cursor);
+        LocalDateTime afterKey = after != null ? LocalDateTime.parse(after.getKey()) : null;
+        int afterId = after != null ? after.getId() : 0;
+        if (afterKey == null && depuis != null && sort == Page.Sort.ASC) {
+            // (depuis, 0) précède toutes les entrées de date >= depuis
+            afterKey = depuis;
+        }
+        LocalDateTime key = afterKey;
+        List<AuditEntry> entries = store.read(() -> store.historique.seek("created",
+                key, afterId, sort == Page.Sort.DESC, limit + 1));
+        if (depuis != null) {
+            entries.removeIf(a -> a.getCreatedAt().isBefore(depuis));
+        }
+        return Page.of(entries, limit, a -> Page.encodeCursor(a.getCreatedAt(), a.getId()));
+    }
+}
@@ -0,0 +1,160 @@
+package dao.memory;
+
+import dao.LigneAvecProduit;
+import dao.LigneCommandeDAO;
+import dao.RowConsumer;
+import models.LigneCommande;
+import models.Produit;
+import utils.AuditUtils;
+
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * LigneCommandeDAO servi par le stockage en mémoire
+ */
+public class MemoryLigneCommandeDAO extends LigneCommandeDAO {
+
+    private final MemoryStore store;
+
+    public MemoryLigneCommandeDAO(MemoryStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public void create(LigneCommande ligne) throws Exception {
+        store.write(() -> {
+            checkReferences(ligne);
+            store.insert(store.lignes, ligne);
+            return null;
+        });
+        try { AuditUtils.log("CREATE", "ligne_commande", ligne.getId(), "system", "cmd="+ligne.getCommandeId()+" prod="+ligne.getProduitId()); } catch (Exception ignore) {}
+    }
+
+    @Override
+    public LigneCommande read(int id) throws Exception {
+        return store.read(() -> store.lignes.get(id));
+    }
+
+    @Override
+    public Map<Integer, LigneCommande> readByIds(Collection<Integer> ids) throws Exception {
+        return store.read(() -> store.lignes.getAll(ids));
+    }
+
+    @Override
+    public List<LigneCommande> readAll() throws Exception {
+        return store.read(() -> {
+            List<LigneCommande> lignes = store.lignes.all();
+            lignes.sort(Comparator.comparing(LigneCommande::getCommandeId));
+            return lignes;
+        });
+    }
+
+    @Override
+    public void update(LigneCommande ligne) throws Exception {
+        store.write(() -> {
+            checkReferences(ligne);
+            return store.update(store.lignes, ligne);
+        });
+        try { AuditUtils.log("UPDATE", "ligne_commande", ligne.getId(), "system", "cmd="+ligne.getCommandeId()+" prod="+ligne.getProduitId()); } catch (Exception ignore) {}
+    }
+
+    @Override
+    public void delete(int id) throws Exception {
+        store.write(() -> store.delete(store.lignes, id));
+        try { AuditUtils.log("DELETE", "ligne_commande", id, "system", null); } catch (Exception ignore) {}
+    }
+
+    @Override
+    public List<Integer> createAll(List<LigneCommande> lignes) throws Exception {
+        List<Integer> ids = store.write(() -> {
+            for (LigneCommande ligne : lignes) {
+                checkReferences(ligne);
+            }
+            List<Integer> created = new ArrayList<>(lignes.size());
+            for (LigneCommande ligne : lignes) {
+                store.insert(store.lignes, ligne);
+                created.add(ligne.getId());
+            }
+            return created;
+        });
+        try { AuditUtils.logBatch("CREATE", "ligne_commande", ids, "system"); } catch (Exception ignore) {}
+        return ids;
+    }
+
+    @Override
+    public void updateAll(List<LigneCommande> lignes) throws Exception {
+        store.write(() -> {
+            for (LigneCommande ligne : lignes) {
+                checkReferences(ligne);
+            }
+            for (LigneCommande ligne : lignes) {
+                store.update(store.lignes, ligne);
+            }
+            return null;
+        });
+        try { AuditUtils.logBatch("UPDATE", "ligne_commande", idsOf(lignes), "system"); } catch (Exception ignore) {}
+    }
+
+    @Override
+    public void deleteAll(List<Integer> ids) throws Exception {
+        store.write(() -> {
+            for (Integer id : ids) {
+                store.delete(store.lignes, id);
+            }
+            return null;
+        });
+        try { AuditUtils.logBatch("DELETE", "ligne_commande", ids, "system"); } catch (Exception ignore) {}
+    }
+
+    @Override
+    public List<LigneCommande> readByCommande(int commandeId) throws Exception {
+        return store.read(() -> store.lignes.findBy("commande", commandeId));
+    }
+
+    @Override
+    public void deleteByCommande(int commandeId) throws Exception {
+        store.write(() -> {
+            for (Integer id : new ArrayList<>(store.lignes.idsBy("commande", commandeId))) {
+                store.delete(store.lignes, id);
+            }
+            return null;
+        });
+        try { AuditUtils.log("DELETE", "ligne_commande", null, "system", "deleteByCommande="+commandeId); } catch (Exception ignore) {}
+    }
+
+    private void checkReferences(LigneCommande ligne) throws SQLIntegrityConstraintViolationException {
+        if (!store.commandes.contains(ligne.getCommandeId())) {
+            throw new SQLIntegrityConstraintViolationException("Commande inconnue: " + ligne.getCommandeId());
+        }
+        if (!store.produits.contains(ligne.getProduitId())) {
+            throw new SQLIntegrityConstraintViolationException("Produit inconnu: " + ligne.getProduitId());
+        }
+    }
+
+    /**
+     * Les lignes sont copiées par tranches depuis la mémoire: reuseRow est sans objet
+     */
+    @Override
+    public void forEach(RowConsumer<LigneCommande> action, boolean reuseRow) throws Exception {
+        store.forEach(store.lignes, action);
+    }
+
+    @Override
+    public List<LigneAvecProduit> readByCommandeWithProduit(int commandeId) throws Exception {
+        return store.read(() -> {
+            List<LigneCommande> lignes = store.lignes.findBy("commande", commandeId);
+            List<LigneAvecProduit> vues = new ArrayList<>(lignes.size());
+            for (LigneCommande ligne : lignes) {
+                Produit produit = store.produits.get(ligne.getProduitId());
+                vues.add(new LigneAvecProduit(ligne, produit != null ? produit.getNom() : null,
+                        produit != null ? produit.getPrixVente() : null));
+            }
+            return vues;
+        });
+    }
+}
@@ -0,0 +1,190 @@
+package dao.memory;
+
+import dao.MouvementAvecProduit;
+import dao.MouvementStockDAO;
+import dao.Page;
+import dao.RowConsumer;
+import dao.cache.CatalogCache;
+import models.MouvementStock;
+import models.Produit;
+import utils.AuditUtils;
+
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * MouvementStockDAO servi par le stockage en mémoire
+ */
+public class MemoryMouvementStockDAO extends MouvementStockDAO {
+
+    private static final Comparator<MouvementStock> PAR_DATE_DESC =
+            Comparator.comparing(MouvementStock::getDateMouvement).thenComparing(MouvementStock::getId).reversed();
+
+    private final MemoryStore store;
+
+    public MemoryMouvementStockDAO(MemoryStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public void create(MouvementStock mouvement) throws Exception {
+        store.write(() -> {
+            checkProduit(mouvement);
+            store.insert(store.mouvements, mouvement);
+            return null;
+        });
+        try { AuditUtils.log("CREATE", "mouvement_stock", mouvement.getId(), "system", "prod="+mouvement.getProduitId()+" type="+mouvement.getType()); } catch (Exception ignore) {}
+    }
+
+    @Override
+    public MouvementStock read(int id) throws Exception {
+        return store.read(() -> store.mouvements.get(id));
+    }
+
+    @Override
+    public Map<Integer, MouvementStock> readByIds(Collection<Integer> ids) throws Exception {
+        return store.read(() -> store.mouvements.getAll(ids));
+    }
+
+    @Override
+    public List<MouvementStock> readAll() throws Exception {
+        return store.read(() -> {
+            List<MouvementStock> mouvements = store.mouvements.all();
+            mouvements.sort(PAR_DATE_DESC);
+            return mouvements;
+        });
+    }
+
+    @Override
+    public void update(MouvementStock mouvement) throws Exception {
+        store.write(() -> {
+            checkProduit(mouvement);
+            return store.update(store.mouvements, mouvement);
+        });
+        try { AuditUtils.log("UPDATE", "mouvement_stock", mouvement.getId(), "system", "prod="+mouvement.getProduitId()+" type="+mouvement.getType()); } catch (Exception ignore) {}
+    }
+
+    @Override
+    public void delete(int id) throws Exception {
+        store.write(() -> store.delete(store.mouvements, id));
+        try { AuditUtils.log("DELETE", "mouvement_stock", id, "system", null); } catch (Exception ignore) {}
+    }
+
+    @Override
+    public List<Integer> createAll(List<MouvementStock> mouvements) throws Exception {
+        List<Integer> ids = store.write(() -> {
+            for (MouvementStock mouvement : mouvements) {
+                checkProduit(mouvement);
+            }
+            List<Integer> created = new ArrayList<>(mouvements.size());
+            for (MouvementStock mouvement : mouvements) {
+                store.insert(store.mouvements, mouvement);
+                created.add(mouvement.getId());
+            }
+            return created;
+        });
+        try { AuditUtils.logBatch("CREATE", "mouvement_stock", ids, "system"); } catch (Exception ignore) {}
+        return ids;
+    }
+
+    @Override
+    public void updateAll(List<MouvementStock> mouvements) throws Exception {
+        store.write(() -> {
+            for (MouvementStock mouvement : mouvements) {
+                checkProduit(mouvement);
+            }
+            for (MouvementStock mouvement : mouvements) {
+                store.update(store.mouvements, mouvement);
+            }
+            return null;
+        });
+        try { AuditUtils.logBatch("UPDATE", "mouvement_stock", idsOf(mouvements), "system"); } catch (Exception ignore) {}
+    }
+
+    @Override
+    public void deleteAll(List<Integer> ids) throws Exception {
+        store.write(() -> {
+            for (Integer id : ids) {
+                store.delete(store.mouvements, id);
+            }
+            return null;
+        });
+        try { AuditUtils.logBatch("DELETE", "mouvement_stock", ids, "system"); } catch (Exception ignore) {}
+    }
+
+    @Override
+    public boolean createAndApply(MouvementStock mouvement) throws Exception {
+        boolean applied = store.write(() -> {
+            checkProduit(mouvement);
+            int delta = mouvement.getType() == MouvementStock.TypeMouvement.SORTIE
+                    ? -mouvement.getQuantite() : mouvement.getQuantite();
+            if (!MemoryProduitDAO.adjustStock(store, mouvement.getProduitId(), delta)) {
+                return false;
+            }
+            store.insert(store.mouvements, mouvement);
+            return true;
+        });
+        if (applied) {
+            CatalogCache.invalidateProduits();
+            try { AuditUtils.log("CREATE", "mouvement_stock", mouvement.getId(), "system", "prod="+mouvement.getProduitId()+" type="+mouvement.getType()); } catch (Exception ignore) {}
+        }
+        return applied;
+    }
+
+    @Override
+    public List<MouvementStock> readByProduit(int produitId) throws Exception {
+        return store.read(() -> {
+            List<MouvementStock> mouvements = store.mouvements.findBy("produit", produitId);
+            mouvements.sort(PAR_DATE_DESC);
+            return mouvements;
+        });
+    }
+
+    @Override
+    public List<MouvementStock> readByDate(LocalDate date) throws Exception {
+        return store.read(() -> store.mouvements.findBy("date", date));
+    }
+
+    private void checkProduit(MouvementStock mouvement) throws SQLIntegrityConstraintViolationException {
+        if (!store.produits.contains(mouvement.getProduitId())) {
+            throw new SQLIntegrityConstraintViolationException("Produit inconnu: " + mouvement.getProduitId());
+        }
+    }
+
+    @Override
+    public Page<MouvementStock> readPage(String cursor, int limit, Page.Sort sort) throws Exception {
+        Page.checkLimit(limit);
+        Page.Cursor after = Page.Cursor.decode(cursor);
+        List<MouvementStock> mouvements = store.read(() -> store.mouvements.seek("date",
+                after != null ? LocalDate.parse(after.getKey()) : null, after != null ? after.getId() : 0,
+                sort == Page.Sort.DESC, limit + 1));
+        return Page.of(mouvements, limit, m -> Page.encodeCursor(m.getDateMouvement(), m.getId()));
+    }
+
+    /**
+     * Les lignes sont copiées par tranches depuis la mémoire: reuseRow est sans objet
+     */
+    @Override
+    public void forEach(RowConsumer<MouvementStock> action, boolean reuseRow) throws Exception {
+        store.forEach(store.mouvements, action);
+    }
+
+    @Override
+    public List<MouvementAvecProduit> readAllWithProduit() throws Exception {
+        return store.read(() -> {
+            List<MouvementStock> mouvements = store.mouvements.all();
+            mouvements.sort(PAR_DATE_DESC);
+            List<MouvementAvecProduit> vues = new ArrayList<>(mouvements.size());
+            for (MouvementStock mouvement : mouvements) {
+                Produit produit = store.produits.get(mouvement.getProduitId());
+                vues.add(new MouvementAvecProduit(mouvement, produit != null ? produit.getNom() : null));
+            }
+            return vues;
+        });
+    }
+}
@@ -0,0 +1,221 @@
+package dao.memory;
+
+import dao.ProduitAvecCategorie;
+import dao.ProduitDAO;
+import models.Categorie;
+import models.Produit;
+import utils.AuditUtils;
+
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ProduitDAO servi par le stockage en mémoire
+ */
+public class MemoryProduitDAO extends ProduitDAO {
+
+    static final Comparator<Produit> PAR_NOM = Comparator.comparing(Produit::getNom, String.CASE_INSENSITIVE_ORDER);
+
+    private final MemoryStore store;
+
+    public MemoryProduitDAO(MemoryStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public void create(Produit produit) throws Exception {
+        store.write(() -> {
+            checkProduit(produit);
+            store.insert(store.produits, produit);
+            return null;
+        });
+        try {
+            AuditUtils.log("CREATE", "produit", produit.getId(), "system", "nom=" + produit.getNom());
+        } catch (Exception ignore) {}
+    }
+
+    @Override
+    public Produit read(int id) throws Exception {
+        return store.read(() -> store.produits.get(id));
+    }
+
+    @Override
+    public Map<Integer, Produit> readByIds(Collection<Integer> ids) throws Exception {
+        return store.read(() -> store.produits.getAll(ids));
+    }
+
+    @Override
+    public List<Produit> readAll() throws Exception {
+        return store.read(() -> {
+            List<Produit> produits = store.produits.all();
+            produits.sort(PAR_NOM);
+            return produits;
+        });
+    }
+
+    /**
+     * Pas de lecture partielle en mémoire: les produits sont retournés complets
+     */
+    @Override
+    public List<Produit> readAllColumns(String... colonnes) throws Exception {
+        return readAll();
+    }
+
+    @Override
+    public void update(Produit produit) throws Exception {
+        store.write(() -> {
+            checkProduit(produit);
+            store.checkVersion(store.produits, produit, Produit::getVersion);
+            produit.setVersion(produit.getVersion() + 1);
+            return store.update(store.produits, produit);
+        });
+        try {
+            AuditUtils.log("UPDATE", "produit", produit.getId(), "system", "nom=" + produit.getNom());
+        } catch (Exception ignore) {}
+    }
+
+    @Override
+    public void delete(int id) throws Exception {
+        store.write(() -> {
+            checkNonReference(id);
+            return store.delete(store.produits, id);
+        });
+        try {
+            AuditUtils.log("DELETE", "produit", id, "system", null);
+        } catch (Exception ignore) {}
+    }
+
+    @Override
+    public List<Integer> createAll(List<Produit> produits) throws Exception {
+        List<Integer> ids = store.write(() -> {
+            for (Produit produit : produits) {
+                checkProduit(produit);
+            }
+            List<Integer> created = new ArrayList<>(produits.size());
+            for (Produit produit : produits) {
+                store.insert(store.produits, produit);
+                created.add(produit.getId());
+            }
+            return created;
+        });
+        try {
+            AuditUtils.logBatch("CREATE", "produit", ids, "system");
+        } catch (Exception ignore) {}
+        return ids;
+    }
+
+    @Override
+    public void updateAll(List<Produit> produits) throws Exception {
+        store.write(() -> {
+            for (Produit produit : produits) {
+                checkProduit(produit);
+                store.checkVersion(store.produits, produit, Produit::getVersion);
+            }
+            for (Produit produit : produits) {
+                produit.setVersion(produit.getVersion() + 1);
+                store.update(store.produits, produit);
+            }
+            return null;
+        });
+        try {
+            AuditUtils.logBatch("UPDATE", "produit", idsOf(produits), "system");
+        } catch (Exception ignore) {}
+    }
+
+    @Override
+    public void deleteAll(List<Integer> ids) throws Exception {
+        store.write(() -> {
+            for (Integer id : ids) {
+                checkNonReference(id);
+            }
+            for (Integer id : ids) {
+                store.delete(store.produits, id);
+            }
+            return null;
+        });
+        try {
+            AuditUtils.logBatch("DELETE", "produit", ids, "system");
+        } catch (Exception ignore) {}
+    }
+
+    @Override
+    public List<Produit> readByCategorie(int categorieId) throws Exception {
+        return store.read(() -> {
+            List<Produit> produits = store.produits.findBy("categorie", categorieId);
+            produits.sort(PAR_NOM);
+            return produits;
+        });
+    }
+
+    @Override
+    public List<Produit> readAlertProducts() throws Exception {
+        return store.read(() -> {
+            List<Produit> produits = store.produits.filter(Produit::isStockBas);
+            produits.sort(PAR_NOM);
+            return produits;
+        });
+    }
+
+    @Override
+    public void increaseStock(int produitId, int quantite) throws Exception {
+        store.write(() -> {
+            adjustStock(store, produitId, quantite);
+            return null;
+        });
+    }
+
+    @Override
+    public boolean decreaseStock(int produitId, int quantite) throws Exception {
+        return store.write(() -> adjustStock(store, produitId, -quantite));
+    }
+
+    /**
+     * Applique une variation de stock, sous le verrou d'écriture du store
+     *
+     * @return false si le produit n'existe pas ou si le stock deviendrait négatif (rien n'est modifié)
+     */
+    static boolean adjustStock(MemoryStore store, int produitId, int delta) throws Exception {
+        Produit produit = store.produits.get(produitId);
+        if (produit == null || produit.getStockActuel() + delta < 0) {
+            return false;
+        }
+        produit.setStockActuel(produit.getStockActuel() + delta);
+        produit.setVersion(produit.getVersion() + 1);
+        store.update(store.produits, produit);
+        return true;
+    }
+
+    private void checkProduit(Produit produit) throws SQLException {
+        if (!store.categories.contains(produit.getCategorieId())) {
+            throw new SQLIntegrityConstraintViolationException("Catégorie inconnue: " + produit.getCategorieId());
+        }
+        if (produit.getPrixVente() <= 0 || produit.getStockActuel() < 0) {
+            throw new SQLException("Prix ou stock invalide pour le produit " + produit.getNom());
+        }
+    }
+
+    private void checkNonReference(int id) throws SQLIntegrityConstraintViolationException {
+        if (!store.lignes.idsBy("produit", id).isEmpty() || !store.mouvements.idsBy("produit", id).isEmpty()) {
+            throw new SQLIntegrityConstraintViolationException("Produit " + id + " référencé par des commandes ou des mouvements");
+        }
+    }
+
+    @Override
+    public List<ProduitAvecCategorie> readAllWithCategorie() throws Exception {
+        return store.read(() -> {
+            List<Produit> produits = store.produits.all();
+            produits.sort(PAR_NOM);
+            List<ProduitAvecCategorie> vues = new ArrayList<>(produits.size());
+            for (Produit produit : produits) {
+                Categorie categorie = store.categories.get(produit.getCategorieId());
+                vues.add(new ProduitAvecCategorie(produit, categorie != null ? categorie.getLibelle() : null));
+            }
+            return vues;
+        });
+    }
+}
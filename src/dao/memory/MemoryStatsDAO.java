@@ -0,0 +1,45 @@
+package dao.memory;
+
+import dao.StatsDAO;
+import models.Commande;
+import models.Produit;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * StatsDAO servi par le stockage en mémoire
+ */
+public class MemoryStatsDAO extends StatsDAO {
+
+    private final MemoryStore store;
+
+    public MemoryStatsDAO(MemoryStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public Map<Kpi, Double> read(Set<Kpi> kpis) throws Exception {
+        Map<Kpi, Double> valeurs = new EnumMap<>(Kpi.class);
+        // Nombre de commandes et chiffre d'affaires des commandes validées, en un seul parcours
+        double[] commandes = {0, 0};
+        if (kpis.contains(Kpi.TOTAL_COMMANDES) || kpis.contains(Kpi.CHIFFRE_AFFAIRES)) {
+            store.forEach(store.commandes, c -> {
+                commandes[0]++;
+                if (c.getEtat() == Commande.EtatCommande.VALIDEE) {
+                    commandes[1] += c.getTotal();
+                }
+            });
+        }
+        for (Kpi kpi : kpis) {
+            valeurs.put(kpi, switch (kpi) {
+                case TOTAL_COMMANDES -> commandes[0];
+                case CHIFFRE_AFFAIRES -> commandes[1];
+                case TOTAL_PRODUITS -> (double) store.read(() -> store.produits.size());
+                case PRODUITS_EN_ALERTE -> (double) store.read(() -> store.produits.filter(Produit::isStockBas).size());
+            });
+        }
+        return valeurs;
+    }
+}
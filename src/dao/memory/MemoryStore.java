@@ -0,0 +1,470 @@
+package dao.memory;
+
+import dao.OptimisticLockException;
+import dao.RowConsumer;
+import models.AuditEntry;
+import models.Categorie;
+import models.Commande;
+import models.LigneCommande;
+import models.MouvementStock;
+import models.Produit;
+import models.Utilisateur;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.ToIntFunction;
+
+/**
+ * Moteur de stockage embarqué, alternative à MySQL
+ *
+ * Toutes les tables sont gardées en mémoire (MemoryTable) avec leurs index.
+ * La durabilité est assurée par:
+ * - un journal en ajout seul (journal.log): chaque écriture y est ajoutée avant
+ *   que le verrou d'écriture soit rendu
+ * - des snapshots périodiques (snapshot.dat) qui remplacent le journal
+ *
+ * Au démarrage, le dernier snapshot est chargé puis le journal est rejoué.
+ * Les lectures se font sous verrou partagé, les écritures sous verrou exclusif.
+ */
+public final class MemoryStore implements Closeable {
+
+    private static final String SNAPSHOT_FILE = "snapshot.dat";
+    private static final String JOURNAL_FILE = "journal.log";
+    private static final int SNAPSHOT_JOURNAL_THRESHOLD = 10_000;
+    private static final long SNAPSHOT_INTERVAL_MS = 5 * 60 * 1000;
+    private static final int SCAN_CHUNK = 256;
+
+    /**
+     * Opération exécutée sous le verrou du store
+     */
+    public interface StoreAction<R> {
+        R run() throws Exception;
+    }
+
+    final MemoryTable<Utilisateur> utilisateurs = new MemoryTable<>("utilisateur", Codecs.UTILISATEUR)
+            .withIndex("login", u -> u.getLogin().toLowerCase());
+    final MemoryTable<Categorie> categories = new MemoryTable<>("categorie", Codecs.CATEGORIE)
+            .withIndex("libelle", c -> c.getLibelle().toLowerCase());
+    final MemoryTable<Produit> produits = new MemoryTable<>("produit", Codecs.PRODUIT)
+            .withIndex("categorie", Produit::getCategorieId);
+    final MemoryTable<Commande> commandes = new MemoryTable<>("commande", Codecs.COMMANDE)
+            .withOrderedIndex("date", Commande::getDateCommande);
+    final MemoryTable<LigneCommande> lignes = new MemoryTable<>("ligne_commande", Codecs.LIGNE_COMMANDE)
+            .withIndex("commande", LigneCommande::getCommandeId)
+            .withIndex("produit", LigneCommande::getProduitId);
+    final MemoryTable<MouvementStock> mouvements = new MemoryTable<>("mouvement_stock", Codecs.MOUVEMENT_STOCK)
+            .withIndex("produit", MouvementStock::getProduitId)
+            .withOrderedIndex("date", MouvementStock::getDateMouvement);
+    final MemoryTable<AuditEntry> historique = new MemoryTable<>("historique", Codecs.HISTORIQUE)
+            .withOrderedIndex("created", AuditEntry::getCreatedAt);
+
+    private final Map<String, MemoryTable<?>> tables = new LinkedHashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Path directory;
+    private final ScheduledExecutorService snapshotter;
+    private BufferedWriter journal;
+    private int journalEntries = 0;
+    private boolean closed = false;
+
+    private MemoryStore(Path directory) {
+        this.directory = directory;
+        for (MemoryTable<?> table : List.of(utilisateurs, categories, produits, commandes, lignes, mouvements, historique)) {
+            tables.put(table.getName(), table);
+        }
+        this.snapshotter = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "memory-store-snapshot");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Ouvre (ou crée) le store dans le dossier donné
+     *
+     * Un store neuf reçoit les mêmes données initiales que database/restaurant.sql.
+     */
+    public static MemoryStore open(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        MemoryStore store = new MemoryStore(directory);
+        Path snapshot = directory.resolve(SNAPSHOT_FILE);
+        Path journal = directory.resolve(JOURNAL_FILE);
+        boolean fresh = !Files.exists(snapshot) && !Files.exists(journal);
+
+        if (Files.exists(snapshot)) {
+            store.loadSnapshot(snapshot);
+        }
+        if (Files.exists(journal)) {
+            store.replayJournal(journal);
+        }
+        store.journal = Files.newBufferedWriter(journal, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        if (fresh) {
+            store.lock.writeLock().lock();
+            try {
+                store.seed();
+                store.journal.flush();
+            } finally {
+                store.lock.writeLock().unlock();
+            }
+        }
+        store.snapshotter.scheduleWithFixedDelay(store::periodicSnapshot,
+                SNAPSHOT_INTERVAL_MS, SNAPSHOT_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        return store;
+    }
+
+    /**
+     * Exécute une lecture sous verrou partagé
+     */
+    public <R> R read(StoreAction<R> action) throws Exception {
+        lock.readLock().lock();
+        try {
+            return action.run();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Exécute une écriture sous verrou exclusif; le journal est vidé avant de rendre le verrou
+     */
+    public <R> R write(StoreAction<R> action) throws Exception {
+        lock.writeLock().lock();
+        try {
+            R result = action.run();
+            journal.flush();
+            if (journalEntries >= SNAPSHOT_JOURNAL_THRESHOLD) {
+                snapshotter.execute(this::periodicSnapshot);
+            }
+            return result;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Parcourt une table par id croissant, par tranches de SCAN_CHUNK lignes
+     *
+     * Le verrou n'est tenu que pendant la copie d'une tranche, jamais pendant
+     * l'action: celle-ci peut donc écrire dans le store. Les lignes ajoutées
+     * pendant le parcours après la position courante seront vues.
+     */
+    <T> void forEach(MemoryTable<T> table, RowConsumer<T> action) throws Exception {
+        int afterId = 0;
+        while (true) {
+            final int from = afterId;
+            List<T> chunk = read(() -> table.chunkAfter(from, SCAN_CHUNK));
+            for (T row : chunk) {
+                action.accept(row);
+            }
+            if (chunk.size() < SCAN_CHUNK) {
+                return;
+            }
+            afterId = table.getCodec().getId(chunk.get(chunk.size() - 1));
+        }
+    }
+
+    /**
+     * Insère une nouvelle ligne: un id est attribué et reporté sur l'objet
+     */
+    <T> void insert(MemoryTable<T> table, T entity) throws IOException {
+        checkWriteLock();
+        int id = table.allocateId();
+        table.getCodec().setId(entity, id);
+        table.put(entity);
+        appendJournal("P", table, table.getCodec().encode(entity));
+    }
+
+    /**
+     * Insère une ligne dont l'id est déjà fixé (entités immuables)
+     */
+    <T> void insertWithId(MemoryTable<T> table, T entity) throws IOException {
+        checkWriteLock();
+        table.put(entity);
+        appendJournal("P", table, table.getCodec().encode(entity));
+    }
+
+    /**
+     * Remplace une ligne existante; sans effet si l'id n'existe pas (comme un UPDATE SQL)
+     */
+    <T> boolean update(MemoryTable<T> table, T entity) throws IOException {
+        checkWriteLock();
+        if (!table.contains(table.getCodec().getId(entity))) {
+            return false;
+        }
+        table.put(entity);
+        appendJournal("P", table, table.getCodec().encode(entity));
+        return true;
+    }
+
+    /**
+     * Vérifie que la ligne existe encore avec la version lue par l'appelant
+     * (comme UPDATE ... WHERE id = ? AND version = ?)
+     */
+    <T> void checkVersion(MemoryTable<T> table, T entity, ToIntFunction<T> version) throws OptimisticLockException {
+        checkWriteLock();
+        int id = table.getCodec().getId(entity);
+        T actuel = table.get(id);
+        if (actuel == null || version.applyAsInt(actuel) != version.applyAsInt(entity)) {
+            throw new OptimisticLockException(table.getName(), id, version.applyAsInt(entity));
+        }
+    }
+
+    /**
+     * Supprime une ligne; retourne false si elle n'existait pas
+     */
+    boolean delete(MemoryTable<?> table, int id) throws IOException {
+        checkWriteLock();
+        if (!table.remove(id)) {
+            return false;
+        }
+        appendJournal("D", table, new String[]{String.valueOf(id)});
+        return true;
+    }
+
+    /**
+     * Ajoute une entrée d'historique (cible de AuditUtils en mode mémoire)
+     */
+    public void appendAudit(String action, String tableName, Integer recordId, String user, String details) {
+        try {
+            write(() -> {
+                AuditEntry entry = new AuditEntry(historique.allocateId(), action, tableName, recordId,
+                        user != null ? user : "system", details != null ? details : "", LocalDateTime.now());
+                insertWithId(historique, entry);
+                return null;
+            });
+        } catch (Exception e) {
+            throw new IllegalStateException("Écriture de l'historique impossible: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Écrit un snapshot complet et repart d'un journal vide
+     */
+    public void snapshot() throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            Path tmp = directory.resolve(SNAPSHOT_FILE + ".tmp");
+            try (BufferedWriter out = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                for (MemoryTable<?> table : tables.values()) {
+                    writeTable(out, table);
+                }
+            }
+            Files.move(tmp, directory.resolve(SNAPSHOT_FILE),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            journal.close();
+            journal = Files.newBufferedWriter(directory.resolve(JOURNAL_FILE), StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+            journalEntries = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Écrit un dernier snapshot et ferme le journal
+     */
+    @Override
+    public void close() throws IOException {
+        snapshotter.shutdownNow();
+        snapshot();
+        lock.writeLock().lock();
+        try {
+            closed = true;
+            journal.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void periodicSnapshot() {
+        try {
+            if (journalEntries > 0) {
+                snapshot();
+            }
+        } catch (IOException e) {
+            System.err.println("Erreur snapshot du stockage mémoire: " + e.getMessage());
+        }
+    }
+
+    private void checkWriteLock() {
+        if (!lock.isWriteLockedByCurrentThread()) {
+            throw new IllegalStateException("Écriture hors de MemoryStore.write()");
+        }
+    }
+
+    private void appendJournal(String op, MemoryTable<?> table, String[] fields) throws IOException {
+        String[] record = new String[fields.length + 2];
+        record[0] = op;
+        record[1] = table.getName();
+        System.arraycopy(fields, 0, record, 2, fields.length);
+        journal.write(encodeLine(record));
+        journal.newLine();
+        journalEntries++;
+    }
+
+    private <T> void writeTable(BufferedWriter out, MemoryTable<T> table) throws IOException {
+        out.write(encodeLine(new String[]{"S", table.getName(), String.valueOf(table.getNextId())}));
+        out.newLine();
+        for (T row : table.all()) {
+            String[] fields = table.getCodec().encode(row);
+            String[] record = new String[fields.length + 2];
+            record[0] = "P";
+            record[1] = table.getName();
+            System.arraycopy(fields, 0, record, 2, fields.length);
+            out.write(encodeLine(record));
+            out.newLine();
+        }
+    }
+
+    private void loadSnapshot(Path file) throws IOException {
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                apply(decodeLine(line));
+            }
+        }
+    }
+
+    private void replayJournal(Path file) throws IOException {
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                try {
+                    apply(decodeLine(line));
+                    journalEntries++;
+                } catch (RuntimeException e) {
+                    // Dernière ligne tronquée par un arrêt brutal: elle n'a jamais été confirmée
+                    System.err.println("Journal: entrée ignorée (" + e.getMessage() + ")");
+                }
+            }
+        }
+    }
+
+    private void apply(String[] record) {
+        MemoryTable<?> table = tables.get(record[1]);
+        if (table == null) {
+            throw new IllegalArgumentException("table inconnue " + record[1]);
+        }
+        String[] fields = new String[record.length - 2];
+        System.arraycopy(record, 2, fields, 0, fields.length);
+        switch (record[0]) {
+            case "P":
+                putDecoded(table, fields);
+                break;
+            case "D":
+                table.remove(Integer.parseInt(fields[0]));
+                break;
+            case "S":
+                table.setNextId(Integer.parseInt(fields[0]));
+                break;
+            default:
+                throw new IllegalArgumentException("opération inconnue " + record[0]);
+        }
+    }
+
+    private static <T> void putDecoded(MemoryTable<T> table, String[] fields) {
+        table.put(table.getCodec().decode(fields));
+    }
+
+    /**
+     * Données initiales, identiques à celles de database/restaurant.sql
+     */
+    private void seed() throws IOException {
+        insert(utilisateurs, new Utilisateur("admin", "admin123"));
+        insert(utilisateurs, new Utilisateur("user", "user123"));
+
+        insert(categories, new Categorie("Boissons"));
+        insert(categories, new Categorie("Plats"));
+        insert(categories, new Categorie("Desserts"));
+        insert(categories, new Categorie("Ingredients"));
+
+        insert(produits, new Produit("Coca Cola 33cl", 1, 2.50, 50, 10));
+        insert(produits, new Produit("Jus d'Orange", 1, 3.00, 30, 8));
+        insert(produits, new Produit("Eau Minérale", 1, 1.50, 80, 20));
+        insert(produits, new Produit("Burger Classique", 2, 8.50, 25, 5));
+        insert(produits, new Produit("Sandwich Poulet", 2, 7.50, 20, 5));
+        insert(produits, new Produit("Frites", 2, 3.50, 40, 10));
+        insert(produits, new Produit("Tiramisu", 3, 5.00, 15, 3));
+        insert(produits, new Produit("Panna Cotta", 3, 4.50, 12, 3));
+    }
+
+    // --- Format des lignes: champs séparés par '|', null codé "\0" ---
+
+    static String encodeLine(String[] fields) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) {
+                sb.append('|');
+            }
+            String f = fields[i];
+            if (f == null) {
+                sb.append("\\0");
+                continue;
+            }
+            for (int j = 0; j < f.length(); j++) {
+                char c = f.charAt(j);
+                switch (c) {
+                    case '\\': sb.append("\\\\"); break;
+                    case '|': sb.append("\\p"); break;
+                    case '\n': sb.append("\\n"); break;
+                    case '\r': sb.append("\\r"); break;
+                    default: sb.append(c);
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    static String[] decodeLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder sb = new StringBuilder();
+        boolean isNull = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '|') {
+                fields.add(isNull ? null : sb.toString());
+                sb.setLength(0);
+                isNull = false;
+            } else if (c == '\\') {
+                if (++i >= line.length()) {
+                    throw new IllegalArgumentException("ligne tronquée");
+                }
+                char e = line.charAt(i);
+                switch (e) {
+                    case '\\': sb.append('\\'); break;
+                    case 'p': sb.append('|'); break;
+                    case 'n': sb.append('\n'); break;
+                    case 'r': sb.append('\r'); break;
+                    case '0': isNull = true; break;
+                    default: throw new IllegalArgumentException("échappement inconnu \\" + e);
+                }
+            } else {
+                sb.append(c);
+            }
+        }
+        fields.add(isNull ? null : sb.toString());
+        if (fields.size() < 3) {
+            throw new IllegalArgumentException("ligne incomplète");
+        }
+        return fields.toArray(new String[0]);
+    }
+}
@@ -0,0 +1,255 @@
+package dao.memory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Table en mémoire: lignes indexées par id, plus des index secondaires
+ *
+ * Les index secondaires associent une valeur de colonne (ex: categorie_id)
+ * aux ids des lignes correspondantes, comme les index MySQL du schéma.
+ * Les accès concurrents sont protégés par le verrou de MemoryStore.
+ *
+ * @param <T> Le type d'entité
+ */
+final class MemoryTable<T> {
+
+    private final String name;
+    private final EntityCodec<T> codec;
+    private final NavigableMap<Integer, T> rows = new TreeMap<>();
+    private final Map<String, Function<T, Object>> indexKeys = new LinkedHashMap<>();
+    private final Map<String, Map<Object, NavigableSet<Integer>>> indexes = new HashMap<>();
+    private int nextId = 1;
+
+    MemoryTable(String name, EntityCodec<T> codec) {
+        this.name = name;
+        this.codec = codec;
+    }
+
+    /**
+     * Déclare un index secondaire sur une colonne
+     */
+    MemoryTable<T> withIndex(String indexName, Function<T, Object> key) {
+        indexKeys.put(indexName, key);
+        indexes.put(indexName, new HashMap<>());
+        return this;
+    }
+
+    /**
+     * Déclare un index secondaire trié sur une colonne comparable (dates),
+     * parcourable par seek() dans l'ordre (clé, id)
+     */
+    MemoryTable<T> withOrderedIndex(String indexName, Function<T, Object> key) {
+        indexKeys.put(indexName, key);
+        indexes.put(indexName, new TreeMap<>());
+        return this;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    EntityCodec<T> getCodec() {
+        return codec;
+    }
+
+    int getNextId() {
+        return nextId;
+    }
+
+    void setNextId(int nextId) {
+        this.nextId = Math.max(this.nextId, nextId);
+    }
+
+    int allocateId() {
+        return nextId++;
+    }
+
+    boolean contains(int id) {
+        return rows.containsKey(id);
+    }
+
+    int size() {
+        return rows.size();
+    }
+
+    /**
+     * Copie de la ligne, ou null si absente
+     */
+    T get(int id) {
+        T row = rows.get(id);
+        return row != null ? codec.copy(row) : null;
+    }
+
+    /**
+     * Copies des lignes dont l'id est dans la collection, par id (ids absents ignorés)
+     */
+    Map<Integer, T> getAll(Collection<Integer> ids) {
+        Map<Integer, T> result = new HashMap<>();
+        for (Integer id : ids) {
+            T row = rows.get(id);
+            if (row != null) {
+                result.put(id, codec.copy(row));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Copies de toutes les lignes, par id croissant
+     */
+    List<T> all() {
+        List<T> list = new ArrayList<>(rows.size());
+        for (T row : rows.values()) {
+            list.add(codec.copy(row));
+        }
+        return list;
+    }
+
+    /**
+     * Copies d'au plus limit lignes d'id strictement supérieur à afterId, par id croissant
+     */
+    List<T> chunkAfter(int afterId, int limit) {
+        List<T> list = new ArrayList<>(limit);
+        for (T row : rows.tailMap(afterId, false).values()) {
+            list.add(codec.copy(row));
+            if (list.size() == limit) {
+                break;
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Copies des lignes satisfaisant le filtre, par id croissant
+     */
+    List<T> filter(Predicate<T> predicate) {
+        List<T> list = new ArrayList<>();
+        for (T row : rows.values()) {
+            if (predicate.test(row)) {
+                list.add(codec.copy(row));
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Copies des lignes dont la colonne indexée vaut key, par id croissant
+     */
+    List<T> findBy(String indexName, Object key) {
+        NavigableSet<Integer> ids = idsBy(indexName, key);
+        List<T> list = new ArrayList<>(ids.size());
+        for (Integer id : ids) {
+            list.add(codec.copy(rows.get(id)));
+        }
+        return list;
+    }
+
+    NavigableSet<Integer> idsBy(String indexName, Object key) {
+        Map<Object, NavigableSet<Integer>> index = indexes.get(indexName);
+        if (index == null) {
+            throw new IllegalArgumentException("Index inconnu: " + name + "." + indexName);
+        }
+        NavigableSet<Integer> ids = index.get(key);
+        return ids != null ? Collections.unmodifiableNavigableSet(ids) : Collections.emptyNavigableSet();
+    }
+
+    /**
+     * Copies d'au plus limit lignes dans l'ordre (clé indexée, id), strictement
+     * après la position (afterKey, afterId); afterKey null pour partir du début.
+     * Seules les lignes retournées sont visitées (pagination par clé).
+     */
+    @SuppressWarnings("unchecked")
+    List<T> seek(String indexName, Object afterKey, int afterId, boolean descending, int limit) {
+        Map<Object, NavigableSet<Integer>> index = indexes.get(indexName);
+        if (!(index instanceof NavigableMap)) {
+            throw new IllegalArgumentException("Index non trié: " + name + "." + indexName);
+        }
+        NavigableMap<Object, NavigableSet<Integer>> sorted = (NavigableMap<Object, NavigableSet<Integer>>) index;
+        if (descending) {
+            sorted = sorted.descendingMap();
+        }
+        if (afterKey != null) {
+            sorted = sorted.tailMap(afterKey, true);
+        }
+        List<T> list = new ArrayList<>(limit);
+        for (Map.Entry<Object, NavigableSet<Integer>> entry : sorted.entrySet()) {
+            NavigableSet<Integer> ids = descending ? entry.getValue().descendingSet() : entry.getValue();
+            if (afterKey != null && entry.getKey().equals(afterKey)) {
+                ids = ids.tailSet(afterId, false);
+            }
+            for (Integer id : ids) {
+                list.add(codec.copy(rows.get(id)));
+                if (list.size() == limit) {
+                    return list;
+                }
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Insère ou remplace la ligne (copie), en maintenant les index
+     */
+    void put(T t) {
+        int id = codec.getId(t);
+        T stored = codec.copy(t);
+        T previous = rows.put(id, stored);
+        for (Map.Entry<String, Function<T, Object>> entry : indexKeys.entrySet()) {
+            Map<Object, NavigableSet<Integer>> index = indexes.get(entry.getKey());
+            Object newKey = entry.getValue().apply(stored);
+            if (previous != null) {
+                Object oldKey = entry.getValue().apply(previous);
+                if (Objects.equals(oldKey, newKey)) {
+                    continue;
+                }
+                unindex(index, oldKey, id);
+            }
+            index.computeIfAbsent(newKey, k -> new TreeSet<>()).add(id);
+        }
+        setNextId(id + 1);
+    }
+
+    /**
+     * Supprime la ligne; retourne false si elle n'existait pas
+     */
+    boolean remove(int id) {
+        T previous = rows.remove(id);
+        if (previous == null) {
+            return false;
+        }
+        for (Map.Entry<String, Function<T, Object>> entry : indexKeys.entrySet()) {
+            unindex(indexes.get(entry.getKey()), entry.getValue().apply(previous), id);
+        }
+        return true;
+    }
+
+    void clear() {
+        rows.clear();
+        for (Map<Object, NavigableSet<Integer>> index : indexes.values()) {
+            index.clear();
+        }
+    }
+
+    private static void unindex(Map<Object, NavigableSet<Integer>> index, Object key, int id) {
+        NavigableSet<Integer> ids = index.get(key);
+        if (ids != null) {
+            ids.remove(id);
+            if (ids.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package dao.memory;
+
+import dao.UtilisateurDAO;
+import models.Utilisateur;
+
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * UtilisateurDAO servi par le stockage en mémoire
+ */
+public class MemoryUtilisateurDAO extends UtilisateurDAO {
+
+    private final MemoryStore store;
+
+    public MemoryUtilisateurDAO(MemoryStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public void create(Utilisateur utilisateur) throws Exception {
+        store.write(() -> {
+            checkLoginUnique(utilisateur);
+            store.insert(store.utilisateurs, utilisateur);
+            return null;
+        });
+    }
+
+    @Override
+    public Utilisateur read(int id) throws Exception {
+        return store.read(() -> store.utilisateurs.get(id));
+    }
+
+    @Override
+    public Map<Integer, Utilisateur> readByIds(Collection<Integer> ids) throws Exception {
+        return store.read(() -> store.utilisateurs.getAll(ids));
+    }
+
+    @Override
+    public List<Utilisateur> readAll() throws Exception {
+        return store.read(() -> {
+            List<Utilisateur> utilisateurs = store.utilisateurs.all();
+            utilisateurs.sort(Comparator.comparing(Utilisateur::getLogin, String.CASE_INSENSITIVE_ORDER));
+            return utilisateurs;
+        });
+    }
+
+    @Override
+    public void update(Utilisateur utilisateur) throws Exception {
+        store.write(() -> {
+            checkLoginUnique(utilisateur);
+            return store.update(store.utilisateurs, utilisateur);
+        });
+    }
+
+    @Override
+    public void delete(int id) throws Exception {
+        store.write(() -> store.delete(store.utilisateurs, id));
+    }
+
+    @Override
+    public List<Integer> createAll(List<Utilisateur> utilisateurs) throws Exception {
+        return store.write(() -> {
+            checkLoginsUniques(utilisateurs);
+            List<Integer> ids = new ArrayList<>(utilisateurs.size());
+            for (Utilisateur utilisateur : utilisateurs) {
+                store.insert(store.utilisateurs, utilisateur);
+                ids.add(utilisateur.getId());
+            }
+            return ids;
+        });
+    }
+
+    @Override
+    public void updateAll(List<Utilisateur> utilisateurs) throws Exception {
+        store.write(() -> {
+            checkLoginsUniques(utilisateurs);
+            for (Utilisateur utilisateur : utilisateurs) {
+                store.update(store.utilisateurs, utilisateur);
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public void deleteAll(List<Integer> ids) throws Exception {
+        store.write(() -> {
+            for (Integer id : ids) {
+                store.delete(store.utilisateurs, id);
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public Utilisateur authenticate(String login, String motDePasse) throws Exception {
+        return store.read(() -> {
+            for (Utilisateur u : store.utilisateurs.findBy("login", login.toLowerCase())) {
+                if (u.getMotDePasse().equals(motDePasse)) {
+                    return u;
+                }
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public boolean existsByLogin(String login) throws Exception {
+        return store.read(() -> !store.utilisateurs.idsBy("login", login.toLowerCase()).isEmpty());
+    }
+
+    private void checkLoginUnique(Utilisateur utilisateur) throws SQLIntegrityConstraintViolationException {
+        for (Integer id : store.utilisateurs.idsBy("login", utilisateur.getLogin().toLowerCase())) {
+            if (id != utilisateur.getId()) {
+                throw new SQLIntegrityConstraintViolationException("Login déjà utilisé: " + utilisateur.getLogin());
+            }
+        }
+    }
+
+    /**
+     * Unicité des logins, vis-à-vis de la table et à l'intérieur du lot
+     */
+    private void checkLoginsUniques(List<Utilisateur> utilisateurs) throws SQLIntegrityConstraintViolationException {
+        Set<String> logins = new HashSet<>();
+        for (Utilisateur utilisateur : utilisateurs) {
+            checkLoginUnique(utilisateur);
+            if (!logins.add(utilisateur.getLogin().toLowerCase())) {
+                throw new SQLIntegrityConstraintViolationException("Login déjà utilisé: " + utilisateur.getLogin());
+            }
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package models;
+
+import java.time.LocalDateTime;
+
+/**
+ * Activité des commandes sur une heure (CommandeDAO.readActiviteHoraire)
+ */
+public class ActiviteHoraire {
+    // Début de l'heure (minutes et secondes à 0)
+    private final LocalDateTime heure;
+    // Commandes créées dans l'heure
+    private final int nbCommandes;
+    // Total des commandes VALIDEE, validées dans l'heure
+    private final double chiffreAffaires;
+    // Médiane du délai création -> validation (secondes) des commandes validées
+    // dans l'heure, null si aucune
+    private final Double medianeValidationSecondes;
+
+    public ActiviteHoraire(LocalDateTime heure, int nbCommandes, double chiffreAffaires, Double medianeValidationSecondes) {
+        this.heure = heure;
+        this.nbCommandes = nbCommandes;
+        this.chiffreAffaires = chiffreAffaires;
+        this.medianeValidationSecondes = medianeValidationSecondes;
+    }
+
+    public LocalDateTime getHeure() { return heure; }
+    public int getNbCommandes() { return nbCommandes; }
+    public double getChiffreAffaires() { return chiffreAffaires; }
+    public Double getMedianeValidationSecondes() { return medianeValidationSecondes; }
+}
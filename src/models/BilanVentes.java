@@ -0,0 +1,22 @@
+package models;
+
+/**
+ * Cumul des ventes sur une période (lu depuis la table ventes_journalieres)
+ */
+public class BilanVentes {
+    // Toutes les commandes de la période, quel que soit leur état
+    private final int nbCommandes;
+    // Total des commandes VALIDEE
+    private final double chiffreAffaires;
+    private final int nbAnnulees;
+
+    public BilanVentes(int nbCommandes, double chiffreAffaires, int nbAnnulees) {
+        this.nbCommandes = nbCommandes;
+        this.chiffreAffaires = chiffreAffaires;
+        this.nbAnnulees = nbAnnulees;
+    }
+
+    public int getNbCommandes() { return nbCommandes; }
+    public double getChiffreAffaires() { return chiffreAffaires; }
+    public int getNbAnnulees() { return nbAnnulees; }
+}
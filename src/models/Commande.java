@@ -1,6 +1,7 @@
 package models;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 
 /**
  * Classe représentant une commande client
@@ -14,6 +15,11 @@ public class Commande {
     private LocalDate dateCommande;
     private EtatCommande etat;
     private double total;
+    // Incrémentée à chaque modification en base (verrouillage optimiste)
+    private int version;
+    // Heure de création et de validation (null pour les commandes antérieures à leur ajout)
+    private LocalDateTime createdAt;
+    private LocalDateTime validatedAt;
 
     public Commande() {
         this.etat = EtatCommande.EN_COURS;
@@ -64,4 +70,28 @@ public class Commande {
     public void setTotal(double total) {
         this.total = total;
     }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getValidatedAt() {
+        return validatedAt;
+    }
+
+    public void setValidatedAt(LocalDateTime validatedAt) {
+        this.validatedAt = validatedAt;
+    }
 }
@@ -13,6 +13,8 @@ public class Produit {
     private double prixVente;
     private int stockActuel;
     private int seuilAlerte;
+    // Incrémentée à chaque modification en base (verrouillage optimiste)
+    private int version;
 
     /**
      * Constructeur vide
@@ -98,6 +100,14 @@ public class Produit {
         return stockActuel < seuilAlerte;
     }
 
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
     /**
      * Retourne une représentation du produit
      */
@@ -0,0 +1,29 @@
+package models;
+
+import java.time.LocalDate;
+
+/**
+ * Ventes d'un produit (lignes des commandes VALIDEE), cumulées sur un jour
+ * ou, pour les cumuls sur une période, sans jour (null)
+ */
+public class VenteProduit {
+    private final LocalDate jour;
+    private final int categorieId;
+    private final int produitId;
+    private final long quantite;
+    private final double chiffreAffaires;
+
+    public VenteProduit(LocalDate jour, int categorieId, int produitId, long quantite, double chiffreAffaires) {
+        this.jour = jour;
+        this.categorieId = categorieId;
+        this.produitId = produitId;
+        this.quantite = quantite;
+        this.chiffreAffaires = chiffreAffaires;
+    }
+
+    public LocalDate getJour() { return jour; }
+    public int getCategorieId() { return categorieId; }
+    public int getProduitId() { return produitId; }
+    public long getQuantite() { return quantite; }
+    public double getChiffreAffaires() { return chiffreAffaires; }
+}
@@ -1,5 +1,6 @@
 package ui.frames;
 
+import dao.DAOFactory;
 import dao.UtilisateurDAO;
 import models.Utilisateur;
 
@@ -22,7 +23,7 @@ public class LoginFrame extends JFrame {
     private UtilisateurDAO utilisateurDAO;
 
     public LoginFrame() {
-        utilisateurDAO = new UtilisateurDAO();
+        utilisateurDAO = DAOFactory.getUtilisateurDAO();
         initComponents();
     }
 
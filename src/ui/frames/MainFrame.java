@@ -40,7 +40,17 @@ public class MainFrame extends JFrame {
         disconnectItem.addActionListener(e -> disconnect());
         JMenuItem exitItem = new JMenuItem("Quitter");
         exitItem.addActionListener(e -> System.exit(0));
+        JMenuItem diagnosticsItem = new JMenuItem("Diagnostics BD");
+        diagnosticsItem.addActionListener(e -> {
+            utils.PoolStats stats = utils.DatabaseConnection.getPoolStats();
+            StringBuilder message = new StringBuilder(stats != null ? stats.toString().replace(" | ", "\n") : "Pool non initialisé");
+            for (dao.cache.CacheStats cache : dao.cache.CatalogCache.getStats()) {
+                message.append("\n").append(cache);
+            }
+            JOptionPane.showMessageDialog(this, message.toString(), "Diagnostics BD", JOptionPane.INFORMATION_MESSAGE);
+        });
         fileMenu.add(disconnectItem);
+        fileMenu.add(diagnosticsItem);
         fileMenu.addSeparator();
         fileMenu.add(exitItem);
         // Menu d'export
@@ -0,0 +1,65 @@
+package ui.panels;
+
+import dao.ChangePoller;
+
+import javax.swing.*;
+import java.awt.event.HierarchyEvent;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Rafraîchissement d'un écran quand un autre poste modifie ses tables (dao.ChangePoller)
+ *
+ * L'écouteur n'est inscrit que tant que la table est affichable: un écran
+ * fermé (déconnexion) n'est plus prévenu. Le rafraîchissement s'exécute
+ * dans le thread Swing et la ligne sélectionnée (id en colonne 0) est
+ * resélectionnée après coup.
+ */
+final class ChangeRefresh {
+
+    private ChangeRefresh() {
+    }
+
+    /**
+     * @param table Table de l'écran
+     * @param refresh Rechargement de l'écran, reçoit les tables modifiées
+     * @param tables Tables dont les modifications concernent l'écran
+     */
+    static void register(JTable table, Consumer<Set<String>> refresh, String... tables) {
+        ChangePoller.Listener listener = changed -> {
+            for (String name : tables) {
+                if (changed.contains(name)) {
+                    SwingUtilities.invokeLater(() -> refreshKeepingSelection(table, refresh, changed));
+                    return;
+                }
+            }
+        };
+        if (table.isDisplayable()) {
+            ChangePoller.addListener(listener);
+        }
+        table.addHierarchyListener(e -> {
+            if ((e.getChangeFlags() & HierarchyEvent.DISPLAYABILITY_CHANGED) != 0) {
+                if (table.isDisplayable()) {
+                    ChangePoller.addListener(listener);
+                } else {
+                    ChangePoller.removeListener(listener);
+                }
+            }
+        });
+    }
+
+    private static void refreshKeepingSelection(JTable table, Consumer<Set<String>> refresh, Set<String> changed) {
+        int row = table.getSelectedRow();
+        Object selectedId = row >= 0 ? table.getValueAt(row, 0) : null;
+        refresh.accept(changed);
+        if (selectedId == null) {
+            return;
+        }
+        for (int i = 0; i < table.getRowCount(); i++) {
+            if (selectedId.equals(table.getValueAt(i, 0))) {
+                table.setRowSelectionInterval(i, i);
+                return;
+            }
+        }
+    }
+}
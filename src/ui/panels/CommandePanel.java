@@ -1,8 +1,12 @@
 package ui.panels;
 
+import dao.DAOFactory;
 import dao.CommandeDAO;
+import dao.LigneAvecProduit;
 import dao.LigneCommandeDAO;
+import dao.OptimisticLockException;
 import dao.ProduitDAO;
+import dao.StockInsuffisantException;
 import models.Commande;
 import models.LigneCommande;
 import models.Produit;
@@ -12,12 +16,17 @@ import javax.swing.border.EmptyBorder;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
  * Panel pour la gestion des commandes
  */
 public class CommandePanel extends JPanel {
+    // Tentatives d'une modification en conflit avec un autre poste
+    private static final int MAX_ESSAIS = 3;
+
     private JTable table;
     private DefaultTableModel tableModel;
     private CommandeDAO commandeDAO;
@@ -33,11 +42,13 @@ public class CommandePanel extends JPanel {
 
     public CommandePanel(ui.frames.MainFrame mainFrame) {
         this.mainFrame = mainFrame;
-        commandeDAO = new CommandeDAO();
-        ligneDAO = new LigneCommandeDAO();
-        produitDAO = new ProduitDAO();
+        commandeDAO = DAOFactory.getCommandeDAO();
+        ligneDAO = DAOFactory.getLigneCommandeDAO();
+        produitDAO = DAOFactory.getProduitDAO();
         initComponents();
         refreshTable();
+        // Commandes créées, complétées ou validées sur un autre poste
+        ChangeRefresh.register(table, changed -> refreshTable(), "commande");
     }
 
     private void initComponents() {
@@ -169,7 +180,7 @@ public class CommandePanel extends JPanel {
         panel.add(new JLabel("Produit:"));
         JComboBox<Produit> productBox = new JComboBox<>();
         try {
-            for (Produit p : produitDAO.readAll()) {
+            for (Produit p : produitDAO.readAllColumns("id", "nom", "prix_vente")) {
                 productBox.addItem(p);
             }
         } catch (Exception e) {
@@ -209,19 +220,13 @@ public class CommandePanel extends JPanel {
                 }
 
                 LigneCommande ligne = new LigneCommande();
-                ligne.setCommandeId(commandeId);
                 ligne.setProduitId(selectedProduct.getId());
                 ligne.setQuantite(quantity);
                 // enregistrer le prix unitaire au moment de l'ajout
                 ligne.setPrixUnitaire(selectedProduct.getPrixVente());
                 
-                ligneDAO.create(ligne);
-                
-                // Recalculer le total de la commande
-                Commande commande = commandeDAO.read(commandeId);
-                double newTotal = commande.getTotal() + (selectedProduct.getPrixVente() * quantity);
-                commande.setTotal(newTotal);
-                commandeDAO.update(commande);
+                // Ligne et total de la commande mis à jour en une transaction
+                commandeDAO.addLignes(commandeId, Collections.singletonList(ligne));
                 
                 refreshTable();
                 dialog.dispose();
@@ -257,14 +262,23 @@ public class CommandePanel extends JPanel {
         }
 
         try {
-            Commande commande = commandeDAO.read(id);
-            commande.setEtat(Commande.EtatCommande.VALIDEE);
-            commandeDAO.update(commande);
+            // Validation et sorties de stock des produits vendus en une transaction
+            commandeDAO.validate(id);
             refreshTable();
             if (mainFrame != null) {
                 mainFrame.refreshDashboard();
             }
             JOptionPane.showMessageDialog(this, "Commande validée!", "Succès", JOptionPane.INFORMATION_MESSAGE);
+        } catch (StockInsuffisantException e) {
+            String nom = "#" + e.getProduitId();
+            try {
+                Produit produit = produitDAO.read(e.getProduitId());
+                if (produit != null) {
+                    nom = produit.getNom();
+                }
+            } catch (Exception ignore) {}
+            JOptionPane.showMessageDialog(this, "Stock insuffisant pour " + nom + " (disponible: " + e.getStockActuel()
+                    + ", demandé: " + e.getQuantiteDemandee() + ")", "Erreur", JOptionPane.WARNING_MESSAGE);
         } catch (Exception e) {
             JOptionPane.showMessageDialog(this, "Erreur: " + e.getMessage(), "Erreur", JOptionPane.ERROR_MESSAGE);
         }
@@ -285,13 +299,32 @@ public class CommandePanel extends JPanel {
             return;
         }
 
-        int confirm = JOptionPane.showConfirmDialog(this, "Êtes-vous sûr de vouloir annuler cette commande?", "Confirmation", JOptionPane.YES_NO_OPTION);
+        // Commande validée: ses produits sont remis en stock (CommandeDAO.update)
+        String message = etat.equals("VALIDEE")
+                ? "Êtes-vous sûr de vouloir annuler cette commande?\nLes produits vendus seront remis en stock."
+                : "Êtes-vous sûr de vouloir annuler cette commande?";
+        int confirm = JOptionPane.showConfirmDialog(this, message, "Confirmation", JOptionPane.YES_NO_OPTION);
         
         if (confirm == JOptionPane.YES_OPTION) {
             try {
-                Commande commande = commandeDAO.read(id);
-                commande.setEtat(Commande.EtatCommande.ANNULEE);
-                commandeDAO.update(commande);
+                // Modifiée entre-temps sur un autre poste: relire et réappliquer l'annulation
+                for (int essai = 1; ; essai++) {
+                    Commande commande = commandeDAO.read(id);
+                    if (commande == null) {
+                        JOptionPane.showMessageDialog(this, "Cette commande a été supprimée", "Avertissement", JOptionPane.WARNING_MESSAGE);
+                        refreshTable();
+                        return;
+                    }
+                    commande.setEtat(Commande.EtatCommande.ANNULEE);
+                    try {
+                        commandeDAO.update(commande);
+                        break;
+                    } catch (OptimisticLockException conflit) {
+                        if (essai == MAX_ESSAIS) {
+                            throw conflit;
+                        }
+                    }
+                }
                 refreshTable();
                 if (mainFrame != null) {
                     mainFrame.refreshDashboard();
@@ -322,12 +355,11 @@ public class CommandePanel extends JPanel {
         
         if (confirm == JOptionPane.YES_OPTION) {
             try {
-                List<LigneCommande> lignes = ligneDAO.readAll();
-                for (LigneCommande ligne : lignes) {
-                    if (ligne.getCommandeId() == id) {
-                        ligneDAO.delete(ligne.getId());
-                    }
+                List<Integer> ligneIds = new ArrayList<>();
+                for (LigneCommande ligne : ligneDAO.readByCommande(id)) {
+                    ligneIds.add(ligne.getId());
                 }
+                ligneDAO.deleteAll(ligneIds);
                 
                 Commande commande = commandeDAO.read(id);
                 commandeDAO.delete(commande.getId());
@@ -352,7 +384,7 @@ public class CommandePanel extends JPanel {
         int commandeId = (int) tableModel.getValueAt(selectedRow, 0);
 
         try {
-            java.util.List<LigneCommande> lignes = ligneDAO.readByCommande(commandeId);
+            List<LigneAvecProduit> lignes = ligneDAO.readByCommandeWithProduit(commandeId);
 
             JDialog dialog = new JDialog((Frame) null, "Détails commande #" + commandeId, true);
             dialog.setSize(600, 400);
@@ -365,13 +397,13 @@ public class CommandePanel extends JPanel {
             JTable detailsTable = new JTable(model);
 
             double total = 0.0;
-            for (LigneCommande l : lignes) {
-                Produit p = produitDAO.read(l.getProduitId());
-                String name = p != null ? p.getNom() : "#" + l.getProduitId();
+            for (LigneAvecProduit vue : lignes) {
+                LigneCommande l = vue.getLigne();
+                String name = vue.getProduitNom() != null ? vue.getProduitNom() : "#" + l.getProduitId();
                 double pu = l.getPrixUnitaire();
-                if (pu == 0.0 && p != null) {
+                if (pu == 0.0 && vue.getPrixVenteActuel() != null) {
                     // fallback to current product price when stored unit price is missing
-                    pu = p.getPrixVente();
+                    pu = vue.getPrixVenteActuel();
                 }
                 double montant = l.getMontantLigne();
                 if (montant == 0.0) {
@@ -1,17 +1,23 @@
 package ui.panels;
 
+import dao.DAOFactory;
 import dao.HistoriqueDAO;
+import dao.Page;
 import models.AuditEntry;
 
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
-import java.util.List;
 
 public class HistoriquePanel extends JPanel {
 
+    private static final int PAGE_SIZE = 200;
+
     private JTable table;
     private DefaultTableModel model;
+    private JButton loadMore;
+    private JCheckBox allHistory;
+    private String nextCursor = null;
 
     public HistoriquePanel() {
         setLayout(new BorderLayout());
@@ -24,6 +30,13 @@ public class HistoriquePanel extends JPanel {
         JPanel top = new JPanel(new FlowLayout(FlowLayout.RIGHT));
         JButton refresh = new JButton("Actualiser");
         refresh.addActionListener(e -> loadData());
+        loadMore = new JButton("Charger plus");
+        loadMore.addActionListener(e -> loadPage());
+        // Par défaut seuls les derniers mois sont lus (partitions récentes)
+        allHistory = new JCheckBox("Tout l'historique");
+        allHistory.addActionListener(e -> loadData());
+        top.add(allHistory);
+        top.add(loadMore);
         top.add(refresh);
         add(top, BorderLayout.NORTH);
 
@@ -31,13 +44,24 @@ public class HistoriquePanel extends JPanel {
     }
 
     private void loadData() {
+        model.setRowCount(0);
+        nextCursor = null;
+        loadPage();
+    }
+
+    /**
+     * Ajoute la page suivante (les plus récentes d'abord) à la table
+     */
+    private void loadPage() {
         try {
-            HistoriqueDAO dao = new HistoriqueDAO();
-            List<AuditEntry> entries = dao.readAll();
-            model.setRowCount(0);
-            for (AuditEntry a : entries) {
+            HistoriqueDAO dao = DAOFactory.getHistoriqueDAO();
+            Page<AuditEntry> page = dao.readPage(nextCursor, PAGE_SIZE, Page.Sort.DESC,
+                    allHistory.isSelected() ? null : HistoriqueDAO.defaultSince());
+            for (AuditEntry a : page.getItems()) {
                 model.addRow(new Object[]{a.getId(), a.getAction(), a.getTableName(), a.getRecordId(), a.getUser(), a.getDetails(), a.getCreatedAt()});
             }
+            nextCursor = page.getNextCursor();
+            loadMore.setEnabled(page.hasNext());
         } catch (Exception ex) {
             JOptionPane.showMessageDialog(this, "Erreur chargement historique: " + ex.getMessage(), "Erreur", JOptionPane.ERROR_MESSAGE);
         }
@@ -1,6 +1,9 @@
 package ui.panels;
 
+import dao.DAOFactory;
 import dao.CategorieDAO;
+import dao.OptimisticLockException;
+import dao.ProduitAvecCategorie;
 import dao.ProduitDAO;
 import models.Categorie;
 import models.Produit;
@@ -23,10 +26,17 @@ public class ProduitPanel extends JPanel {
     private JComboBox<Categorie> categoryFilter;
 
     public ProduitPanel() {
-        produitDAO = new ProduitDAO();
-        categorieDAO = new CategorieDAO();
+        produitDAO = DAOFactory.getProduitDAO();
+        categorieDAO = DAOFactory.getCategorieDAO();
         initComponents();
         refreshTable();
+        // Produits ou catégories modifiés sur un autre poste: recharger en gardant le filtre
+        ChangeRefresh.register(table, changed -> {
+            if (changed.contains("categorie")) {
+                reloadCategoriesKeepingFilter();
+            }
+            filterByCategory();
+        }, "produit", "categorie");
     }
 
     private void initComponents() {
@@ -124,16 +134,29 @@ public class ProduitPanel extends JPanel {
         }
     }
 
+    private void reloadCategoriesKeepingFilter() {
+        Categorie selected = (Categorie) categoryFilter.getSelectedItem();
+        loadCategories();
+        if (selected == null) {
+            return;
+        }
+        for (int i = 0; i < categoryFilter.getItemCount(); i++) {
+            if (categoryFilter.getItemAt(i).getId() == selected.getId()) {
+                categoryFilter.setSelectedIndex(i);
+                return;
+            }
+        }
+    }
+
     private void refreshTable() {
         try {
             tableModel.setRowCount(0);
-            List<Produit> produits = produitDAO.readAll();
-            for (Produit p : produits) {
-                Categorie cat = categorieDAO.read(p.getCategorieId());
+            for (ProduitAvecCategorie vue : produitDAO.readAllWithCategorie()) {
+                Produit p = vue.getProduit();
                 tableModel.addRow(new Object[]{
                     p.getId(),
                     p.getNom(),
-                    cat != null ? cat.getLibelle() : "?",
+                    vue.getCategorieLibelle() != null ? vue.getCategorieLibelle() : "?",
                     String.format("%.2f", p.getPrixVente()),
                     p.getStockActuel(),
                     p.getSeuilAlerte()
@@ -322,6 +345,8 @@ public class ProduitPanel extends JPanel {
                     refreshTable();
                     dialog.dispose();
                     JOptionPane.showMessageDialog(ProduitPanel.this, "Produit modifié avec succès!", "Succès", JOptionPane.INFORMATION_MESSAGE);
+                } catch (OptimisticLockException ex) {
+                    reloadAfterConflict(dialog, produit, nameField, categoryBox, priceField, stockField, thresholdField);
                 } catch (Exception ex) {
                     JOptionPane.showMessageDialog(dialog, "Erreur: " + ex.getMessage(), "Erreur", JOptionPane.ERROR_MESSAGE);
                 }
@@ -340,6 +365,42 @@ public class ProduitPanel extends JPanel {
         }
     }
 
+    /**
+     * Le produit a été modifié sur un autre poste pendant l'édition: propose
+     * de recharger ses valeurs actuelles dans le formulaire avant de réessayer
+     */
+    private void reloadAfterConflict(JDialog dialog, Produit produit, JTextField nameField, JComboBox<Categorie> categoryBox,
+                                     JTextField priceField, JTextField stockField, JTextField thresholdField) {
+        int choice = JOptionPane.showConfirmDialog(dialog,
+                "Ce produit a été modifié sur un autre poste.\nRecharger ses valeurs actuelles avant de réessayer?",
+                "Conflit de modification", JOptionPane.YES_NO_OPTION, JOptionPane.WARNING_MESSAGE);
+        if (choice != JOptionPane.YES_OPTION) {
+            return;
+        }
+        try {
+            Produit actuel = produitDAO.read(produit.getId());
+            if (actuel == null) {
+                JOptionPane.showMessageDialog(dialog, "Ce produit a été supprimé", "Avertissement", JOptionPane.WARNING_MESSAGE);
+                dialog.dispose();
+                refreshTable();
+                return;
+            }
+            produit.setVersion(actuel.getVersion());
+            nameField.setText(actuel.getNom());
+            for (int i = 0; i < categoryBox.getItemCount(); i++) {
+                if (categoryBox.getItemAt(i).getId() == actuel.getCategorieId()) {
+                    categoryBox.setSelectedIndex(i);
+                }
+            }
+            priceField.setText(String.valueOf(actuel.getPrixVente()));
+            stockField.setText(String.valueOf(actuel.getStockActuel()));
+            thresholdField.setText(String.valueOf(actuel.getSeuilAlerte()));
+            refreshTable();
+        } catch (Exception ex) {
+            JOptionPane.showMessageDialog(dialog, "Erreur: " + ex.getMessage(), "Erreur", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
     private void deleteProduct() {
         int selectedRow = table.getSelectedRow();
         if (selectedRow == -1) {
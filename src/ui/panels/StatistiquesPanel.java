@@ -1,27 +1,32 @@
 package ui.panels;
 
-import dao.CommandeDAO;
+import dao.DAOFactory;
 import dao.ProduitDAO;
-import models.Commande;
+import dao.StatsDAO;
+import dao.cache.SalesCube;
 import models.Produit;
+import models.VenteProduit;
 
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import java.awt.*;
+import java.time.LocalDate;
 import java.util.AbstractMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
 
 /**
  * Panel pour les statistiques
  */
 public class StatistiquesPanel extends JPanel {
-    private CommandeDAO commandeDAO;
+    private StatsDAO statsDAO;
     private ProduitDAO produitDAO;
-    private JLabel totalCommandesLabel, totalVentesLabel, totalProduitLabel, stockAlertLabel;
+    private JLabel totalCommandesLabel, totalVentesLabel, totalProduitLabel, stockAlertLabel, topProduitLabel;
 
     public StatistiquesPanel() {
-        commandeDAO = new CommandeDAO();
-        produitDAO = new ProduitDAO();
+        statsDAO = DAOFactory.getStatsDAO();
+        produitDAO = DAOFactory.getProduitDAO();
         initComponents();
         refreshStats();
     }
@@ -74,6 +79,9 @@ public class StatistiquesPanel extends JPanel {
         refreshButton.setFocusPainted(false);
         refreshButton.addActionListener(e -> refreshStats());
 
+        topProduitLabel = new JLabel("Meilleure vente du jour: -");
+        infoPanel.add(topProduitLabel);
+        infoPanel.add(Box.createHorizontalStrut(20));
         infoPanel.add(new JLabel("Données actualisées à "));
         infoPanel.add(new JLabel(java.time.LocalDateTime.now().format(java.time.format.DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm"))));
         infoPanel.add(Box.createHorizontalStrut(20));
@@ -115,36 +123,46 @@ public class StatistiquesPanel extends JPanel {
         return new AbstractMap.SimpleEntry<>(card, valueLabel);
     }
 
+    /**
+     * Relit les indicateurs hors du thread Swing (requête en base et, si le
+     * cube des ventes a été invalidé, son rechargement), puis met à jour les cartes
+     */
     public void refreshStats() {
-        try {
-            // Total commandes
-            List<Commande> commandes = commandeDAO.readAll();
-            totalCommandesLabel.setText(String.valueOf(commandes.size()));
-
-            // Total ventes (commandes VALIDEES)
-            double totalVentes = 0.0;
-            for (Commande c : commandes) {
-                if (c.getEtat().toString().equals("VALIDEE")) {
-                    totalVentes += c.getTotal();
+        new SwingWorker<Void, Void>() {
+            private Map<StatsDAO.Kpi, Double> kpis;
+            private String topProduit;
+
+            @Override
+            protected Void doInBackground() throws Exception {
+                // Indicateurs calculés par la base, en une seule requête
+                kpis = statsDAO.read();
+
+                // Produit le plus vendu aujourd'hui, depuis le cube des ventes en mémoire
+                List<VenteProduit> top = SalesCube.topProduits(LocalDate.now(), LocalDate.now(), 1);
+                if (top.isEmpty()) {
+                    topProduit = "-";
+                } else {
+                    Produit produit = produitDAO.read(top.get(0).getProduitId());
+                    topProduit = (produit != null ? produit.getNom() : "#" + top.get(0).getProduitId())
+                            + " (" + top.get(0).getQuantite() + ")";
                 }
+                return null;
             }
-            totalVentesLabel.setText(String.format("%.2f", totalVentes));
-
-            // Total produits
-            List<Produit> produits = produitDAO.readAll();
-            totalProduitLabel.setText(String.valueOf(produits.size()));
 
-            // Produits en alerte stock
-            int alertCount = 0;
-            for (Produit p : produits) {
-                if (p.getStockActuel() <= p.getSeuilAlerte()) {
-                    alertCount++;
+            @Override
+            protected void done() {
+                try {
+                    get();
+                    totalCommandesLabel.setText(String.valueOf(kpis.get(StatsDAO.Kpi.TOTAL_COMMANDES).longValue()));
+                    totalVentesLabel.setText(String.format("%.2f", kpis.get(StatsDAO.Kpi.CHIFFRE_AFFAIRES)));
+                    totalProduitLabel.setText(String.valueOf(kpis.get(StatsDAO.Kpi.TOTAL_PRODUITS).longValue()));
+                    stockAlertLabel.setText(String.valueOf(kpis.get(StatsDAO.Kpi.PRODUITS_EN_ALERTE).longValue()));
+                    topProduitLabel.setText("Meilleure vente du jour: " + topProduit);
+                } catch (Exception e) {
+                    Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+                    JOptionPane.showMessageDialog(StatistiquesPanel.this, "Erreur: " + cause.getMessage(), "Erreur", JOptionPane.ERROR_MESSAGE);
                 }
             }
-            stockAlertLabel.setText(String.valueOf(alertCount));
-
-        } catch (Exception e) {
-            JOptionPane.showMessageDialog(this, "Erreur: " + e.getMessage(), "Erreur", JOptionPane.ERROR_MESSAGE);
-        }
+        }.execute();
     }
 }
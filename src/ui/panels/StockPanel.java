@@ -1,5 +1,7 @@
 package ui.panels;
 
+import dao.DAOFactory;
+import dao.MouvementAvecProduit;
 import dao.MouvementStockDAO;
 import dao.ProduitDAO;
 import models.MouvementStock;
@@ -10,7 +12,6 @@ import javax.swing.border.EmptyBorder;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.time.LocalDate;
-import java.util.List;
 
 /**
  * Panel pour la gestion du stock
@@ -23,10 +24,12 @@ public class StockPanel extends JPanel {
     private JButton addEntryButton, addExitButton;
 
     public StockPanel() {
-        mouvementDAO = new MouvementStockDAO();
-        produitDAO = new ProduitDAO();
+        mouvementDAO = DAOFactory.getMouvementStockDAO();
+        produitDAO = DAOFactory.getProduitDAO();
         initComponents();
         refreshTable();
+        // Mouvements enregistrés (ou produits renommés) sur un autre poste
+        ChangeRefresh.register(table, changed -> refreshTable(), "mouvement_stock", "produit");
     }
 
     private void initComponents() {
@@ -80,21 +83,16 @@ public class StockPanel extends JPanel {
     private void refreshTable() {
         try {
             tableModel.setRowCount(0);
-            List<MouvementStock> mouvements = mouvementDAO.readAll();
-            for (MouvementStock m : mouvements) {
-                try {
-                    Produit p = produitDAO.read(m.getProduitId());
-                    tableModel.addRow(new Object[]{
-                        m.getId(),
-                        p != null ? p.getNom() : "?",
-                        m.getType(),
-                        m.getQuantite(),
-                        m.getDateMouvement(),
-                        m.getMotif()
-                    });
-                } catch (Exception ex) {
-                    ex.printStackTrace();
-                }
+            for (MouvementAvecProduit vue : mouvementDAO.readAllWithProduit()) {
+                MouvementStock m = vue.getMouvement();
+                tableModel.addRow(new Object[]{
+                    m.getId(),
+                    vue.getProduitNom() != null ? vue.getProduitNom() : "?",
+                    m.getType(),
+                    m.getQuantite(),
+                    m.getDateMouvement(),
+                    m.getMotif()
+                });
             }
         } catch (Exception e) {
             JOptionPane.showMessageDialog(this, "Erreur: " + e.getMessage(), "Erreur", JOptionPane.ERROR_MESSAGE);
@@ -114,7 +112,7 @@ public class StockPanel extends JPanel {
         panel.add(new JLabel("Produit:"));
         JComboBox<Produit> productBox = new JComboBox<>();
         try {
-            for (Produit p : produitDAO.readAll()) {
+            for (Produit p : produitDAO.readAllColumns("id", "nom", "prix_vente")) {
                 productBox.addItem(p);
             }
         } catch (Exception e) {
@@ -168,19 +166,12 @@ public class StockPanel extends JPanel {
                 mouvement.setDateMouvement(LocalDate.parse(dateField.getText()));
                 mouvement.setMotif(motifField.getText());
                 
-                mouvementDAO.create(mouvement);
-                
-                // Mettre à jour le stock du produit
-                if (type.equals("ENTREE")) {
-                    selectedProduct.setStockActuel(selectedProduct.getStockActuel() + quantity);
-                } else {
-                    if (selectedProduct.getStockActuel() < quantity) {
-                        JOptionPane.showMessageDialog(dialog, "Stock insuffisant!", "Erreur", JOptionPane.WARNING_MESSAGE);
-                        return;
-                    }
-                    selectedProduct.setStockActuel(selectedProduct.getStockActuel() - quantity);
+                // Mouvement et stock du produit mis à jour en une transaction;
+                // une sortie est refusée si le stock (relu en base) est insuffisant
+                if (!mouvementDAO.createAndApply(mouvement)) {
+                    JOptionPane.showMessageDialog(dialog, "Stock insuffisant!", "Erreur", JOptionPane.WARNING_MESSAGE);
+                    return;
                 }
-                produitDAO.update(selectedProduct);
                 
                 refreshTable();
                 dialog.dispose();
@@ -1,42 +1,65 @@
 package utils;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
 import java.sql.SQLException;
-import java.sql.Statement;
+import java.util.List;
 
 /**
  * Utilitaire simple pour enregistrer des entrées d'historique dans la base.
+ *
+ * Les entrées sont écrites en arrière-plan par AuditWriter: log() retourne
+ * sans attendre la base. Appeler flush() avant de relire l'historique.
  */
 public class AuditUtils {
 
-    public static void ensureTableExists() throws SQLException {
-        String sql = "CREATE TABLE IF NOT EXISTS historique (" +
-                "id INT AUTO_INCREMENT PRIMARY KEY, " +
-                "action VARCHAR(50), " +
-                "table_name VARCHAR(100), " +
-                "record_id INT, " +
-                "user VARCHAR(100), " +
-                "details TEXT, " +
-                "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP" +
-                ") ENGINE=InnoDB DEFAULT CHARSET=utf8;";
-        try (Connection conn = DatabaseConnection.getConnection();
-             Statement stmt = conn.createStatement()) {
-            stmt.executeUpdate(sql);
-        }
+    /**
+     * Destination alternative des entrées d'historique (ex: stockage en mémoire)
+     */
+    public interface Sink {
+        void log(String action, String tableName, Integer recordId, String user, String details);
+    }
+
+    private static volatile Sink sink = null;
+
+    private static final long FLUSH_TIMEOUT_MS = 2 * 1000;
+
+    /**
+     * Redirige l'historique vers une autre destination que la table MySQL (null pour revenir à MySQL)
+     */
+    public static void setSink(Sink newSink) {
+        sink = newSink;
     }
 
     public static void log(String action, String tableName, Integer recordId, String user, String details) throws SQLException {
-        ensureTableExists();
-        String sql = "INSERT INTO historique (action, table_name, record_id, user, details) VALUES (?, ?, ?, ?, ?)";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, action);
-            pstmt.setString(2, tableName);
-            if (recordId == null) pstmt.setNull(3, java.sql.Types.INTEGER); else pstmt.setInt(3, recordId);
-            pstmt.setString(4, user != null ? user : "system");
-            pstmt.setString(5, details != null ? details : "");
-            pstmt.executeUpdate();
+        Sink target = sink;
+        if (target != null) {
+            target.log(action, tableName, recordId, user, details);
+            return;
+        }
+        AuditWriter.get().submit(action, tableName, recordId, user, details);
+    }
+
+    /**
+     * Attend l'écriture des entrées déjà déposées (sans effet avec un Sink)
+     */
+    public static void flush() {
+        if (sink == null) {
+            AuditWriter.get().flush(FLUSH_TIMEOUT_MS);
+        }
+    }
+
+    /**
+     * Enregistre une seule entrée d'historique pour une opération par lot
+     * (record_id NULL, les ids concernés sont listés dans details)
+     */
+    public static void logBatch(String action, String tableName, List<Integer> ids, String user) throws SQLException {
+        if (ids.isEmpty()) {
+            return;
+        }
+        StringBuilder details = new StringBuilder("lot=").append(ids.size()).append(" ids=");
+        for (int i = 0; i < ids.size(); i++) {
+            if (i > 0) details.append(',');
+            details.append(ids.get(i));
         }
+        log(action, tableName, null, user, details.toString());
     }
 }
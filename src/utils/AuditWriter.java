@@ -0,0 +1,380 @@
+package utils;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Écriture asynchrone et groupée de l'historique dans MySQL
+ *
+ * AuditUtils.log() ne fait que déposer l'entrée dans une file bornée: le
+ * thread qui modifie les données (souvent le thread Swing) ne paie plus
+ * d'aller-retour vers la base pour l'historique. Un thread dédié vide la
+ * file par lots (un INSERT multi-lignes grâce à rewriteBatchedStatements),
+ * dès que BATCH_SIZE entrées sont prêtes ou au plus tard après
+ * FLUSH_INTERVAL_MS. L'heure de chaque entrée est fixée au dépôt.
+ *
+ * Si la file est pleine, BACKPRESSURE décide:
+ * - BLOCK: l'appelant attend qu'une place se libère
+ * - DROP: l'entrée est abandonnée et comptée (getDropped)
+ * - SPILL: l'entrée est ajoutée au fichier SPILL_FILE, réinjecté dans la
+ *   base par le thread d'écriture dès qu'il a de nouveau le temps
+ * Un lot que la base refuse est lui aussi déversé dans SPILL_FILE. Une
+ * ligne de SPILL_FILE illisible à la relecture est mise de côté dans
+ * SPILL_BAD_FILE, sans bloquer la réinjection des autres.
+ *
+ * La file est vidée à l'arrêt de l'application (crochet d'arrêt).
+ */
+public final class AuditWriter {
+
+    public enum Backpressure {
+        BLOCK, DROP, SPILL
+    }
+
+    // Configuration
+    private static final int QUEUE_CAPACITY = 10_000;
+    private static final int BATCH_SIZE = 200;
+    private static final long FLUSH_INTERVAL_MS = 200;
+    private static final long SHUTDOWN_TIMEOUT_MS = 5 * 1000;
+    private static final long SPILL_RETRY_MS = 30 * 1000;            // après un échec de réinjection
+    private static final Backpressure BACKPRESSURE = Backpressure.SPILL;
+    private static final Path SPILL_FILE = Paths.get("historique-spill.log");
+    private static final Path SPILL_BAD_FILE = Paths.get("historique-spill.bad");
+
+    private static final String INSERT_SQL =
+            "INSERT INTO historique (action, table_name, record_id, user, details, created_at) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private static AuditWriter instance = null;
+
+    /**
+     * Entrée en attente d'écriture; une entrée avec latch est un marqueur de flush()
+     */
+    private static final class Entry {
+        final String action;
+        final String tableName;
+        final Integer recordId;
+        final String user;
+        final String details;
+        final Timestamp createdAt;
+        final CountDownLatch latch;
+
+        Entry(String action, String tableName, Integer recordId, String user, String details, Timestamp createdAt) {
+            this.action = action;
+            this.tableName = tableName;
+            this.recordId = recordId;
+            this.user = user;
+            this.details = details;
+            this.createdAt = createdAt;
+            this.latch = null;
+        }
+
+        Entry(CountDownLatch latch) {
+            this.action = null;
+            this.tableName = null;
+            this.recordId = null;
+            this.user = null;
+            this.details = null;
+            this.createdAt = null;
+            this.latch = latch;
+        }
+    }
+
+    private final BlockingQueue<Entry> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final Object spillLock = new Object();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong spilled = new AtomicLong();
+    private final Thread thread;
+    private volatile boolean running = true;
+    private long replayAfter = 0;
+
+    private AuditWriter() {
+        thread = new Thread(this::run, "audit-writer");
+        thread.setDaemon(true);
+    }
+
+    /**
+     * Retourne l'écrivain partagé, démarré au premier appel
+     */
+    public static synchronized AuditWriter get() {
+        if (instance == null) {
+            AuditWriter writer = new AuditWriter();
+            writer.thread.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(writer::close, "audit-writer-shutdown"));
+            instance = writer;
+        }
+        return instance;
+    }
+
+    /**
+     * Dépose une entrée; ne bloque que si la file est pleine et BACKPRESSURE vaut BLOCK
+     */
+    public void submit(String action, String tableName, Integer recordId, String user, String details) {
+        Entry entry = new Entry(action, tableName, recordId, user != null ? user : "system",
+                details != null ? details : "", new Timestamp(System.currentTimeMillis()));
+        if (queue.offer(entry)) {
+            return;
+        }
+        switch (BACKPRESSURE) {
+            case BLOCK:
+                try {
+                    queue.put(entry);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    dropped.incrementAndGet();
+                }
+                break;
+            case DROP:
+                dropped.incrementAndGet();
+                break;
+            case SPILL:
+                spill(List.of(entry));
+                break;
+        }
+    }
+
+    /**
+     * Attend que toutes les entrées déposées avant l'appel soient écrites
+     * (ex: avant de relire l'historique)
+     *
+     * @return false si le délai a expiré
+     */
+    public boolean flush(long timeoutMs) {
+        if (!running) {
+            return queue.isEmpty();
+        }
+        CountDownLatch latch = new CountDownLatch(1);
+        try {
+            if (!queue.offer(new Entry(latch), timeoutMs, TimeUnit.MILLISECONDS)) {
+                return false;
+            }
+            return latch.await(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Vide la file puis arrête le thread d'écriture
+     */
+    public void close() {
+        flush(SHUTDOWN_TIMEOUT_MS);
+        running = false;
+        thread.interrupt();
+        try {
+            thread.join(SHUTDOWN_TIMEOUT_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public long getWritten() {
+        return written.get();
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    public long getSpilled() {
+        return spilled.get();
+    }
+
+    public int getPending() {
+        return queue.size();
+    }
+
+    private void run() {
+        List<Entry> batch = new ArrayList<>(BATCH_SIZE);
+        List<CountDownLatch> flushed = new ArrayList<>();
+        while (running || !queue.isEmpty()) {
+            try {
+                Entry first = queue.poll(FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    replaySpill();
+                    continue;
+                }
+                long deadline = System.currentTimeMillis() + FLUSH_INTERVAL_MS;
+                Entry next = first;
+                while (next != null) {
+                    if (next.latch != null) {
+                        flushed.add(next.latch);
+                        break;
+                    }
+                    batch.add(next);
+                    if (batch.size() >= BATCH_SIZE) {
+                        break;
+                    }
+                    long wait = deadline - System.currentTimeMillis();
+                    next = wait > 0 ? queue.poll(wait, TimeUnit.MILLISECONDS) : queue.poll();
+                }
+            } catch (InterruptedException e) {
+                // arrêt demandé: on termine le lot en cours puis on vide la file
+                queue.drainTo(batch);
+                batch.removeIf(entry -> {
+                    if (entry.latch != null) {
+                        flushed.add(entry.latch);
+                        return true;
+                    }
+                    return false;
+                });
+            }
+            if (!batch.isEmpty()) {
+                try {
+                    insert(batch);
+                    written.addAndGet(batch.size());
+                } catch (SQLException e) {
+                    System.err.println("Historique: écriture impossible (" + e.getMessage() + "), "
+                            + batch.size() + " entrées déversées dans " + SPILL_FILE);
+                    spill(batch);
+                }
+                batch.clear();
+            }
+            for (CountDownLatch latch : flushed) {
+                latch.countDown();
+            }
+            flushed.clear();
+        }
+    }
+
+    private void insert(List<Entry> entries) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(INSERT_SQL)) {
+            for (Entry entry : entries) {
+                pstmt.setString(1, entry.action);
+                pstmt.setString(2, entry.tableName);
+                if (entry.recordId == null) pstmt.setNull(3, java.sql.Types.INTEGER); else pstmt.setInt(3, entry.recordId);
+                pstmt.setString(4, entry.user);
+                pstmt.setString(5, entry.details);
+                pstmt.setTimestamp(6, entry.createdAt);
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+    }
+
+    private void spill(List<Entry> entries) {
+        synchronized (spillLock) {
+            try (BufferedWriter out = Files.newBufferedWriter(SPILL_FILE, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                for (Entry entry : entries) {
+                    out.write(encode(entry));
+                    out.newLine();
+                }
+                spilled.addAndGet(entries.size());
+            } catch (IOException e) {
+                System.err.println("Historique: déversement impossible, " + entries.size() + " entrées perdues: " + e.getMessage());
+                dropped.addAndGet(entries.size());
+            }
+        }
+    }
+
+    /**
+     * Réinjecte dans la base les entrées déversées, quand la file est au repos
+     */
+    private void replaySpill() {
+        if (System.currentTimeMillis() < replayAfter) {
+            return;
+        }
+        List<Entry> entries = new ArrayList<>();
+        List<String> illisibles = new ArrayList<>();
+        synchronized (spillLock) {
+            if (!Files.exists(SPILL_FILE)) {
+                return;
+            }
+            try (BufferedReader in = Files.newBufferedReader(SPILL_FILE, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    if (line.isEmpty()) {
+                        continue;
+                    }
+                    try {
+                        entries.add(decode(line));
+                    } catch (RuntimeException e) {
+                        illisibles.add(line);
+                    }
+                }
+                if (!illisibles.isEmpty()) {
+                    dropped.addAndGet(illisibles.size());
+                    Files.write(SPILL_BAD_FILE, illisibles, StandardCharsets.UTF_8,
+                            StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                    System.err.println("Historique: " + illisibles.size() + " lignes illisibles de " + SPILL_FILE
+                            + " mises de côté dans " + SPILL_BAD_FILE);
+                }
+                Files.delete(SPILL_FILE);
+            } catch (IOException e) {
+                System.err.println("Historique: relecture de " + SPILL_FILE + " impossible: " + e.getMessage());
+                replayAfter = System.currentTimeMillis() + SPILL_RETRY_MS;
+                return;
+            }
+        }
+        for (int from = 0; from < entries.size(); from += BATCH_SIZE) {
+            List<Entry> chunk = entries.subList(from, Math.min(from + BATCH_SIZE, entries.size()));
+            try {
+                insert(chunk);
+                written.addAndGet(chunk.size());
+            } catch (SQLException e) {
+                // base toujours indisponible: on remet le reste de côté
+                spill(entries.subList(from, entries.size()));
+                spilled.addAndGet(-(entries.size() - from));
+                replayAfter = System.currentTimeMillis() + SPILL_RETRY_MS;
+                return;
+            }
+        }
+    }
+
+    private static String encode(Entry entry) {
+        return String.join("\t",
+                escape(entry.action),
+                escape(entry.tableName),
+                entry.recordId == null ? "" : entry.recordId.toString(),
+                escape(entry.user),
+                escape(entry.details),
+                String.valueOf(entry.createdAt.getTime()));
+    }
+
+    private static Entry decode(String line) {
+        String[] fields = line.split("\t", -1);
+        return new Entry(unescape(fields[0]), unescape(fields[1]),
+                fields[2].isEmpty() ? null : Integer.valueOf(fields[2]),
+                unescape(fields[3]), unescape(fields[4]), new Timestamp(Long.parseLong(fields[5])));
+    }
+
+    static String escape(String value) {
+        if (value == null) {
+            return "";
+        }
+        return value.replace("\\", "\\\\").replace("\t", "\\t").replace("\n", "\\n").replace("\r", "\\r");
+    }
+
+    private static String unescape(String value) {
+        StringBuilder sb = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' && i + 1 < value.length()) {
+                char next = value.charAt(++i);
+                sb.append(next == 't' ? '\t' : next == 'n' ? '\n' : next == 'r' ? '\r' : next);
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+}
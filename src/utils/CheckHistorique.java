@@ -7,10 +7,10 @@ import java.sql.Statement;
 public class CheckHistorique {
     public static void main(String[] args) {
         try {
-            AuditUtils.ensureTableExists();
-            Connection conn = DatabaseConnection.getConnection();
+            MigrationRunner.migrate();
             String sql = "SELECT id, action, table_name, record_id, user, details, created_at FROM historique ORDER BY created_at DESC LIMIT 20";
-            try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
+            try (Connection conn = DatabaseConnection.getConnection();
+                 Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
                 System.out.println("Dernières entrées historique:");
                 while (rs.next()) {
                     System.out.printf("%d | %s | %s | %s | %s | %s | %s\n",
@@ -0,0 +1,584 @@
+package utils;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Pool de connexions JDBC borné
+ *
+ * Les connexions physiques sont ouvertes une seule fois puis réutilisées.
+ * Chaque appel à getConnection() emprunte une connexion; l'appel à close()
+ * sur la connexion empruntée la rend au pool au lieu de la fermer.
+ *
+ * - maxSize: nombre maximal de connexions physiques (empruntées + libres)
+ * - minIdle: nombre de connexions libres conservées malgré l'inactivité; le pool est
+ *   rempli jusqu'à minIdle dès sa création puis à chaque maintenance (voir fillIdle)
+ * - idleTimeoutMs: durée d'inactivité au-delà de laquelle une connexion libre est fermée
+ * - borrowTimeoutMs: attente maximale quand toutes les connexions sont empruntées
+ * - statementCacheSize: nombre de PreparedStatement gardés en cache par connexion physique
+ *   (0 pour désactiver le cache)
+ *
+ * Santé des connexions (voir setValidation, setKeepAlive, setLeakDetectionThreshold):
+ * - une connexion inutilisée depuis un moment est validée (ping) avant d'être prêtée,
+ *   dans un budget de temps; si elle a été coupée par le serveur (wait_timeout)
+ *   elle est remplacée de façon transparente
+ * - les connexions libres sont pingées en arrière-plan pour rester ouvertes
+ * - un emprunt conservé trop longtemps est signalé avec la pile de l'emprunteur
+ */
+public class ConnectionPool implements DataSource {
+
+    private static final long HOUSEKEEPING_PERIOD_MS = 5 * 1000;
+    private static final int WAIT_SAMPLES = 1024;
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int minIdle;
+    private final int maxSize;
+    private final long idleTimeoutMs;
+    private final long borrowTimeoutMs;
+    private final int statementCacheSize;
+
+    private volatile long validationIntervalMs = 30 * 1000;
+    private volatile long validationTimeoutMs = 1000;
+    private volatile long keepAliveMs = 0;
+    private volatile long leakDetectionThresholdMs = 0;
+    private volatile Runnable writeListener = null;
+
+    private final Semaphore permits;
+    private final ConcurrentLinkedDeque<PooledConnection> idle = new ConcurrentLinkedDeque<>();
+    private final Set<LeasedConnectionHandler> leased = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger totalCount = new AtomicInteger();
+    private final AtomicLong statementCacheHits = new AtomicLong();
+    private final AtomicLong statementCacheMisses = new AtomicLong();
+    private final AtomicLong validationFailures = new AtomicLong();
+    private final AtomicLong leaksDetected = new AtomicLong();
+    private final long[] waitSamplesNanos = new long[WAIT_SAMPLES];
+    private long waitSampleCount = 0;
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean closed = false;
+    private PrintWriter logWriter;
+
+    public ConnectionPool(String url, String user, String password,
+                          int minIdle, int maxSize, long idleTimeoutMs, long borrowTimeoutMs,
+                          int statementCacheSize) {
+        if (maxSize <= 0 || minIdle < 0 || minIdle > maxSize) {
+            throw new IllegalArgumentException("Configuration du pool invalide: minIdle=" + minIdle + ", maxSize=" + maxSize);
+        }
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.minIdle = minIdle;
+        this.maxSize = maxSize;
+        this.idleTimeoutMs = idleTimeoutMs;
+        this.borrowTimeoutMs = borrowTimeoutMs;
+        this.statementCacheSize = statementCacheSize;
+        this.permits = new Semaphore(maxSize, true);
+
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "db-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        housekeeper.scheduleWithFixedDelay(this::housekeeping,
+                0, HOUSEKEEPING_PERIOD_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Validation à l'emprunt
+     *
+     * @param intervalMs une connexion inutilisée depuis plus longtemps est pingée avant d'être prêtée
+     *                   (0 pour valider à chaque emprunt)
+     * @param timeoutMs budget de temps du ping; au-delà la connexion est remplacée
+     */
+    public void setValidation(long intervalMs, long timeoutMs) {
+        this.validationIntervalMs = intervalMs;
+        this.validationTimeoutMs = timeoutMs;
+    }
+
+    /**
+     * Ping en arrière-plan des connexions libres inactives depuis keepAliveMs (0 pour désactiver).
+     * Doit être inférieur au wait_timeout du serveur MySQL.
+     */
+    public void setKeepAlive(long keepAliveMs) {
+        this.keepAliveMs = keepAliveMs;
+    }
+
+    /**
+     * Signale les connexions empruntées depuis plus de thresholdMs (0 pour désactiver).
+     * Quand la détection est active, la pile de chaque emprunteur est mémorisée.
+     */
+    public void setLeakDetectionThreshold(long thresholdMs) {
+        this.leakDetectionThresholdMs = thresholdMs;
+    }
+
+    /**
+     * Notifié à chaque préparation d'une requête susceptible d'écrire
+     * (tout ce qui n'est pas un SELECT/SHOW préparé). Sert au routage lecture/écriture.
+     */
+    public void setWriteListener(Runnable listener) {
+        this.writeListener = listener;
+    }
+
+    /**
+     * Emprunte une connexion au pool
+     *
+     * Attend au plus borrowTimeoutMs si le pool est saturé.
+     * La connexion retournée doit être fermée (try-with-resources) pour être rendue.
+     */
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Le pool de connexions est fermé");
+        }
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new SQLException("Aucune connexion disponible après " + borrowTimeoutMs + " ms (pool saturé: " + maxSize + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Attente d'une connexion interrompue", e);
+        }
+
+        try {
+            PooledConnection pooled;
+            while ((pooled = idle.pollFirst()) != null) {
+                if (isUsable(pooled)) {
+                    break;
+                }
+                discard(pooled);
+            }
+            if (pooled == null) {
+                pooled = newPhysicalConnection();
+            }
+            recordWait(System.nanoTime() - start);
+            return pooled.lease();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Le pool utilise des identifiants fixes");
+    }
+
+    /**
+     * Ferme toutes les connexions libres et refuse les nouveaux emprunts.
+     * Les connexions encore empruntées sont fermées à leur restitution.
+     */
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            discard(pooled);
+        }
+    }
+
+    public int getTotalCount() {
+        return totalCount.get();
+    }
+
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    public int getActiveCount() {
+        return maxSize - permits.availablePermits();
+    }
+
+    /**
+     * Nombre de prepareStatement() servis depuis le cache
+     */
+    public long getStatementCacheHits() {
+        return statementCacheHits.get();
+    }
+
+    /**
+     * Nombre de prepareStatement() ayant nécessité une préparation
+     */
+    public long getStatementCacheMisses() {
+        return statementCacheMisses.get();
+    }
+
+    /**
+     * Photographie de l'état du pool (emprunts, attentes, santé)
+     */
+    public PoolStats getStats() {
+        long[] samples;
+        synchronized (waitSamplesNanos) {
+            int n = (int) Math.min(waitSampleCount, WAIT_SAMPLES);
+            samples = Arrays.copyOf(waitSamplesNanos, n);
+        }
+        Arrays.sort(samples);
+        return new PoolStats(
+                getActiveCount(),
+                getIdleCount(),
+                permits.getQueueLength(),
+                getTotalCount(),
+                percentileMs(samples, 0.50),
+                percentileMs(samples, 0.95),
+                percentileMs(samples, 0.99),
+                samples.length == 0 ? 0 : samples[samples.length - 1] / 1_000_000.0,
+                statementCacheHits.get(),
+                statementCacheMisses.get(),
+                validationFailures.get(),
+                leaksDetected.get());
+    }
+
+    private static double percentileMs(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1_000_000.0;
+    }
+
+    private void recordWait(long nanos) {
+        synchronized (waitSamplesNanos) {
+            waitSamplesNanos[(int) (waitSampleCount % WAIT_SAMPLES)] = nanos;
+            waitSampleCount++;
+        }
+    }
+
+    private PooledConnection newPhysicalConnection() throws SQLException {
+        Connection physical = DriverManager.getConnection(url, user, password);
+        totalCount.incrementAndGet();
+        return new PooledConnection(physical);
+    }
+
+    /**
+     * Vérifie qu'une connexion libre peut être prêtée
+     * Le ping n'est fait que si la connexion est restée inutilisée plus de validationIntervalMs.
+     */
+    private boolean isUsable(PooledConnection pooled) {
+        try {
+            if (pooled.physical.isClosed()) {
+                return false;
+            }
+            if (System.currentTimeMillis() - pooled.lastActive() < validationIntervalMs) {
+                return true;
+            }
+            return validate(pooled);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private boolean validate(PooledConnection pooled) {
+        try {
+            int timeoutSeconds = (int) Math.max(1, (validationTimeoutMs + 999) / 1000);
+            if (pooled.physical.isValid(timeoutSeconds)) {
+                // lastUsed n'est pas modifié: un ping ne doit pas retarder l'éviction (evictIdle)
+                pooled.lastValidated = System.currentTimeMillis();
+                return true;
+            }
+        } catch (SQLException ignore) {
+        }
+        validationFailures.incrementAndGet();
+        return false;
+    }
+
+    private void release(LeasedConnectionHandler handler) {
+        leased.remove(handler);
+        PooledConnection pooled = handler.pooled;
+        try {
+            boolean reusable = !closed && !pooled.physical.isClosed();
+            if (reusable && !pooled.physical.getAutoCommit()) {
+                // Une transaction laissée ouverte ne doit pas fuir vers l'emprunteur suivant
+                pooled.physical.rollback();
+                pooled.physical.setAutoCommit(true);
+            }
+            if (reusable) {
+                pooled.lastUsed = System.currentTimeMillis();
+                idle.offerFirst(pooled);
+            } else {
+                discard(pooled);
+            }
+        } catch (SQLException e) {
+            discard(pooled);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void discard(PooledConnection pooled) {
+        totalCount.decrementAndGet();
+        pooled.statements.clear();
+        try {
+            pooled.physical.close();
+        } catch (SQLException ignore) {
+        }
+    }
+
+    private static boolean isPotentialWrite(Method method, Object[] args) {
+        switch (method.getName()) {
+            case "prepareStatement":
+                String sql = ((String) args[0]).stripLeading().toUpperCase();
+                return !(sql.startsWith("SELECT") || sql.startsWith("SHOW") || sql.startsWith("WITH"));
+            case "createStatement":
+            case "prepareCall":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private void housekeeping() {
+        try {
+            evictIdle();
+            keepAlive();
+            fillIdle();
+            detectLeaks();
+        } catch (RuntimeException e) {
+            System.err.println("Erreur maintenance du pool: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Ferme les connexions libres inactives depuis plus de idleTimeoutMs,
+     * en conservant au moins minIdle connexions.
+     */
+    private void evictIdle() {
+        long now = System.currentTimeMillis();
+        Iterator<PooledConnection> it = idle.descendingIterator();
+        while (it.hasNext() && idle.size() > minIdle) {
+            PooledConnection pooled = it.next();
+            if (now - pooled.lastUsed > idleTimeoutMs && idle.removeFirstOccurrence(pooled)) {
+                discard(pooled);
+            }
+        }
+    }
+
+    /**
+     * Pingue les connexions libres ni utilisées ni pingées depuis keepAliveMs pour
+     * que le serveur ne les coupe pas (wait_timeout); les connexions mortes sont écartées.
+     * Le ping ne compte pas comme une utilisation: au-delà de minIdle, une connexion
+     * libre est tout de même fermée après idleTimeoutMs.
+     *
+     * Une connexion sortie de idle pour le ping est comptée comme empruntée
+     * (permis pris sans attendre): un emprunteur qui trouve idle vide pendant
+     * ce temps ne peut pas faire dépasser maxSize. Pool saturé: pas de ping,
+     * les connexions libres seront empruntées sous peu.
+     */
+    private void keepAlive() {
+        long interval = keepAliveMs;
+        if (interval <= 0) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (PooledConnection pooled : idle) {
+            if (now - pooled.lastActive() < interval) {
+                continue;
+            }
+            if (!permits.tryAcquire()) {
+                return;
+            }
+            try {
+                if (!idle.removeFirstOccurrence(pooled)) {
+                    continue;
+                }
+                if (validate(pooled)) {
+                    idle.offerLast(pooled);
+                } else {
+                    discard(pooled);
+                }
+            } finally {
+                permits.release();
+            }
+        }
+    }
+
+    /**
+     * Ouvre des connexions jusqu'à minIdle connexions libres, chacune sous un
+     * permis pour ne jamais dépasser maxSize. Base injoignable: on réessaiera
+     * à la maintenance suivante (l'emprunt signalera l'erreur).
+     */
+    private void fillIdle() {
+        while (!closed && idle.size() < minIdle && permits.tryAcquire()) {
+            try {
+                PooledConnection pooled = newPhysicalConnection();
+                idle.offerLast(pooled);
+                if (closed && idle.removeFirstOccurrence(pooled)) {
+                    discard(pooled);
+                }
+            } catch (SQLException e) {
+                return;
+            } finally {
+                permits.release();
+            }
+        }
+    }
+
+    private void detectLeaks() {
+        long threshold = leakDetectionThresholdMs;
+        if (threshold <= 0) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (LeasedConnectionHandler handler : leased) {
+            if (!handler.leakReported && now - handler.borrowedAt > threshold) {
+                handler.leakReported = true;
+                leaksDetected.incrementAndGet();
+                System.err.println("Fuite de connexion probable: empruntée depuis "
+                        + (now - handler.borrowedAt) + " ms par " + handler.borrowerThread);
+                if (handler.borrowerStack != null) {
+                    handler.borrowerStack.printStackTrace();
+                }
+            }
+        }
+    }
+
+    // --- DataSource ---
+
+    @Override
+    public PrintWriter getLogWriter() {
+        return logWriter;
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) {
+        this.logWriter = out;
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) {
+        DriverManager.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() {
+        return DriverManager.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        throw new SQLException("Pas d'implémentation de " + iface.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
+    }
+
+    /**
+     * Connexion physique gérée par le pool
+     */
+    private class PooledConnection {
+        final Connection physical;
+        final StatementCache statements;
+        // Dernier emprunt ou restitution
+        volatile long lastUsed = System.currentTimeMillis();
+        // Dernier ping réussi (validation à l'emprunt ou keepAlive)
+        volatile long lastValidated = 0;
+
+        PooledConnection(Connection physical) {
+            this.physical = physical;
+            this.statements = new StatementCache(physical, statementCacheSize, statementCacheHits, statementCacheMisses);
+        }
+
+        /**
+         * Dernier moment où la connexion était connue vivante
+         */
+        long lastActive() {
+            return Math.max(lastUsed, lastValidated);
+        }
+
+        Connection lease() {
+            LeasedConnectionHandler handler = new LeasedConnectionHandler(this);
+            leased.add(handler);
+            return (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    handler);
+        }
+    }
+
+    /**
+     * Vue logique d'une connexion empruntée: close() rend la connexion au pool,
+     * tout autre appel est délégué à la connexion physique.
+     */
+    private class LeasedConnectionHandler implements InvocationHandler {
+        private final PooledConnection pooled;
+        private final long borrowedAt = System.currentTimeMillis();
+        private final String borrowerThread = Thread.currentThread().getName();
+        private final Throwable borrowerStack = leakDetectionThresholdMs > 0
+                ? new Throwable("Emprunt de la connexion") : null;
+        private volatile boolean leakReported = false;
+        private boolean returned = false;
+
+        LeasedConnectionHandler(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public synchronized Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!returned) {
+                        returned = true;
+                        release(this);
+                    }
+                    return null;
+                case "isClosed":
+                    return returned || pooled.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + pooled.physical + "]";
+                default:
+                    break;
+            }
+            if (returned) {
+                throw new SQLException("Connexion déjà rendue au pool");
+            }
+            Runnable listener = writeListener;
+            if (listener != null && isPotentialWrite(method, args)) {
+                listener.run();
+            }
+            if (method.getName().equals("prepareStatement") && args.length <= 2
+                    && (args.length == 1 || method.getParameterTypes()[1] == int.class)) {
+                return pooled.statements.prepare((Connection) proxy, (String) args[0],
+                        args.length == 2 ? (Integer) args[1] : null);
+            }
+            try {
+                return method.invoke(pooled.physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
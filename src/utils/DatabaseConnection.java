@@ -1,71 +1,235 @@
 package utils;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 
 /**
  * Classe de gestion de la connexion à la base de données
- * 
- * Utilise le pattern Singleton pour garantir une seule connexion
- * réutilisée pendant toute l'exécution de l'application.
+ *
+ * Les connexions sont fournies par un pool borné (ConnectionPool) partagé
+ * par toute l'application. Chaque appel à getConnection() emprunte une
+ * connexion; la fermer (try-with-resources) la rend au pool sans refaire
+ * le handshake MySQL. Le thread Swing et les traitements en arrière-plan
+ * peuvent ainsi accéder à la base en parallèle, chacun avec sa connexion.
+ *
+ * Routage lecture/écriture: si REPLICA_URL est renseigné, les lectures
+ * lourdes (statistiques, historique, exports) passent par getReadConnection()
+ * et sont servies par le réplica en lecture seule. On retombe sur le primaire si:
+ * - le réplica est injoignable (nouvel essai après REPLICA_RETRY_MS)
+ * - son retard de réplication dépasse REPLICA_MAX_LAG_S
+ * - cette session (ce terminal) vient d'écrire: ses propres écritures restent
+ *   visibles immédiatement (read-your-writes)
  */
 public class DatabaseConnection {
-    
+
     // Configuration de la base de données - À modifier selon votre environnement
     private static final String URL = "jdbc:mysql://localhost:3306/restaurant?useUnicode=true&characterEncoding=utf8&serverTimezone=UTC";
     private static final String USER = "root";          // À remplacer par votre utilisateur MySQL
     private static final String PASSWORD = "0000";      // À remplacer par votre mot de passe
     private static final String DRIVER = "com.mysql.cj.jdbc.Driver";
 
-    private static Connection connection = null;
+    // Configuration du pool de connexions
+    private static final int POOL_MIN_IDLE = 2;
+    private static final int POOL_MAX_SIZE = 10;
+    private static final long POOL_IDLE_TIMEOUT_MS = 5 * 60 * 1000;
+    private static final long POOL_BORROW_TIMEOUT_MS = 5 * 1000;
+
+    // Cache de PreparedStatement par connexion physique (0 pour désactiver)
+    private static final int STATEMENT_CACHE_SIZE = 64;
+    // Préparation côté serveur (COM_STMT_PREPARE): chaque SQL n'est analysé qu'une fois par connexion
+    private static final boolean SERVER_SIDE_PREPARE = true;
+    // Les lots (createAll/updateAll/deleteAll) partent en un seul aller-retour: INSERT multi-lignes
+    private static final boolean REWRITE_BATCHED_STATEMENTS = true;
+
+    // Santé des connexions
+    private static final long VALIDATION_INTERVAL_MS = 30 * 1000;     // ping avant prêt si inutilisée depuis 30 s
+    private static final long VALIDATION_TIMEOUT_MS = 1000;           // budget du ping
+    private static final long KEEP_ALIVE_MS = 4 * 60 * 1000;          // doit rester < wait_timeout MySQL
+    private static final long LEAK_DETECTION_THRESHOLD_MS = 60 * 1000;
+
+    // Réplica en lecture seule (vide pour désactiver), ex: "jdbc:mysql://localhost:3307/restaurant?..."
+    private static final String REPLICA_URL = "";
+    private static final int REPLICA_POOL_MAX_SIZE = 4;
+    private static final long REPLICA_BORROW_TIMEOUT_MS = 1000;
+    private static final long REPLICA_RETRY_MS = 30 * 1000;          // après une panne du réplica
+    private static final long REPLICA_LAG_CHECK_MS = 5 * 1000;       // fréquence de mesure du retard
+    private static final long REPLICA_MAX_LAG_S = 5;
+    private static final long READ_YOUR_WRITES_MS = 2 * 1000;        // marge après une écriture de la session
+
+    private static ConnectionPool pool = null;
+    private static ConnectionPool replicaPool = null;
+
+    private static volatile long lastWriteAt = 0;
+    private static volatile long replicaDownUntil = 0;
+    private static volatile long replicaLagCheckedAt = 0;
+    private static volatile long replicaLagSeconds = 0;
 
     /**
-     * Récupère la connexion à la base de données
-     * Si la connexion n'existe pas ou est fermée, crée une nouvelle connexion
-     * 
-     * @return Connection l'objet de connexion
+     * Retourne le pool de connexions, en le créant au premier appel
      */
-    public static Connection getConnection() {
+    public static synchronized ConnectionPool getDataSource() throws ClassNotFoundException {
+        if (pool == null) {
+            Class.forName(DRIVER);
+            String url = withDriverOptions(URL);
+            pool = new ConnectionPool(url, USER, PASSWORD,
+                    POOL_MIN_IDLE, POOL_MAX_SIZE, POOL_IDLE_TIMEOUT_MS, POOL_BORROW_TIMEOUT_MS,
+                    STATEMENT_CACHE_SIZE);
+            pool.setValidation(VALIDATION_INTERVAL_MS, VALIDATION_TIMEOUT_MS);
+            pool.setKeepAlive(KEEP_ALIVE_MS);
+            pool.setLeakDetectionThreshold(LEAK_DETECTION_THRESHOLD_MS);
+            pool.setWriteListener(() -> lastWriteAt = System.currentTimeMillis());
+            System.out.println("Pool de connexions initialisé (max " + POOL_MAX_SIZE + ")");
+        }
+        return pool;
+    }
+
+    /**
+     * Emprunte une connexion au pool
+     * La connexion doit être fermée après usage pour être rendue au pool
+     *
+     * @return Connection une connexion validée
+     * @throws SQLException si aucune connexion n'a pu être obtenue
+     */
+    public static Connection getConnection() throws SQLException {
         try {
-            if (connection == null || connection.isClosed()) {
-                Class.forName(DRIVER);
-                connection = DriverManager.getConnection(URL, USER, PASSWORD);
-                System.out.println("Connexion à la base de données établie");
-            }
+            return getDataSource().getConnection();
         } catch (ClassNotFoundException e) {
-            System.err.println("Erreur: Driver MySQL non trouvé");
-            System.err.println("Assurez-vous que mysql-connector.jar est dans le dossier lib/");
-        } catch (SQLException e) {
-            System.err.println("Erreur de connexion à la base de données: " + e.getMessage());
+            throw new SQLException("Driver MySQL non trouvé: assurez-vous que mysql-connector.jar est dans le dossier lib/", e);
         }
-        return connection;
     }
 
     /**
-     * Ferme la connexion à la base de données
+     * Emprunte une connexion pour une lecture tolérant un léger retard (réplica)
+     *
+     * À utiliser uniquement dans les méthodes de lecture pure (requêtes de
+     * reporting). Retourne une connexion au primaire si le réplica est absent,
+     * en panne, en retard, ou si cette session vient d'écrire.
      */
-    public static void closeConnection() {
+    public static Connection getReadConnection() throws SQLException {
+        if (REPLICA_URL.isEmpty()) {
+            return getConnection();
+        }
+        long now = System.currentTimeMillis();
+        boolean lagKnown = now - replicaLagCheckedAt <= REPLICA_LAG_CHECK_MS;
+        long readYourWritesWindow = Math.max(READ_YOUR_WRITES_MS,
+                (Math.min(replicaLagSeconds, REPLICA_MAX_LAG_S) + 1) * 1000);
+        if (now < replicaDownUntil
+                || now - lastWriteAt < readYourWritesWindow
+                || (lagKnown && replicaLagSeconds > REPLICA_MAX_LAG_S)) {
+            return getConnection();
+        }
+
+        Connection replica = null;
         try {
-            if (connection != null && !connection.isClosed()) {
-                connection.close();
-                System.out.println("Connexion fermée");
+            replica = getReplicaPool().getConnection();
+            if (!lagKnown) {
+                replicaLagSeconds = measureReplicaLag(replica);
+                replicaLagCheckedAt = now;
+            }
+            if (replicaLagSeconds <= REPLICA_MAX_LAG_S) {
+                return replica;
+            }
+            replica.close();
+        } catch (ClassNotFoundException | SQLException e) {
+            System.err.println("Réplica indisponible, lecture sur le primaire: " + e.getMessage());
+            replicaDownUntil = now + REPLICA_RETRY_MS;
+            if (replica != null) {
+                try { replica.close(); } catch (SQLException ignore) {}
             }
-        } catch (SQLException e) {
-            System.err.println("Erreur lors de la fermeture: " + e.getMessage());
+        }
+        return getConnection();
+    }
+
+    /**
+     * Prépare une requête dont le résultat est lu en flux, ligne par ligne
+     *
+     * Par défaut le driver MySQL charge tout le résultat en mémoire avant le
+     * premier next(). Avec une taille de fetch Integer.MIN_VALUE, les lignes
+     * arrivent au fil de la lecture: la mémoire reste constante quelle que soit
+     * la taille de la table. Tant que le ResultSet est ouvert, la connexion ne
+     * peut servir à aucune autre requête (les DAO appelés pendant la lecture
+     * empruntent leur propre connexion au pool).
+     */
+    public static PreparedStatement prepareStreaming(Connection conn, String sql) throws SQLException {
+        PreparedStatement pstmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        pstmt.setFetchSize(Integer.MIN_VALUE);
+        return pstmt;
+    }
+
+    private static String withDriverOptions(String url) {
+        if (SERVER_SIDE_PREPARE) {
+            url += "&useServerPrepStmts=true";
+        }
+        if (REWRITE_BATCHED_STATEMENTS) {
+            url += "&rewriteBatchedStatements=true";
+        }
+        return url;
+    }
+
+    private static synchronized ConnectionPool getReplicaPool() throws ClassNotFoundException {
+        if (replicaPool == null) {
+            Class.forName(DRIVER);
+            String url = withDriverOptions(REPLICA_URL);
+            replicaPool = new ConnectionPool(url, USER, PASSWORD,
+                    0, REPLICA_POOL_MAX_SIZE, POOL_IDLE_TIMEOUT_MS, REPLICA_BORROW_TIMEOUT_MS,
+                    STATEMENT_CACHE_SIZE);
+            replicaPool.setValidation(VALIDATION_INTERVAL_MS, VALIDATION_TIMEOUT_MS);
+            replicaPool.setKeepAlive(KEEP_ALIVE_MS);
+            replicaPool.setLeakDetectionThreshold(LEAK_DETECTION_THRESHOLD_MS);
+        }
+        return replicaPool;
+    }
+
+    /**
+     * Retard de réplication en secondes
+     * Long.MAX_VALUE si la réplication est arrêtée; 0 si l'instance n'est pas configurée en réplica.
+     */
+    private static long measureReplicaLag(Connection replica) throws SQLException {
+        try (Statement stmt = replica.createStatement();
+             ResultSet rs = stmt.executeQuery("SHOW REPLICA STATUS")) {
+            if (!rs.next()) {
+                return 0;
+            }
+            long lag = rs.getLong("Seconds_Behind_Source");
+            return rs.wasNull() ? Long.MAX_VALUE : lag;
+        }
+    }
+
+    /**
+     * Photographie de l'état du pool de connexions, ou null si le pool n'est pas encore créé
+     */
+    public static synchronized PoolStats getPoolStats() {
+        return pool != null ? pool.getStats() : null;
+    }
+
+    /**
+     * Ferme le pool et toutes ses connexions
+     */
+    public static synchronized void closeConnection() {
+        if (replicaPool != null) {
+            replicaPool.close();
+            replicaPool = null;
+        }
+        if (pool != null) {
+            pool.close();
+            pool = null;
+            System.out.println("Connexion fermée");
         }
     }
 
     /**
      * Teste la connexion à la base de données
-     * 
+     *
      * @return true si la connexion fonctionne, false sinon
      */
     public static boolean testConnection() {
-        try {
-            Connection conn = getConnection();
-            return conn != null && !conn.isClosed();
+        try (Connection conn = getConnection()) {
+            return !conn.isClosed();
         } catch (SQLException e) {
+            System.err.println("Erreur de connexion à la base de données: " + e.getMessage());
             return false;
         }
     }
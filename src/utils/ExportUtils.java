@@ -5,22 +5,25 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
-import java.sql.Statement;
 
 /**
  * Utilitaire pour exporter les données de la base en CSV.
+ *
+ * Les lignes sont lues en flux et écrites au fil de l'eau: la mémoire
+ * utilisée ne dépend pas de la taille de la table.
  */
 public class ExportUtils {
 
     public static void exportTableToCSV(String tableName, String outputPath) throws SQLException, IOException {
-        Connection conn = DatabaseConnection.getConnection();
         String sql = "SELECT * FROM " + tableName;
 
-        try (Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql);
+        try (Connection conn = DatabaseConnection.getReadConnection();
+             PreparedStatement pstmt = DatabaseConnection.prepareStreaming(conn, sql);
+             ResultSet rs = pstmt.executeQuery();
              BufferedWriter writer = Files.newBufferedWriter(Paths.get(outputPath))) {
 
             ResultSetMetaData meta = rs.getMetaData();
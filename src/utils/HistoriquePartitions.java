@@ -0,0 +1,287 @@
+package utils;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Partitions mensuelles de la table historique et politique de rétention
+ *
+ * historique est partitionnée par mois sur created_at (partition pAAAAMM
+ * pour le mois AAAA-MM, plus pmax pour les dates futures). Les lectures
+ * bornées par date (HistoriqueDAO) ne parcourent que les partitions
+ * concernées, et une partition expirée se supprime d'un coup (DROP PARTITION)
+ * au lieu d'un DELETE ligne à ligne.
+ *
+ * maintain(), lancé au démarrage puis chaque jour:
+ * - crée à l'avance les partitions des FUTURE_MONTHS prochains mois
+ * - archive chaque partition plus ancienne que RETENTION_MONTHS dans
+ *   ARCHIVE_DIR/historique-AAAAMM.tsv.gz, puis la supprime
+ * Chaque poste lance maintain(): un verrou MySQL (GET_LOCK) fait qu'un seul
+ * poste à la fois la déroule, les autres passent leur tour; une partition
+ * n'est donc archivée qu'une fois. Les archives vont par défaut dans le
+ * dossier local "archives" du poste qui a fait la maintenance; ARCHIVE_DIR
+ * peut pointer vers un dossier partagé pour les regrouper. Avec
+ * ARCHIVE_ENABLED à false, les partitions expirées sont conservées.
+ */
+public final class HistoriquePartitions {
+
+    // Configuration
+    private static final int RETENTION_MONTHS = 12;
+    private static final int FUTURE_MONTHS = 2;
+    // Dossier local, ou partagé par tous les postes, ex: "\\\\serveur\\restaurant\\archives"
+    private static final String ARCHIVE_DIR = "archives";
+    // false: ni archivage ni suppression des partitions expirées
+    private static final boolean ARCHIVE_ENABLED = true;
+    private static final long MAINTENANCE_INTERVAL_H = 24;
+
+    private static final DateTimeFormatter PARTITION_MONTH = DateTimeFormatter.ofPattern("yyyyMM");
+    private static final String MAX_PARTITION = "pmax";
+    private static final String LOCK_NAME = "restaurant_historique_maintenance";
+
+    private static ScheduledExecutorService scheduler = null;
+
+    private HistoriquePartitions() {
+    }
+
+    /**
+     * Lance maintain() maintenant puis toutes les MAINTENANCE_INTERVAL_H heures, en arrière-plan
+     */
+    public static synchronized void startMaintenance() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "historique-retention");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleAtFixedRate(() -> {
+            try {
+                maintain();
+            } catch (Exception e) {
+                System.err.println("Maintenance de l'historique impossible: " + e.getMessage());
+            }
+        }, 0, MAINTENANCE_INTERVAL_H, TimeUnit.HOURS);
+    }
+
+    /**
+     * Crée les partitions à venir, archive et supprime les partitions expirées
+     *
+     * @return Les partitions archivées (vide si un autre poste fait déjà la maintenance)
+     */
+    public static List<String> maintain() throws SQLException, IOException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            if (!tryLock(conn)) {
+                return new ArrayList<>();
+            }
+            try {
+                if (partitions(conn).isEmpty()) {
+                    return new ArrayList<>();
+                }
+                ensureFuturePartitions(conn);
+                if (!ARCHIVE_ENABLED) {
+                    return new ArrayList<>();
+                }
+                return archiveExpired(conn);
+            } finally {
+                unlock(conn);
+            }
+        }
+    }
+
+    /**
+     * Prend le verrou de maintenance sans attendre
+     *
+     * @return false si un autre poste le détient
+     */
+    private static boolean tryLock(Connection conn) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT GET_LOCK(?, 0)")) {
+            pstmt.setString(1, LOCK_NAME);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() && rs.getInt(1) == 1;
+            }
+        }
+    }
+
+    private static void unlock(Connection conn) {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            pstmt.setString(1, LOCK_NAME);
+            pstmt.executeQuery().close();
+        } catch (SQLException e) {
+            System.err.println("Libération du verrou de maintenance impossible: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Partitionne historique par mois, du mois de la plus ancienne entrée
+     * jusqu'à FUTURE_MONTHS mois après le mois courant (migration du schéma)
+     *
+     * MySQL exige que chaque clé unique contienne la colonne de partition:
+     * la clé primaire devient (id, created_at).
+     */
+    static void partitionTable(Connection conn) throws SQLException {
+        if (!partitions(conn).isEmpty()) {
+            return;
+        }
+        YearMonth first = YearMonth.now();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT MIN(created_at) FROM historique")) {
+            if (rs.next() && rs.getTimestamp(1) != null) {
+                first = YearMonth.from(rs.getTimestamp(1).toLocalDateTime());
+            }
+        }
+        YearMonth last = YearMonth.now().plusMonths(FUTURE_MONTHS);
+        StringBuilder ranges = new StringBuilder();
+        for (YearMonth month = first; !month.isAfter(last); month = month.plusMonths(1)) {
+            ranges.append(partitionDefinition(month)).append(", ");
+        }
+        ranges.append("PARTITION ").append(MAX_PARTITION).append(" VALUES LESS THAN MAXVALUE");
+
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("UPDATE historique SET created_at = CURRENT_TIMESTAMP WHERE created_at IS NULL");
+            stmt.executeUpdate("ALTER TABLE historique " +
+                    "MODIFY created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP, " +
+                    "DROP PRIMARY KEY, ADD PRIMARY KEY (id, created_at)");
+            stmt.executeUpdate("ALTER TABLE historique PARTITION BY RANGE (UNIX_TIMESTAMP(created_at)) (" + ranges + ")");
+        }
+    }
+
+    /**
+     * Découpe pmax pour que les FUTURE_MONTHS prochains mois aient leur partition
+     */
+    static void ensureFuturePartitions(Connection conn) throws SQLException {
+        List<String> existing = partitions(conn);
+        YearMonth last = YearMonth.now().plusMonths(FUTURE_MONTHS);
+        StringBuilder ranges = new StringBuilder();
+        for (YearMonth month = YearMonth.now(); !month.isAfter(last); month = month.plusMonths(1)) {
+            if (!existing.contains(partitionName(month)) && isAfterAll(existing, month)) {
+                ranges.append(partitionDefinition(month)).append(", ");
+            }
+        }
+        if (ranges.length() == 0) {
+            return;
+        }
+        ranges.append("PARTITION ").append(MAX_PARTITION).append(" VALUES LESS THAN MAXVALUE");
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("ALTER TABLE historique REORGANIZE PARTITION " + MAX_PARTITION + " INTO (" + ranges + ")");
+        }
+    }
+
+    /**
+     * Archive puis supprime les partitions antérieures à RETENTION_MONTHS mois
+     *
+     * L'archive est écrite dans un fichier temporaire puis renommée: une
+     * partition n'est supprimée que si son archive est complète.
+     */
+    static List<String> archiveExpired(Connection conn) throws SQLException, IOException {
+        YearMonth cutoff = YearMonth.now().minusMonths(RETENTION_MONTHS);
+        List<String> archived = new ArrayList<>();
+        for (String partition : partitions(conn)) {
+            YearMonth month = monthOf(partition);
+            if (month == null || !month.isBefore(cutoff)) {
+                continue;
+            }
+            archive(conn, partition);
+            try (Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate("ALTER TABLE historique DROP PARTITION " + partition);
+            }
+            archived.add(partition);
+            System.out.println("Historique: partition " + partition + " archivée et supprimée");
+        }
+        return archived;
+    }
+
+    private static void archive(Connection conn, String partition) throws SQLException, IOException {
+        Path dir = Paths.get(ARCHIVE_DIR);
+        Files.createDirectories(dir);
+        Path target = dir.resolve("historique-" + partition.substring(1) + ".tsv.gz");
+        Path tmp = dir.resolve(target.getFileName() + ".tmp");
+        String sql = "SELECT id, action, table_name, record_id, user, details, created_at " +
+                "FROM historique PARTITION (" + partition + ") ORDER BY created_at, id";
+        try (BufferedWriter out = new BufferedWriter(new OutputStreamWriter(
+                new GZIPOutputStream(Files.newOutputStream(tmp)), StandardCharsets.UTF_8));
+             PreparedStatement pstmt = DatabaseConnection.prepareStreaming(conn, sql);
+             ResultSet rs = pstmt.executeQuery()) {
+            out.write("id\taction\ttable_name\trecord_id\tuser\tdetails\tcreated_at");
+            out.newLine();
+            while (rs.next()) {
+                Object recordId = rs.getObject(4);
+                out.write(rs.getInt(1) + "\t"
+                        + AuditWriter.escape(rs.getString(2)) + "\t"
+                        + AuditWriter.escape(rs.getString(3)) + "\t"
+                        + (recordId != null ? recordId.toString() : "") + "\t"
+                        + AuditWriter.escape(rs.getString(5)) + "\t"
+                        + AuditWriter.escape(rs.getString(6)) + "\t"
+                        + rs.getTimestamp(7).toLocalDateTime());
+                out.newLine();
+            }
+        }
+        Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Noms des partitions de historique, dans l'ordre (vide si la table n'est pas partitionnée)
+     */
+    private static List<String> partitions(Connection conn) throws SQLException {
+        List<String> names = new ArrayList<>();
+        String sql = "SELECT partition_name FROM information_schema.partitions " +
+                "WHERE table_schema = DATABASE() AND table_name = 'historique' AND partition_name IS NOT NULL " +
+                "ORDER BY partition_ordinal_position";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                names.add(rs.getString(1));
+            }
+        }
+        return names;
+    }
+
+    private static boolean isAfterAll(List<String> partitions, YearMonth month) {
+        for (String partition : partitions) {
+            YearMonth existing = monthOf(partition);
+            if (existing != null && !existing.isBefore(month)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String partitionName(YearMonth month) {
+        return "p" + month.format(PARTITION_MONTH);
+    }
+
+    private static String partitionDefinition(YearMonth month) {
+        return "PARTITION " + partitionName(month)
+                + " VALUES LESS THAN (UNIX_TIMESTAMP('" + month.plusMonths(1).atDay(1) + " 00:00:00'))";
+    }
+
+    private static YearMonth monthOf(String partition) {
+        if (partition.length() != 7 || partition.charAt(0) != 'p') {
+            return null;
+        }
+        try {
+            return YearMonth.parse(partition.substring(1), PARTITION_MONTH);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+}
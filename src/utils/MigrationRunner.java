@@ -0,0 +1,296 @@
+package utils;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Migrations du schéma MySQL, appliquées une fois au démarrage (Main)
+ *
+ * database/restaurant.sql crée le schéma initial; toute évolution ultérieure
+ * est ajoutée ici, à la fin de MIGRATIONS, avec le numéro de version suivant.
+ * Les versions appliquées sont enregistrées dans la table schema_version:
+ * chaque migration ne s'exécute qu'une fois par base. Un verrou MySQL
+ * (GET_LOCK) évite que deux postes démarrés ensemble migrent en parallèle.
+ *
+ * Après les migrations, verifyIndexes() contrôle que tous les index dont
+ * dépendent les requêtes des DAO (EXPECTED_INDEXES) existent, et recrée
+ * ceux qui manqueraient (ex: supprimés à la main).
+ */
+public final class MigrationRunner {
+
+    private static final String LOCK_NAME = "restaurant_schema_migration";
+    private static final int LOCK_TIMEOUT_S = 30;
+
+    /**
+     * Contenu d'une migration, exécuté dans l'ordre des versions
+     */
+    interface Step {
+        void apply(Connection conn) throws SQLException;
+    }
+
+    private static final class Migration {
+        final int version;
+        final String description;
+        final Step step;
+
+        Migration(int version, String description, Step step) {
+            this.version = version;
+            this.description = description;
+            this.step = step;
+        }
+    }
+
+    /**
+     * Index attendu: table, nom, colonnes
+     */
+    private static final class IndexDef {
+        final String table;
+        final String name;
+        final String columns;
+
+        IndexDef(String table, String name, String columns) {
+            this.table = table;
+            this.name = name;
+            this.columns = columns;
+        }
+    }
+
+    private static final List<IndexDef> EXPECTED_INDEXES = List.of(
+            // database/restaurant.sql
+            new IndexDef("produit", "idx_produit_categorie", "categorie_id"),
+            new IndexDef("mouvement_stock", "idx_mouvement_produit", "produit_id"),
+            new IndexDef("mouvement_stock", "idx_mouvement_date", "date_mouvement"),
+            new IndexDef("commande", "idx_commande_date", "date_commande"),
+            new IndexDef("ligne_commande", "idx_ligne_commande", "commande_id"),
+            new IndexDef("ligne_commande", "idx_ligne_produit", "produit_id"),
+            // historique paginé par (created_at, id) - HistoriqueDAO.readPage
+            new IndexDef("historique", "idx_historique_created", "created_at, id"),
+            // historique d'un enregistrement donné
+            new IndexDef("historique", "idx_historique_record", "table_name, record_id"),
+            // chiffre d'affaires des commandes VALIDEE sur une période
+            new IndexDef("commande", "idx_commande_etat_date", "etat, date_commande"),
+            // activité par heure (CommandeDAO.readActiviteHoraire): index couvrants
+            new IndexDef("commande", "idx_commande_created", "created_at"),
+            new IndexDef("commande", "idx_commande_validated", "validated_at, etat, total, created_at")
+    );
+
+    /**
+     * Tables dont chaque modification incrémente le compteur de table_version (voir dao.ChangePoller)
+     */
+    private static final List<String> TRACKED_TABLES = List.of(
+            "categorie", "produit", "mouvement_stock", "commande", "ligne_commande");
+
+    private static final List<Migration> MIGRATIONS = List.of(
+            new Migration(1, "Table historique", conn -> execute(conn,
+                    "CREATE TABLE IF NOT EXISTS historique (" +
+                            "id INT AUTO_INCREMENT PRIMARY KEY, " +
+                            "action VARCHAR(50), " +
+                            "table_name VARCHAR(100), " +
+                            "record_id INT, " +
+                            "user VARCHAR(100), " +
+                            "details TEXT, " +
+                            "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP, " +
+                            "INDEX idx_historique_created (created_at, id)" +
+                            ") ENGINE=InnoDB DEFAULT CHARSET=utf8")),
+            new Migration(2, "Index des requêtes d'historique et de chiffre d'affaires", conn -> {
+                createIndexIfMissing(conn, index("historique", "idx_historique_record"));
+                createIndexIfMissing(conn, index("commande", "idx_commande_etat_date"));
+            }),
+            new Migration(3, "Partitions mensuelles de historique", HistoriquePartitions::partitionTable),
+            new Migration(4, "Colonnes de version de produit et commande (verrouillage optimiste)", conn -> {
+                addColumnIfMissing(conn, "produit", "version", "INT NOT NULL DEFAULT 0");
+                addColumnIfMissing(conn, "commande", "version", "INT NOT NULL DEFAULT 0");
+            }),
+            new Migration(5, "Compteurs de modification par table (table_version)", MigrationRunner::createTableVersions),
+            new Migration(6, "Résumé des ventes par jour (ventes_journalieres)", conn -> {
+                RebuildVentes.createTable(conn);
+                RebuildVentes.rebuild(conn);
+            }),
+            // Les commandes existantes n'ont pas d'heure: elles restent à NULL
+            new Migration(7, "Heures de création et de validation des commandes", conn -> {
+                addColumnIfMissing(conn, "commande", "created_at", "DATETIME NULL");
+                addColumnIfMissing(conn, "commande", "validated_at", "DATETIME NULL");
+                createIndexIfMissing(conn, index("commande", "idx_commande_created"));
+                createIndexIfMissing(conn, index("commande", "idx_commande_validated"));
+            })
+    );
+
+    private MigrationRunner() {
+    }
+
+    /**
+     * Applique les migrations manquantes puis vérifie les index
+     *
+     * @return Le nombre de migrations appliquées
+     */
+    public static int migrate() throws SQLException {
+        int applied = 0;
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            acquireLock(conn);
+            try {
+                execute(conn, "CREATE TABLE IF NOT EXISTS schema_version (" +
+                        "version INT PRIMARY KEY, " +
+                        "description VARCHAR(200) NOT NULL, " +
+                        "applied_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP" +
+                        ") ENGINE=InnoDB DEFAULT CHARSET=utf8");
+                Set<Integer> done = appliedVersions(conn);
+                for (Migration migration : MIGRATIONS) {
+                    if (done.contains(migration.version)) {
+                        continue;
+                    }
+                    System.out.println("Migration " + migration.version + ": " + migration.description);
+                    // Les DDL MySQL valident implicitement: chaque étape doit rester rejouable
+                    migration.step.apply(conn);
+                    try (PreparedStatement pstmt = conn.prepareStatement(
+                            "INSERT INTO schema_version (version, description) VALUES (?, ?)")) {
+                        pstmt.setInt(1, migration.version);
+                        pstmt.setString(2, migration.description);
+                        pstmt.executeUpdate();
+                    }
+                    applied++;
+                }
+                verifyIndexes(conn);
+            } finally {
+                releaseLock(conn);
+            }
+        }
+        return applied;
+    }
+
+    /**
+     * Table table_version (une ligne par table suivie) et déclencheurs qui
+     * incrémentent le compteur de la table à chaque INSERT / UPDATE / DELETE,
+     * dans la transaction de l'écriture: un compteur n'avance que si la
+     * modification est validée, quelle que soit son origine (DAO, scripts utils)
+     */
+    static void createTableVersions(Connection conn) throws SQLException {
+        execute(conn, "CREATE TABLE IF NOT EXISTS table_version (" +
+                "table_name VARCHAR(64) PRIMARY KEY, " +
+                "version BIGINT NOT NULL DEFAULT 0" +
+                ") ENGINE=InnoDB DEFAULT CHARSET=utf8");
+        for (String table : TRACKED_TABLES) {
+            execute(conn, "INSERT IGNORE INTO table_version (table_name) VALUES ('" + table + "')");
+            for (String event : List.of("INSERT", "UPDATE", "DELETE")) {
+                String trigger = "trg_" + table + "_" + event.toLowerCase() + "_version";
+                execute(conn, "DROP TRIGGER IF EXISTS " + trigger);
+                execute(conn, "CREATE TRIGGER " + trigger + " AFTER " + event + " ON " + table + " FOR EACH ROW " +
+                        "UPDATE table_version SET version = version + 1 WHERE table_name = '" + table + "'");
+            }
+        }
+    }
+
+    /**
+     * Recrée les index attendus qui n'existent pas
+     *
+     * @return Les noms des index recréés
+     */
+    static List<String> verifyIndexes(Connection conn) throws SQLException {
+        Set<String> existing = new HashSet<>();
+        String sql = "SELECT DISTINCT table_name, index_name FROM information_schema.statistics WHERE table_schema = DATABASE()";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                existing.add(rs.getString(1).toLowerCase() + "." + rs.getString(2).toLowerCase());
+            }
+        }
+        List<String> created = new ArrayList<>();
+        for (IndexDef index : EXPECTED_INDEXES) {
+            if (!existing.contains(index.table + "." + index.name)) {
+                System.err.println("Index manquant " + index.table + "." + index.name + ": recréation");
+                execute(conn, "CREATE INDEX " + index.name + " ON " + index.table + " (" + index.columns + ")");
+                created.add(index.name);
+            }
+        }
+        return created;
+    }
+
+    static void execute(Connection conn, String sql) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate(sql);
+        }
+    }
+
+    /**
+     * MySQL n'a pas de CREATE INDEX IF NOT EXISTS: on consulte information_schema
+     */
+    static void createIndexIfMissing(Connection conn, IndexDef index) throws SQLException {
+        String sql = "SELECT COUNT(*) FROM information_schema.statistics " +
+                "WHERE table_schema = DATABASE() AND table_name = ? AND index_name = ?";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, index.table);
+            pstmt.setString(2, index.name);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next() && rs.getInt(1) > 0) {
+                    return;
+                }
+            }
+        }
+        execute(conn, "CREATE INDEX " + index.name + " ON " + index.table + " (" + index.columns + ")");
+    }
+
+    /**
+     * MySQL n'a pas de ADD COLUMN IF NOT EXISTS: on consulte information_schema
+     */
+    static void addColumnIfMissing(Connection conn, String table, String column, String definition) throws SQLException {
+        String sql = "SELECT COUNT(*) FROM information_schema.columns " +
+                "WHERE table_schema = DATABASE() AND table_name = ? AND column_name = ?";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, table);
+            pstmt.setString(2, column);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next() && rs.getInt(1) > 0) {
+                    return;
+                }
+            }
+        }
+        execute(conn, "ALTER TABLE " + table + " ADD COLUMN " + column + " " + definition);
+    }
+
+    private static IndexDef index(String table, String name) {
+        for (IndexDef index : EXPECTED_INDEXES) {
+            if (index.table.equals(table) && index.name.equals(name)) {
+                return index;
+            }
+        }
+        throw new IllegalArgumentException("Index non déclaré: " + table + "." + name);
+    }
+
+    private static Set<Integer> appliedVersions(Connection conn) throws SQLException {
+        Set<Integer> versions = new HashSet<>();
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT version FROM schema_version");
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                versions.add(rs.getInt(1));
+            }
+        }
+        return versions;
+    }
+
+    private static void acquireLock(Connection conn) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+            pstmt.setString(1, LOCK_NAME);
+            pstmt.setInt(2, LOCK_TIMEOUT_S);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (!rs.next() || rs.getInt(1) != 1) {
+                    throw new SQLException("Migration du schéma déjà en cours sur un autre poste");
+                }
+            }
+        }
+    }
+
+    private static void releaseLock(Connection conn) {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            pstmt.setString(1, LOCK_NAME);
+            pstmt.executeQuery().close();
+        } catch (SQLException e) {
+            System.err.println("Libération du verrou de migration impossible: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package utils;
+
+/**
+ * Photographie de l'état du pool de connexions
+ *
+ * Les temps d'attente sont mesurés sur les derniers emprunts (fenêtre glissante)
+ * et exprimés en millisecondes.
+ */
+public class PoolStats {
+    private final int active;
+    private final int idle;
+    private final int waiting;
+    private final int total;
+    private final double waitP50Ms;
+    private final double waitP95Ms;
+    private final double waitP99Ms;
+    private final double waitMaxMs;
+    private final long statementCacheHits;
+    private final long statementCacheMisses;
+    private final long validationFailures;
+    private final long leaksDetected;
+
+    public PoolStats(int active, int idle, int waiting, int total,
+                     double waitP50Ms, double waitP95Ms, double waitP99Ms, double waitMaxMs,
+                     long statementCacheHits, long statementCacheMisses,
+                     long validationFailures, long leaksDetected) {
+        this.active = active;
+        this.idle = idle;
+        this.waiting = waiting;
+        this.total = total;
+        this.waitP50Ms = waitP50Ms;
+        this.waitP95Ms = waitP95Ms;
+        this.waitP99Ms = waitP99Ms;
+        this.waitMaxMs = waitMaxMs;
+        this.statementCacheHits = statementCacheHits;
+        this.statementCacheMisses = statementCacheMisses;
+        this.validationFailures = validationFailures;
+        this.leaksDetected = leaksDetected;
+    }
+
+    public int getActive() { return active; }
+    public int getIdle() { return idle; }
+    public int getWaiting() { return waiting; }
+    public int getTotal() { return total; }
+    public double getWaitP50Ms() { return waitP50Ms; }
+    public double getWaitP95Ms() { return waitP95Ms; }
+    public double getWaitP99Ms() { return waitP99Ms; }
+    public double getWaitMaxMs() { return waitMaxMs; }
+    public long getStatementCacheHits() { return statementCacheHits; }
+    public long getStatementCacheMisses() { return statementCacheMisses; }
+    public long getValidationFailures() { return validationFailures; }
+    public long getLeaksDetected() { return leaksDetected; }
+
+    /**
+     * Taux de succès du cache de statements (0 à 1)
+     */
+    public double getStatementCacheHitRate() {
+        long lookups = statementCacheHits + statementCacheMisses;
+        return lookups == 0 ? 0 : (double) statementCacheHits / lookups;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("actives=%d, libres=%d, en attente=%d, total=%d | attente p50=%.2fms p95=%.2fms p99=%.2fms max=%.2fms"
+                        + " | cache statements=%.0f%% | validations échouées=%d | fuites=%d",
+                active, idle, waiting, total, waitP50Ms, waitP95Ms, waitP99Ms, waitMaxMs,
+                getStatementCacheHitRate() * 100, validationFailures, leaksDetected);
+    }
+}
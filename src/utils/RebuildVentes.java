@@ -0,0 +1,66 @@
+package utils;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Recalcule entièrement la table de résumé ventes_journalieres depuis commande
+ *
+ * La table est tenue à jour par CommandeDAO (voir dao.VentesJournalieres);
+ * ce recalcul sert après une modification faite hors de l'application
+ * (script SQL, import) ou pour contrôler le résumé.
+ */
+public final class RebuildVentes {
+
+    private RebuildVentes() {
+    }
+
+    public static void main(String[] args) {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            int jours = rebuild(conn);
+            System.out.println("Résumé des ventes recalculé: " + jours + " jour(s)");
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    static void createTable(Connection conn) throws SQLException {
+        MigrationRunner.execute(conn, "CREATE TABLE IF NOT EXISTS ventes_journalieres (" +
+                "jour DATE PRIMARY KEY, " +
+                "nb_commandes INT NOT NULL DEFAULT 0, " +
+                "chiffre_affaires DECIMAL(14, 2) NOT NULL DEFAULT 0, " +
+                "nb_annulees INT NOT NULL DEFAULT 0" +
+                ") ENGINE=InnoDB DEFAULT CHARSET=utf8");
+    }
+
+    /**
+     * Vide et recalcule le résumé, en une transaction
+     *
+     * Les commandes sont d'abord verrouillées en partage: les écritures de
+     * commandes attendent la fin du recalcul, et prennent leurs verrous dans
+     * le même ordre (commande puis résumé), sans risque d'interblocage.
+     *
+     * @return Le nombre de jours du résumé
+     */
+    public static int rebuild(Connection conn) throws SQLException {
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeQuery("SELECT COUNT(*) FROM commande LOCK IN SHARE MODE").close();
+            stmt.executeUpdate("DELETE FROM ventes_journalieres");
+            int jours = stmt.executeUpdate("INSERT INTO ventes_journalieres (jour, nb_commandes, chiffre_affaires, nb_annulees) " +
+                    "SELECT date_commande, COUNT(*), " +
+                    "COALESCE(SUM(CASE WHEN etat = 'VALIDEE' THEN total END), 0), " +
+                    "SUM(CASE WHEN etat = 'ANNULEE' THEN 1 ELSE 0 END) " +
+                    "FROM commande GROUP BY date_commande");
+            conn.commit();
+            return jours;
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package utils;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache LRU de PreparedStatement attaché à une connexion physique
+ *
+ * La clé est le texte SQL (plus le mode de récupération des clés générées).
+ * Un statement en cache est rendu au cache par close() au lieu d'être fermé;
+ * il est réellement fermé quand il sort du cache (LRU) ou quand la connexion
+ * physique est fermée. En retour au cache, ses paramètres, son lot et les
+ * réglages d'exécution (fetchSize, maxRows, queryTimeout) sont remis à
+ * leur valeur d'origine: l'emprunteur suivant du même SQL n'hérite de rien.
+ *
+ * Un cache n'est utilisé que par l'emprunteur courant de la connexion,
+ * il n'a donc pas besoin d'être thread-safe.
+ */
+class StatementCache {
+
+    private final Connection physical;
+    private final int maxSize;
+    private final AtomicLong hits;
+    private final AtomicLong misses;
+    private final Map<String, CachedStatement> entries;
+
+    StatementCache(Connection physical, int maxSize, AtomicLong hits, AtomicLong misses) {
+        this.physical = physical;
+        this.maxSize = maxSize;
+        this.hits = hits;
+        this.misses = misses;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest) {
+                if (size() > StatementCache.this.maxSize) {
+                    eldest.getValue().evict();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Retourne un PreparedStatement pour ce SQL, depuis le cache si possible
+     *
+     * @param logical la connexion vue par l'appelant (retournée par getConnection())
+     * @param autoGeneratedKeys Statement.RETURN_GENERATED_KEYS / NO_GENERATED_KEYS, ou null
+     */
+    PreparedStatement prepare(Connection logical, String sql, Integer autoGeneratedKeys) throws SQLException {
+        if (maxSize <= 0) {
+            return prepareUncached(sql, autoGeneratedKeys);
+        }
+        String key = autoGeneratedKeys == null ? sql : autoGeneratedKeys + "|" + sql;
+        CachedStatement cached = entries.get(key);
+        if (cached != null && !cached.inUse) {
+            hits.incrementAndGet();
+            cached.inUse = true;
+            return cached.view(logical);
+        }
+        misses.incrementAndGet();
+        PreparedStatement real = prepareUncached(sql, autoGeneratedKeys);
+        if (cached != null) {
+            // Même SQL déjà ouvert par l'appelant (requêtes imbriquées): statement non mis en cache
+            return real;
+        }
+        try {
+            cached = new CachedStatement(real);
+        } catch (SQLException e) {
+            real.close();
+            throw e;
+        }
+        cached.inUse = true;
+        entries.put(key, cached);
+        return cached.view(logical);
+    }
+
+    /**
+     * Ferme tous les statements du cache (connexion physique fermée ou écartée)
+     */
+    void clear() {
+        List<CachedStatement> all = new ArrayList<>(entries.values());
+        entries.clear();
+        for (CachedStatement cached : all) {
+            cached.evict();
+        }
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    private PreparedStatement prepareUncached(String sql, Integer autoGeneratedKeys) throws SQLException {
+        return autoGeneratedKeys == null
+                ? physical.prepareStatement(sql)
+                : physical.prepareStatement(sql, autoGeneratedKeys);
+    }
+
+    /**
+     * Statement physique conservé dans le cache
+     */
+    private static class CachedStatement {
+        final PreparedStatement real;
+        // Réglages à la préparation, rétablis par release()
+        final int fetchSize;
+        final int maxRows;
+        final int queryTimeout;
+        boolean inUse;
+        boolean evicted;
+
+        CachedStatement(PreparedStatement real) throws SQLException {
+            this.real = real;
+            this.fetchSize = real.getFetchSize();
+            this.maxRows = real.getMaxRows();
+            this.queryTimeout = real.getQueryTimeout();
+        }
+
+        PreparedStatement view(Connection logical) {
+            return (PreparedStatement) Proxy.newProxyInstance(
+                    PreparedStatement.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class},
+                    new LogicalStatementHandler(this, logical));
+        }
+
+        void evict() {
+            evicted = true;
+            if (!inUse) {
+                closeQuietly();
+            }
+        }
+
+        void release() {
+            inUse = false;
+            if (evicted) {
+                closeQuietly();
+                return;
+            }
+            try {
+                real.clearParameters();
+                real.clearBatch();
+                if (real.getFetchSize() != fetchSize) {
+                    real.setFetchSize(fetchSize);
+                }
+                if (real.getMaxRows() != maxRows) {
+                    real.setMaxRows(maxRows);
+                }
+                if (real.getQueryTimeout() != queryTimeout) {
+                    real.setQueryTimeout(queryTimeout);
+                }
+            } catch (SQLException e) {
+                evicted = true;
+                closeQuietly();
+            }
+        }
+
+        void closeQuietly() {
+            try {
+                real.close();
+            } catch (SQLException ignore) {
+            }
+        }
+    }
+
+    /**
+     * Vue logique d'un statement en cache: close() le rend au cache
+     */
+    private static class LogicalStatementHandler implements InvocationHandler {
+        private final CachedStatement cached;
+        private final Connection logical;
+        private boolean closed = false;
+
+        LogicalStatementHandler(CachedStatement cached, Connection logical) {
+            this.cached = cached;
+            this.logical = logical;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        cached.release();
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || cached.real.isClosed();
+                case "getConnection":
+                    return logical;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "CachedStatement[" + cached.real + "]";
+                default:
+                    break;
+            }
+            if (closed) {
+                throw new SQLException("Statement déjà fermé");
+            }
+            try {
+                return method.invoke(cached.real, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}